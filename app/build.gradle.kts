@@ -1,3 +1,5 @@
+import java.util.Locale
+
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.kotlin.android)
@@ -18,6 +20,10 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // mirror hedged to when the main feed host is slow see feedMirrorUrl in gradle.properties
+        val feedMirrorUrl = providers.gradleProperty("feedMirrorUrl").getOrElse("").trim()
+        buildConfigField("String", "FEED_MIRROR_URL", "\"$feedMirrorUrl\"")
     }
 
     buildTypes {
@@ -38,10 +44,145 @@ android {
     }
     buildFeatures {
         compose = true
+        buildConfig = true
+    }
+    testOptions {
+        unitTests {
+            // robolectric tests read the generated seed snapshot from the merged assets
+            isIncludeAndroidResources = true
+        }
+    }
+}
+
+// writes CurrencyMetadata.java from metadata/currencies.csv and the flags in res/drawable
+// the adapter then reads flag ids iso codes and names from arrays instead of looking them up at runtime
+abstract class GenerateCurrencyMetadata : DefaultTask() {
+
+    @get:InputFile
+    abstract val currencies: RegularFileProperty
+
+    @get:InputDirectory
+    abstract val drawables: DirectoryProperty
+
+    @get:Input
+    abstract val packageName: Property<String>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val flagNames = drawables.get().asFile.listFiles().orEmpty()
+            .map { it.name.substringBefore('.') }
+            .toSet()
+
+        val rows = currencies.get().asFile.readLines()
+            .map { it.trim() }
+            .filter { it.isNotEmpty() && !it.startsWith("#") }
+            .drop(1)
+            .map { line ->
+                val parts = line.split(",", limit = 3)
+                require(parts.size == 3) { "Bad currency row: $line" }
+                Triple(parts[0].trim().uppercase(Locale.ROOT), parts[1].trim(), parts[2].trim())
+            }
+
+        val isoCodes = rows.map { it.first }
+        require(isoCodes.toSet().size == isoCodes.size) { "Duplicate iso code in ${currencies.get().asFile}" }
+
+        val pkg = packageName.get()
+        val source = buildString {
+            appendLine("// generated by the generateCurrencyMetadata task do not edit")
+            appendLine("package $pkg;")
+            appendLine()
+            appendLine("// currencies known at build time")
+            appendLine("// the index of a currency in these arrays is its id in the currency registry")
+            appendLine("public final class CurrencyMetadata {")
+            appendLine()
+            appendLine("    // number of known currencies")
+            appendLine("    public static final int COUNT = ${rows.size};")
+            appendLine()
+            appendLine("    // three letter iso codes")
+            appendLine("    public static final String[] ISO_CODES = {")
+            rows.forEach { appendLine("            \"${it.first}\",") }
+            appendLine("    };")
+            appendLine()
+            appendLine("    // english display names")
+            appendLine("    public static final String[] DISPLAY_NAMES = {")
+            rows.forEach { appendLine("            \"${it.third.replace("\\", "\\\\").replace("\"", "\\\"")}\",") }
+            appendLine("    };")
+            appendLine()
+            appendLine("    // flag drawables or 0 when there is no flag")
+            appendLine("    public static final int[] FLAGS = {")
+            rows.forEach {
+                val flag = it.second
+                appendLine(if (flag.isNotEmpty() && flag in flagNames) "            R.drawable.$flag," else "            0,")
+            }
+            appendLine("    };")
+            appendLine()
+            appendLine("    private CurrencyMetadata() {")
+            appendLine("    }")
+            appendLine("}")
+        }
+
+        val target = outputDir.get().asFile.resolve(pkg.replace('.', '/') + "/CurrencyMetadata.java")
+        target.parentFile.mkdirs()
+        target.writeText(source)
+    }
+}
+
+val generateCurrencyMetadata by tasks.registering(GenerateCurrencyMetadata::class) {
+    currencies.set(layout.projectDirectory.file("metadata/currencies.csv"))
+    drawables.set(layout.projectDirectory.dir("src/main/res/drawable"))
+    packageName.set(android.namespace)
+    outputDir.set(layout.buildDirectory.dir("generated/source/currencyMetadata"))
+}
+
+// turns metadata/seed_rss.xml into a snapshot with the core parser and SnapshotStore
+// it is shipped in assets so a fresh install with no network still has rates to show
+abstract class GenerateSeedSnapshot : JavaExec() {
+
+    @get:InputFile
+    abstract val feed: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    override fun exec() {
+        args(
+            feed.get().asFile.absolutePath,
+            outputDir.get().asFile.resolve("seed_snapshot.bin").absolutePath
+        )
+        super.exec()
+    }
+}
+
+// core and the xml parser it needs on a plain jvm
+val seedSnapshotTool by configurations.creating {
+    isCanBeConsumed = false
+}
+
+val generateSeedSnapshot by tasks.registering(GenerateSeedSnapshot::class) {
+    feed.set(layout.projectDirectory.file("metadata/seed_rss.xml"))
+    outputDir.set(layout.buildDirectory.dir("generated/assets/seedSnapshot"))
+    classpath = seedSnapshotTool
+    mainClass.set("org.me.gcu.jordanmoorecw1.data.SeedSnapshotWriter")
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.java?.addGeneratedSourceDirectory(
+            generateCurrencyMetadata,
+            GenerateCurrencyMetadata::outputDir
+        )
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            generateSeedSnapshot,
+            GenerateSeedSnapshot::outputDir
+        )
     }
 }
 
 dependencies {
+    implementation(project(":core"))
     implementation(libs.androidx.core.ktx)
     implementation(libs.androidx.lifecycle.runtime.ktx)
     implementation(libs.androidx.activity.compose)
@@ -52,7 +193,12 @@ dependencies {
     implementation(libs.androidx.compose.material3)
     implementation(libs.material)
     implementation(libs.androidx.swiperefreshlayout)
+    implementation(libs.androidx.work.runtime)
+    seedSnapshotTool(project(":core"))
+    seedSnapshotTool(libs.kxml2)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.androidx.work.testing)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
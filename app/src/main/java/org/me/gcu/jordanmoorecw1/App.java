@@ -1,6 +1,12 @@
 package org.me.gcu.jordanmoorecw1;
 
 import android.app.Application;
+import android.os.Trace;
+
+import org.me.gcu.jordanmoorecw1.data.Repository;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.refresh.RefreshScheduler;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
 
 // application class used to keep a global app instance
 public class App extends Application {
@@ -8,15 +14,46 @@ public class App extends Application {
     // single shared instance of this application
     private static App instance;
 
+    // System.nanoTime when the application was created
+    private static long createdAtNanos;
+
     @Override
     public void onCreate() {
         super.onCreate();
+        createdAtNanos = System.nanoTime();
         // store this instance so other classes can get the app context
         instance = this;
+        // mirror the pipeline spans into systrace and perfetto
+        // the platform only records them while a trace is being captured
+        Tracer.getInstance().setSectionSink(new Tracer.SectionSink() {
+            @Override
+            public void beginSection(String name) {
+                Trace.beginSection(name);
+            }
+
+            @Override
+            public void endSection() {
+                Trace.endSection();
+            }
+        });
+        // known currencies get the ids of their rows in the generated metadata table
+        // done before anything reads a snapshot so the ids line up with the flags and names
+        CurrencyRegistry.getInstance().seed(CurrencyMetadata.ISO_CODES,
+                CurrencyMetadata.DISPLAY_NAMES);
+        // load the saved or seed snapshot in the background while the first screen inflates
+        Repository.getInstance().warmUp();
+        // keep a background refresh queued for just after the next expected publish
+        RefreshScheduler.getInstance(this).start();
     }
 
     // returns the shared app instance
     public static App getInstance() {
         return instance;
     }
+
+    // System.nanoTime when the application was created
+    // the repository times the cold start from it into the startup.first_data histogram
+    public static long getCreatedAtNanos() {
+        return createdAtNanos;
+    }
 }
@@ -6,29 +6,60 @@ import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.lifecycle.ViewModelProvider;
+
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.button.MaterialButton;
 
-// bottom sheet used for quick currency conversion
+import org.me.gcu.jordanmoorecw1.format.RateFormatter;
+import org.me.gcu.jordanmoorecw1.model.CrossRates;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.MultiBaseRates;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+import org.me.gcu.jordanmoorecw1.ui.theme.RatesViewModel;
+
+import java.math.RoundingMode;
+import java.util.Locale;
+
+// bottom sheet used for quick currency conversion between any two currencies
+// rates come from the activity view model so a refresh while the sheet is open is picked up
 public class ConverterBottomSheet extends BottomSheetDialogFragment {
 
-    // argument key for the selected currency code
-    private static final String ARG_CURRENCY_CODE = "currency_code";
+    // argument and state key for the currency converted from
+    private static final String ARG_FROM_CODE = "from_code";
+
+    // argument and state key for the currency converted to
+    private static final String ARG_TO_CODE = "to_code";
 
-    // argument key for the selected currency rate
-    private static final String ARG_CURRENCY_RATE = "currency_rate";
+    // three letter codes of the selected currencies
+    private String fromCode = CrossRates.BASE_ISO;
+    private String toCode = CrossRates.BASE_ISO;
 
-    // selected currency code for example usd
-    private String currencyCode;
+    // cross rates of the table currently shown
+    private CrossRates crossRates;
 
-    // rate of selected currency compared to gbp
-    private double rate;
+    // quotes from the feeds of the other bases that came with the same event
+    private MultiBaseRates bases = MultiBaseRates.EMPTY;
 
-    // true when converting from currency back to gbp
-    private boolean isReversed = false;
+    // slots of the selected currencies in the cross rates
+    private int fromSlot = CrossRates.NO_SLOT;
+    private int toSlot = CrossRates.NO_SLOT;
+
+    // exact rate of the selected pair as two packed feed rates
+    // looked up when the pair or the rates change so typing is one multiply divide
+    private final long[] pairQuote = new long[2];
+
+    // digits shown for the to currency
+    private int resultDigits;
 
     // text view that shows the pair label
     private TextView tvPair;
@@ -36,18 +67,28 @@ public class ConverterBottomSheet extends BottomSheetDialogFragment {
     // text view that shows the result
     private TextView tvResult;
 
+    // writes the result into a reused buffer with the digits of the to currency
+    private final RateFormatter formatter = new RateFormatter(Locale.getDefault(), true);
+
     // input field where the user types the amount
     private TextInputEditText etAmount;
 
     // button used to reverse the conversion direction
     private MaterialButton btnReverse;
 
-    // creates a new bottom sheet with the given currency and rate
-    public static ConverterBottomSheet newInstance(String code, double rate) {
+    // pickers for the two currencies
+    private Spinner spFrom;
+    private Spinner spTo;
+
+    // view model of the activity which also asks for the feeds of the bases a pair needs
+    private RatesViewModel viewModel;
+
+    // creates a new bottom sheet that converts from gbp to the given currency
+    public static ConverterBottomSheet newInstance(String isoCode) {
         ConverterBottomSheet fragment = new ConverterBottomSheet();
         Bundle args = new Bundle();
-        args.putString(ARG_CURRENCY_CODE, code);
-        args.putDouble(ARG_CURRENCY_RATE, rate);
+        args.putString(ARG_FROM_CODE, CrossRates.BASE_ISO);
+        args.putString(ARG_TO_CODE, isoCode);
         fragment.setArguments(args);
         return fragment;
     }
@@ -63,25 +104,55 @@ public class ConverterBottomSheet extends BottomSheetDialogFragment {
         tvResult = view.findViewById(R.id.tvResult);
         etAmount = view.findViewById(R.id.etAmount);
         btnReverse = view.findViewById(R.id.btnReverse);
+        spFrom = view.findViewById(R.id.spFrom);
+        spTo = view.findViewById(R.id.spTo);
 
-        // read code and rate from the arguments bundle
-        if (getArguments() != null) {
-            currencyCode = getArguments().getString(ARG_CURRENCY_CODE);
-            rate = getArguments().getDouble(ARG_CURRENCY_RATE);
+        // read the pair from saved state or else from the arguments bundle
+        Bundle source = savedInstanceState != null ? savedInstanceState : getArguments();
+        if (source != null) {
+            fromCode = source.getString(ARG_FROM_CODE, CrossRates.BASE_ISO);
+            toCode = source.getString(ARG_TO_CODE, CrossRates.BASE_ISO);
         }
 
-        // set the initial label to show gbp to currency direction
         updatePairLabel();
 
         // set up button and input handlers
 
-        // handle reverse button click and swap conversion direction
+        // handle reverse button click and swap the two currencies
         btnReverse.setOnClickListener(v -> {
-            isReversed = !isReversed;
-            updatePairLabel();
-            calculateAndDisplayResult();
+            String oldFrom = fromCode;
+            fromCode = toCode;
+            toCode = oldFrom;
+            selectCodes();
+            resolveSlots();
+            requestBases();
         });
 
+        // a new pick only has to look up the two slots again
+        AdapterView.OnItemSelectedListener pickListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                if (crossRates == null) {
+                    return;
+                }
+                String code = crossRates.isoCodeOf(slotAt(position));
+                if (parent == spFrom) {
+                    fromCode = code;
+                } else {
+                    toCode = code;
+                }
+                resolveSlots();
+                requestBases();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+                // not used here
+            }
+        };
+        spFrom.setOnItemSelectedListener(pickListener);
+        spTo.setOnItemSelectedListener(pickListener);
+
         // watch the amount input so conversion updates as the user types
         etAmount.addTextChangedListener(new TextWatcher() {
             @Override
@@ -103,38 +174,167 @@ public class ConverterBottomSheet extends BottomSheetDialogFragment {
         return view;
     }
 
-    // updates the label text to match the current conversion direction
-    private void updatePairLabel() {
-        if (isReversed) {
-            tvPair.setText(currencyCode + " → GBP");
-        } else {
-            tvPair.setText("GBP → " + currencyCode);
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // share the rates table with the activity so every refresh reaches the sheet
+        viewModel = new ViewModelProvider(requireActivity()).get(RatesViewModel.class);
+        viewModel.getSnapshot().observe(getViewLifecycleOwner(),
+                this::onRatesChanged);
+        requestBases();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // only the converter needs the other base feeds so refreshes go back to gbp alone
+        viewModel.setBaseCurrencies();
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(ARG_FROM_CODE, fromCode);
+        outState.putString(ARG_TO_CODE, toCode);
+    }
+
+    // called with each snapshot event
+    // the cross rates belong to the table so the old pair values are dropped with it
+    // new quotes from the other bases only change the pair rate and leave the pickers alone
+    private void onRatesChanged(SnapshotEvent event) {
+        RateTable table = event.getRates();
+        if (table.isEmpty()) {
+            // nothing to show
+            return;
+        }
+        if (crossRates != null && crossRates.getTable() == table) {
+            // the pickers already show this table
+            if (bases != event.getBases()) {
+                bases = event.getBases();
+                resolveSlots();
+            }
+            return;
+        }
+        crossRates = table.getCrossRates();
+        bases = event.getBases();
+
+        // gbp first then the feed currencies in feed order
+        String[] codes = new String[crossRates.size()];
+        for (int position = 0; position < codes.length; position++) {
+            codes[position] = crossRates.isoCodeOf(slotAt(position));
+        }
+        spFrom.setAdapter(newPickerAdapter(codes));
+        spTo.setAdapter(newPickerAdapter(codes));
+
+        selectCodes();
+        resolveSlots();
+    }
+
+    private ArrayAdapter<String> newPickerAdapter(String[] codes) {
+        ArrayAdapter<String> pickerAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, codes);
+        pickerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        return pickerAdapter;
+    }
+
+    // slot shown at a picker position with gbp at the top
+    private int slotAt(int position) {
+        return position == 0 ? crossRates.baseSlot() : position - 1;
+    }
+
+    // picker position of a slot
+    private int positionOf(int slot) {
+        return slot == crossRates.baseSlot() ? 0 : slot + 1;
+    }
+
+    // moves both pickers to the selected codes
+    private void selectCodes() {
+        if (crossRates == null) {
+            return;
+        }
+        int from = crossRates.slotOf(fromCode);
+        int to = crossRates.slotOf(toCode);
+        if (from != CrossRates.NO_SLOT) {
+            spFrom.setSelection(positionOf(from));
+        }
+        if (to != CrossRates.NO_SLOT) {
+            spTo.setSelection(positionOf(to));
+        }
+    }
+
+    // looks up the pair quote and result digits once so typing does no lookups
+    // a pair with gbp on either side is always read from the table the list shows
+    // any other pair uses a quote straight from the feed of one of its currencies
+    // and falls back to the cross rate through gbp when neither is a loaded base
+    private void resolveSlots() {
+        if (crossRates != null) {
+            fromSlot = crossRates.slotOf(fromCode);
+            toSlot = crossRates.slotOf(toCode);
+            if (fromSlot != CrossRates.NO_SLOT && toSlot != CrossRates.NO_SLOT) {
+                int baseSlot = crossRates.baseSlot();
+                boolean quoted = fromSlot != baseSlot && toSlot != baseSlot
+                        && bases.quote(fromCode, toCode, pairQuote);
+                if (!quoted) {
+                    crossRates.quote(fromSlot, toSlot, pairQuote);
+                }
+                int toId = toSlot == crossRates.baseSlot()
+                        ? CurrencyRegistry.NO_ID
+                        : crossRates.getTable().getId(toSlot);
+                resultDigits = formatter.getDigits(toId);
+            }
+        }
+        updatePairLabel();
+        calculateAndDisplayResult();
+    }
+
+    // asks for the feeds of both currencies when neither is gbp so the pair is quoted directly
+    // a pair with gbp is read from the table the list shows and needs no other feed
+    // the repository ignores a set it already loads so picking the same pair again costs nothing
+    private void requestBases() {
+        if (viewModel == null
+                || CrossRates.BASE_ISO.equalsIgnoreCase(fromCode)
+                || CrossRates.BASE_ISO.equalsIgnoreCase(toCode)) {
+            return;
         }
+        viewModel.setBaseCurrencies(fromCode, toCode);
+    }
+
+    // updates the label text to match the selected pair
+    private void updatePairLabel() {
+        tvPair.setText(fromCode + " → " + toCode);
     }
 
     // reads the amount and shows the converted result
     private void calculateAndDisplayResult() {
         String input = etAmount.getText() != null ? etAmount.getText().toString() : "";
 
-        // clear result when there is no input
-        if (input.trim().isEmpty()) {
+        // clear result when there is no input or the rates are not loaded
+        if (input.trim().isEmpty()
+                || crossRates == null
+                || fromSlot == CrossRates.NO_SLOT
+                || toSlot == CrossRates.NO_SLOT) {
             tvResult.setText("");
             return;
         }
 
-        try {
-            // parse the amount from the input text
-            double amount = Double.parseDouble(input);
-
-            // when reversed convert from currency back to gbp when normal convert from gbp to currency
-            double result = isReversed
-                    ? amount / rate
-                    : amount * rate;
+        // parse the amount from the input text as fixed point
+        long amount = FixedDecimal.parse(input.trim());
+        if (amount == FixedDecimal.INVALID) {
+            tvResult.setText("Invalid amount");
+            return;
+        }
 
-            // show the result formatted to four decimal places
-            tvResult.setText(String.format("%.4f", result));
+        try {
+            // amount x to rate / from rate rounded once to the digits of the to currency
+            long result = CrossRates.convert(FixedDecimal.units(amount), FixedDecimal.scale(amount),
+                    pairQuote, resultDigits, RoundingMode.HALF_EVEN);
+            int length = formatter.format(result, resultDigits, resultDigits,
+                    RoundingMode.UNNECESSARY);
+            tvResult.setText(formatter.getBuffer(), 0, length);
 
-        } catch (NumberFormatException e) {
+        } catch (ArithmeticException e) {
+            // the result is too big to hold
             tvResult.setText("Invalid amount");
         }
     }
@@ -1,5 +1,6 @@
 package org.me.gcu.jordanmoorecw1;
 
+import android.content.Intent;
 import android.content.res.Configuration;
 import android.os.Bundle;
 import android.os.Handler;
@@ -21,19 +22,23 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.me.gcu.jordanmoorecw1.model.CurrencyRate;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+import org.me.gcu.jordanmoorecw1.search.CurrencySearch;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
 import org.me.gcu.jordanmoorecw1.ui.theme.RatesViewModel;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 // main activity used to show the currency list screen
 public class MainActivity extends AppCompatActivity {
 
-    // interval between automatic refreshes in milliseconds set to one hour
-    private static final long AUTO_REFRESH_INTERVAL_MS = 60L * 60L * 1000L;
+    // the nine main currencies shown when there is no search
+    private static final String[] MAIN_CURRENCIES = {
+            "USD", "EUR", "JPY", "AUD", "CAD", "CHF", "CNY", "HKD", "NZD"
+    };
 
     // views on the screen
     private RecyclerView recyclerRates;
@@ -48,23 +53,25 @@ public class MainActivity extends AppCompatActivity {
     private RatesViewModel viewModel;
     private RatesAdapter adapter;
 
-    // full list of all currencies from the feed
-    private final List<CurrencyRate> fullList = new ArrayList<>();
-    // list that only holds the nine main currencies
-    private final List<CurrencyRate> mainList = new ArrayList<>();
+    // table of all currencies from the feed shared with the view model
+    private RateTable table = RateTable.EMPTY;
+    // rows of the table that hold the nine main currencies
+    private int[] mainRows = new int[0];
+
+    // searches the table on a background thread while the user types
+    private final CurrencySearch search = new CurrencySearch();
 
     // time of last successful update
     private long lastUpdateEpochMs = 0L;
     // flag that says if we are currently showing cached data
     private boolean usingCachedData = false;
 
-    // handler and runnable for auto refresh and label update
+    // handler and runnable for the last refreshed label
+    // refreshing itself is done by the background scheduler even when this screen is closed
     private final Handler timerHandler = new Handler(Looper.getMainLooper());
     private final Runnable updateElapsedRunnable = new Runnable() {
         @Override
         public void run() {
-            // check if it is time for an automatic refresh
-            maybeAutoRefresh();
             // update the last refreshed label
             updateRelativeUpdatedLabel();
             // run again in one minute
@@ -99,51 +106,18 @@ public class MainActivity extends AppCompatActivity {
         // set up view model
         viewModel = new ViewModelProvider(this).get(RatesViewModel.class);
 
-        // observe currency rates list
-        viewModel.getRates().observe(this, rates -> {
-            swipeRefresh.setRefreshing(false);
-            if (rates == null || rates.isEmpty()) {
-                return;
-            }
-
-            // store full list and rebuild main currencies list
-            fullList.clear();
-            fullList.addAll(rates);
-            buildMainCurrenciesList();
-
-            // remember when we last updated
-            lastUpdateEpochMs = System.currentTimeMillis();
-            updateRelativeUpdatedLabel();
-
-            // always show only the main nine currencies by default
-            if (adapter == null) {
-                adapter = new RatesAdapter(this, new ArrayList<>(mainList));
-                recyclerRates.setAdapter(adapter);
-            } else {
-                adapter.updateList(mainList);
-            }
-        });
-
-        // observe feed last updated text
-        viewModel.getLastUpdated().observe(this, time -> {
-            if (tvFeedUpdated != null) {
-                if (time == null || time.isEmpty()) {
-                    tvFeedUpdated.setText("RSS feed updated: --");
-                } else {
-                    tvFeedUpdated.setText("RSS feed updated: " + time);
-                }
-            }
-
-            // check if this update came from cache by looking for the word cache
-            usingCachedData = time != null
-                    && time.toLowerCase(Locale.ROOT).contains("cache");
-
-            updateRelativeUpdatedLabel();
-        });
+        // one observer for the rates the feed time and where they came from
+        viewModel.getSnapshot().observe(this, this::onSnapshot);
 
         // open and close the search panel when the button is pressed
         btnSearch.setOnClickListener(v -> toggleSearchPanel());
 
+        // long pressing the refreshed label opens the hidden metrics screen
+        tvUpdated.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
+
         // listen for text changes in the search box
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override
@@ -163,77 +137,106 @@ public class MainActivity extends AppCompatActivity {
         });
 
         // pull to refresh fetches new data
+        // each pull starts a new trace that follows the refresh down to the rebound rows
         swipeRefresh.setOnRefreshListener(() -> {
-            swipeRefresh.setRefreshing(true);
-            viewModel.refreshRates();
+            Tracer tracer = Tracer.getInstance();
+            long previousTrace = tracer.attach(tracer.newTraceId());
+            long spanStart = tracer.begin("MainActivity.swipeRefresh");
+            try {
+                swipeRefresh.setRefreshing(true);
+                viewModel.refreshRates();
+            } finally {
+                tracer.end("MainActivity.swipeRefresh", spanStart);
+                tracer.attach(previousTrace);
+            }
         });
 
-        // first load of data when app opens
-        viewModel.refreshRates();
+        // first load shows saved rates straight away and revalidates them if they are stale
+        viewModel.loadRates();
     }
 
-    // builds the list of the nine main currencies only
-    private void buildMainCurrenciesList() {
-        mainList.clear();
-        if (fullList.isEmpty()) {
+    // shows one snapshot event
+    // the list is only rebuilt when the event holds a different table
+    private void onSnapshot(SnapshotEvent event) {
+        // show the spinner while the rates are being checked in the background
+        swipeRefresh.setRefreshing(event.isRefreshing());
+
+        // rates that never reached the server this session count as offline
+        usingCachedData = event.getSource() == SnapshotEvent.Source.CACHE;
+        if (event.getFetchedAtMs() > 0) {
+            lastUpdateEpochMs = event.getFetchedAtMs();
+        }
+
+        String time = event.getFeedTime();
+        if (time.isEmpty()) {
+            tvFeedUpdated.setText(usingCachedData
+                    ? "RSS feed updated: (cached data)"
+                    : "RSS feed updated: --");
+        } else if (usingCachedData) {
+            tvFeedUpdated.setText("RSS feed updated: " + time + " (from cache)");
+        } else {
+            tvFeedUpdated.setText("RSS feed updated: " + time);
+        }
+        updateRelativeUpdatedLabel();
+
+        RateTable rates = event.getRates();
+        if (rates.isEmpty() || rates == table) {
             return;
         }
 
-        for (CurrencyRate rate : fullList) {
-            if (rate == null || rate.getCode() == null) {
-                continue;
-            }
+        // keep the table and rebuild the main currencies rows
+        table = rates;
+        search.setTable(rates);
+        buildMainCurrenciesList();
+
+        // always show only the main nine currencies by default
+        // an open search is run again so its rows point at the new table
+        String query = etSearch.getText() != null ? etSearch.getText().toString() : "";
+        if (adapter == null) {
+            adapter = new RatesAdapter(this);
+            recyclerRates.setAdapter(adapter);
+        }
+        filterList(query);
+    }
 
-            String codeText = rate.getCode().toUpperCase(Locale.ROOT);
-
-            // match the nine main currencies
-            if (codeText.contains("(USD)")
-                    || codeText.contains("(EUR)")
-                    || codeText.contains("(JPY)")
-                    || codeText.contains("(AUD)")
-                    || codeText.contains("(CAD)")
-                    || codeText.contains("(CHF)")
-                    || codeText.contains("(CNY)")
-                    || codeText.contains("(HKD)")
-                    || codeText.contains("(NZD)")) {
-                mainList.add(rate);
+    // builds the rows of the nine main currencies only in feed order
+    private void buildMainCurrenciesList() {
+        int[] rows = new int[MAIN_CURRENCIES.length];
+        int count = 0;
+        for (int row = 0; row < table.size(); row++) {
+            String iso = table.getIsoCode(row);
+            for (String main : MAIN_CURRENCIES) {
+                if (main.equals(iso)) {
+                    rows[count++] = row;
+                    break;
+                }
             }
         }
+        mainRows = Arrays.copyOf(rows, count);
     }
 
     // filters the list based on the search text
+    // the search runs in the background and only the latest query is shown
     private void filterList(String query) {
         if (adapter == null) {
             return;
         }
 
-        String text = query.toLowerCase(Locale.ROOT).trim();
+        String text = query.trim();
 
         // empty search shows only the main currencies
         if (text.isEmpty()) {
-            adapter.updateList(mainList);
+            search.cancel();
+            adapter.updateList(table, mainRows);
             return;
         }
 
-        List<CurrencyRate> filtered = new ArrayList<>();
-        for (CurrencyRate rate : fullList) {
-            if (rate == null) {
-                continue;
-            }
-
-            String code = rate.getCode() != null
-                    ? rate.getCode().toLowerCase(Locale.ROOT)
-                    : "";
-            String title = rate.getTitle() != null
-                    ? rate.getTitle().toLowerCase(Locale.ROOT)
-                    : "";
-
-            if (code.contains(text) || title.contains(text)) {
-                filtered.add(rate);
+        search.search(text, (resultTable, rows, generation) -> runOnUiThread(() -> {
+            // a newer query or a cleared search box wins over this result
+            if (adapter != null && search.isCurrent(generation)) {
+                adapter.updateList(resultTable, rows);
             }
-        }
-
-        adapter.updateList(filtered);
+        }));
     }
 
     // open or close the search panel with a small fade
@@ -254,20 +257,6 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    // check if it is time to refresh data automatically
-    private void maybeAutoRefresh() {
-        if (lastUpdateEpochMs == 0L) {
-            return;
-        }
-
-        long now = System.currentTimeMillis();
-        long delta = now - lastUpdateEpochMs;
-        if (delta >= AUTO_REFRESH_INTERVAL_MS && !swipeRefresh.isRefreshing()) {
-            swipeRefresh.setRefreshing(true);
-            viewModel.refreshRates();
-        }
-    }
-
     // update the label that shows when the app last refreshed
     private void updateRelativeUpdatedLabel() {
         if (usingCachedData) {
@@ -317,4 +306,10 @@ public class MainActivity extends AppCompatActivity {
         super.onPause();
         timerHandler.removeCallbacks(updateElapsedRunnable);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        search.shutdown();
+    }
 }
@@ -0,0 +1,103 @@
+package org.me.gcu.jordanmoorecw1;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.android.material.button.MaterialButton;
+
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// hidden debug screen opened by long pressing the last refreshed label
+// shows every pipeline counter and histogram and shares them as json
+// and saves the recent refresh spans as a chrome trace
+public class MetricsActivity extends AppCompatActivity {
+
+    // trace file in the app folder on external storage which adb pull can read without root
+    private static final String TRACE_FILE = "refresh_trace.json";
+
+    private TextView tvMetrics;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        tvMetrics = findViewById(R.id.tvMetrics);
+        MaterialButton btnRefresh = findViewById(R.id.btnRefreshMetrics);
+        MaterialButton btnShare = findViewById(R.id.btnShareMetrics);
+        MaterialButton btnReset = findViewById(R.id.btnResetMetrics);
+        MaterialButton btnSaveTrace = findViewById(R.id.btnSaveTrace);
+
+        btnRefresh.setOnClickListener(v -> showMetrics());
+        btnShare.setOnClickListener(v -> shareJson());
+        btnReset.setOnClickListener(v -> {
+            MetricsRegistry.getInstance().reset();
+            showMetrics();
+        });
+        btnSaveTrace.setOnClickListener(v -> saveTrace());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    // one line per metric with the histograms summarised by their percentiles
+    private void showMetrics() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        StringBuilder text = new StringBuilder();
+        text.append("counters\n");
+        for (Counter counter : registry.getCounters()) {
+            text.append("  ").append(counter).append('\n');
+        }
+        text.append("\nhistograms\n");
+        for (Histogram histogram : registry.getHistograms()) {
+            text.append("  ").append(histogram).append('\n');
+        }
+        tvMetrics.setText(text);
+    }
+
+    // hands the json dump to any app that takes text such as email or a file manager
+    private void shareJson() {
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_SUBJECT, "Currency Exchange metrics");
+        send.putExtra(Intent.EXTRA_TEXT, MetricsRegistry.getInstance().toJson());
+        startActivity(Intent.createChooser(send, "Share metrics"));
+    }
+
+    // writes the spans in the ring buffer as chrome trace event json
+    // pull it with adb and open it in ui.perfetto.dev or chrome://tracing
+    private void saveTrace() {
+        File folder = getExternalFilesDir(null);
+        if (folder == null) {
+            folder = getFilesDir();
+        }
+        File file = new File(folder, TRACE_FILE);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            Tracer.getInstance().writeChromeJson(out);
+            Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Toast.makeText(this, "Could not save trace", Toast.LENGTH_SHORT).show();
+        }
+    }
+}
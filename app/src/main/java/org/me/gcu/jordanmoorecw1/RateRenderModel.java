@@ -0,0 +1,108 @@
+package org.me.gcu.jordanmoorecw1;
+
+import org.me.gcu.jordanmoorecw1.format.RateFormatter;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.util.Arrays;
+
+// everything a row needs on screen worked out once per rate table on a background thread
+// arrays are indexed by table row so the adapter only copies prepared values into views
+final class RateRenderModel {
+
+    // colour bands from strongest to weakest compared to gbp
+    static final int BAND_STRONG = 0;
+    static final int BAND_MODERATE = 1;
+    static final int BAND_NEUTRAL = 2;
+    static final int BAND_WEAK = 3;
+    static final int BAND_VERY_WEAK = 4;
+    static final int BAND_COUNT = 5;
+
+    // model with no rows
+    static final RateRenderModel EMPTY = new RateRenderModel(RateTable.EMPTY,
+            new char[0], new int[0], new byte[0], new byte[0], new int[0], new String[0]);
+
+    // table the values were made from
+    final RateTable table;
+
+    // rate text of every row one after another
+    // a row is handed to TextView.setText(char[], int, int) so binding makes no strings
+    final char[] rateChars;
+
+    // where the text of each row starts in rateChars and how long it is
+    final int[] rateStarts;
+    final byte[] rateLengths;
+
+    // colour band of each row
+    final byte[] bands;
+
+    // flag drawable of each row or 0 when there is none
+    final int[] flags;
+
+    // subtitle of each row which is the metadata display name or the feed code without one
+    final String[] names;
+
+    private RateRenderModel(RateTable table, char[] rateChars, int[] rateStarts,
+                            byte[] rateLengths, byte[] bands, int[] flags, String[] names) {
+        this.table = table;
+        this.rateChars = rateChars;
+        this.rateStarts = rateStarts;
+        this.rateLengths = rateLengths;
+        this.bands = bands;
+        this.flags = flags;
+        this.names = names;
+    }
+
+    // builds the model for every row of a table with the digits the formatter has for each currency
+    // does all the formatting so call it off the main thread on the thread that owns the formatter
+    static RateRenderModel build(RateTable table, RateFormatter formatter) {
+        int size = table.size();
+        char[] rateChars = new char[size * 16];
+        int[] rateStarts = new int[size];
+        byte[] rateLengths = new byte[size];
+        byte[] bands = new byte[size];
+        int[] flags = new int[size];
+        String[] names = new String[size];
+
+        int used = 0;
+        for (int row = 0; row < size; row++) {
+            long units = table.getUnits(row);
+            int scale = table.getScale(row);
+            int length = formatter.formatFor(table.getId(row), units, scale);
+            if (used + length > rateChars.length) {
+                rateChars = Arrays.copyOf(rateChars, Math.max(rateChars.length * 2, used + length));
+            }
+            rateStarts[row] = used;
+            rateLengths[row] = (byte) formatter.copyTo(rateChars, used);
+            used += length;
+            bands[row] = (byte) bandOf(units, scale);
+
+            int id = table.getId(row);
+            boolean known = id >= 0 && id < CurrencyMetadata.COUNT;
+            flags[row] = known ? CurrencyMetadata.FLAGS[id] : 0;
+            names[row] = known ? CurrencyMetadata.DISPLAY_NAMES[id] : table.getCode(row);
+        }
+
+        return new RateRenderModel(table, rateChars, rateStarts, rateLengths, bands, flags, names);
+    }
+
+    // simple colour band based on how large the rate is
+    // the limits are in tenths so a rate sitting exactly on one always lands in the same band
+    static int bandOf(long units, int scale) {
+        if (FixedDecimal.compare(units, scale, 15, 1) >= 0) {
+            // strong currency compared to gbp
+            return BAND_STRONG;
+        } else if (FixedDecimal.compare(units, scale, 11, 1) >= 0) {
+            // a bit stronger than gbp
+            return BAND_MODERATE;
+        } else if (FixedDecimal.compare(units, scale, 9, 1) >= 0) {
+            // close to one to one
+            return BAND_NEUTRAL;
+        } else if (FixedDecimal.compare(units, scale, 5, 1) >= 0) {
+            // weaker than gbp
+            return BAND_WEAK;
+        }
+        // much weaker than gbp
+        return BAND_VERY_WEAK;
+    }
+}
@@ -1,5 +1,7 @@
 package org.me.gcu.jordanmoorecw1;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,26 +11,87 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.me.gcu.jordanmoorecw1.model.CurrencyRate;
+import org.me.gcu.jordanmoorecw1.format.RateFormatter;
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 // adapter that shows the list of currency rates in the recycler view
+// text colours and flags are prepared on a background thread so binding only copies values into views
+// new lists are diffed on the same thread so only rows that changed are rebound
 public class RatesAdapter extends RecyclerView.Adapter<RatesAdapter.RateViewHolder> {
 
-    // list of currency rate items currently shown
-    private final List<CurrencyRate> rates;
-    // reference to the activity for colours flags and bottom sheet
+    // payload sent when only the rate of a row changed
+    private static final Object PAYLOAD_RATE = new Object();
+
+    // rows bound and how long each bind took on the main thread
+    private static final Counter BINDS = MetricsRegistry.getInstance().counter("render.binds");
+    private static final Histogram BIND_TIME =
+            MetricsRegistry.getInstance().histogram("render.bind", Histogram.MICROS);
+    // building a render model on the background thread
+    private static final Histogram MODEL_TIME =
+            MetricsRegistry.getInstance().histogram("render.model_build", Histogram.MICROS);
+    // from a new list being sent to it being applied on the main thread
+    private static final Histogram DELIVERY_TIME =
+            MetricsRegistry.getInstance().histogram("render.delivery", Histogram.MICROS);
+
+    // one background thread shared by every adapter for render models and list diffs
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // used to hand finished work back to the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // bumped for every new list so work that finishes after a newer list was sent is dropped
+    private int listGeneration;
+
+    // prepared values of the table the rows come from
+    private RateRenderModel model = RateRenderModel.EMPTY;
+    // rows of the table currently shown
+    private int[] rows = new int[0];
+
+    // trace of the refresh that sent the rows shown so their binds join it
+    private long rowsTraceId = Tracer.NO_TRACE;
+
+    // last model built on the background thread so a new list of the same table reuses it
+    // only touched on DIFF_EXECUTOR
+    private RateRenderModel preparedModel;
+
+    // writes the rate texts of new models in the locale of the screen
+    // only touched on DIFF_EXECUTOR
+    private final RateFormatter formatter = new RateFormatter(Locale.getDefault(), true);
+
+    // text and background colour of each band looked up once
+    private final int[] bandTextColors = new int[RateRenderModel.BAND_COUNT];
+    private final int[] bandBgColors = new int[RateRenderModel.BAND_COUNT];
+
+    // reference to the activity for the bottom sheet
     private final FragmentActivity activity;
 
-    public RatesAdapter(FragmentActivity activity, List<CurrencyRate> rates) {
+    // starts empty and shows rows once the first updateList has been prepared
+    public RatesAdapter(FragmentActivity activity) {
         this.activity = activity;
-        // make a copy so we do not change the original list passed in
-        this.rates = new ArrayList<>(rates);
+        setBandColors(RateRenderModel.BAND_STRONG, R.color.rate_strong, R.color.rate_bg_strong);
+        setBandColors(RateRenderModel.BAND_MODERATE, R.color.rate_moderate, R.color.rate_bg_moderate);
+        setBandColors(RateRenderModel.BAND_NEUTRAL, R.color.rate_neutral, R.color.rate_bg_neutral);
+        setBandColors(RateRenderModel.BAND_WEAK, R.color.rate_weak, R.color.rate_bg_weak);
+        setBandColors(RateRenderModel.BAND_VERY_WEAK, R.color.rate_very_weak, R.color.rate_bg_very_weak);
+        // currency ids never change for a currency so rows keep their views across updates
+        setHasStableIds(true);
+    }
+
+    private void setBandColors(int band, int textColorRes, int bgColorRes) {
+        bandTextColors[band] = ContextCompat.getColor(activity, textColorRes);
+        bandBgColors[band] = ContextCompat.getColor(activity, bgColorRes);
     }
 
     @NonNull
@@ -37,164 +100,190 @@ public class RatesAdapter extends RecyclerView.Adapter<RatesAdapter.RateViewHold
         // inflate one row view from xml
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_rate, parent, false);
-        return new RateViewHolder(view);
+        RateViewHolder holder = new RateViewHolder(view);
+
+        // one click listener per holder that looks up whatever row it shows when tapped
+        view.setOnClickListener(vw -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            // when user taps a row open the converter bottom sheet for that currency
+            ConverterBottomSheet bottomSheet =
+                    ConverterBottomSheet.newInstance(model.table.getIsoCode(rows[position]));
+            bottomSheet.show(activity.getSupportFragmentManager(), "converter");
+        });
+        return holder;
     }
 
     @Override
-    public void onBindViewHolder(@NonNull RateViewHolder holder, int position) {
-        CurrencyRate rate = rates.get(position);
-
-        // set basic text values
-        holder.tvTitle.setText(rate.getTitle());
-        holder.tvSubtitle.setText(rate.getCode());
-        holder.tvRate.setText(String.format(Locale.US, "%.4f", rate.getRate()));
-
-        // simple colour logic based on how large the rate is
-        double value = rate.getRate();
-        int textColor;
-        int bgColor;
-
-        if (value >= 1.5) {
-            // strong currency compared to gbp
-            textColor = ContextCompat.getColor(activity, R.color.rate_strong);
-            bgColor = ContextCompat.getColor(activity, R.color.rate_bg_strong);
-        } else if (value >= 1.1) {
-            // a bit stronger than gbp
-            textColor = ContextCompat.getColor(activity, R.color.rate_moderate);
-            bgColor = ContextCompat.getColor(activity, R.color.rate_bg_moderate);
-        } else if (value >= 0.9) {
-            // close to one to one
-            textColor = ContextCompat.getColor(activity, R.color.rate_neutral);
-            bgColor = ContextCompat.getColor(activity, R.color.rate_bg_neutral);
-        } else if (value >= 0.5) {
-            // weaker than gbp
-            textColor = ContextCompat.getColor(activity, R.color.rate_weak);
-            bgColor = ContextCompat.getColor(activity, R.color.rate_bg_weak);
+    public void onBindViewHolder(@NonNull RateViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        Tracer tracer = Tracer.getInstance();
+        long startNanos = tracer.begin("RatesAdapter.bind");
+        if (!payloads.isEmpty() && allRatePayloads(payloads)) {
+            // only the rate moved so the text and flag stay as they are
+            bindRate(holder, rows[position]);
         } else {
-            // much weaker than gbp
-            textColor = ContextCompat.getColor(activity, R.color.rate_very_weak);
-            bgColor = ContextCompat.getColor(activity, R.color.rate_bg_very_weak);
+            onBindViewHolder(holder, position);
         }
+        tracer.end("RatesAdapter.bind", startNanos, rowsTraceId);
+        BINDS.increment();
+        BIND_TIME.recordSince(startNanos);
+    }
 
-        holder.tvRate.setTextColor(textColor);
-        holder.itemView.setBackgroundColor(bgColor);
+    @Override
+    public void onBindViewHolder(@NonNull RateViewHolder holder, int position) {
+        int row = rows[position];
+        RateTable table = model.table;
+
+        // titles are shared registry strings and names come from the metadata table
+        // so nothing is built here
+        holder.tvTitle.setText(table.getTitle(row));
+        holder.tvSubtitle.setText(model.names[row]);
+        bindRate(holder, row);
 
-        // choose the right flag image for this currency
-        int flagRes = getFlagResource(rate.getCode());
+        int flagRes = model.flags[row];
         if (flagRes != 0) {
             holder.imgFlag.setVisibility(View.VISIBLE);
             holder.imgFlag.setImageResource(flagRes);
         } else {
             holder.imgFlag.setVisibility(View.INVISIBLE);
         }
+    }
 
-        // when user taps a row open the converter bottom sheet for that currency
-        holder.itemView.setOnClickListener(vw -> {
-            ConverterBottomSheet bottomSheet =
-                    ConverterBottomSheet.newInstance(rate.getCode(), rate.getRate());
-            bottomSheet.show(activity.getSupportFragmentManager(), "converter");
-        });
+    // sets the prepared rate text and the colours of its band
+    private void bindRate(RateViewHolder holder, int row) {
+        int band = model.bands[row];
+        holder.tvRate.setText(model.rateChars, model.rateStarts[row], model.rateLengths[row]);
+        holder.tvRate.setTextColor(bandTextColors[band]);
+        holder.itemView.setBackgroundColor(bandBgColors[band]);
     }
 
     @Override
     public int getItemCount() {
-        return rates.size();
+        return rows.length;
     }
 
-    // replaces the current list with a new one and refreshes the recycler view
-    public void updateList(List<CurrencyRate> newList) {
-        rates.clear();
-        rates.addAll(newList);
-        notifyDataSetChanged();
+    @Override
+    public long getItemId(int position) {
+        return model.table.getId(rows[position]);
     }
 
-    // helper that works out the flag drawable name from the currency code text
-    // i do not know a better way to do this
-    private int getFlagResource(String currencyCode) {
-        if (currencyCode == null || currencyCode.isEmpty()) {
-            return 0;
-        }
+    // shows the given rows of a table
+    // the render model and the diff against the rows on screen are worked out in the background
+    // and only changed rows are rebound
+    public void updateList(RateTable newTable, int[] newRows) {
+        int generation = ++listGeneration;
+        RateRenderModel oldModel = model;
+        int[] oldRows = rows;
+        long sentNanos = System.nanoTime();
+        Tracer tracer = Tracer.getInstance();
+        long traceId = tracer.currentTraceId();
+
+        DIFF_EXECUTOR.execute(() -> {
+            RateRenderModel newModel = preparedModel;
+            if (newModel == null || newModel.table != newTable) {
+                long buildStart = tracer.begin("RateRenderModel.build");
+                newModel = RateRenderModel.build(newTable, formatter);
+                tracer.end("RateRenderModel.build", buildStart, traceId);
+                MODEL_TIME.recordSince(buildStart);
+                preparedModel = newModel;
+            }
+            RateRenderModel built = newModel;
+
+            if (oldRows.length == 0 || newRows.length == 0) {
+                // nothing to compare so swap in one go
+                mainHandler.post(() -> {
+                    if (generation != listGeneration) {
+                        return;
+                    }
+                    long applyStart = tracer.begin("RatesAdapter.apply");
+                    model = built;
+                    rows = newRows;
+                    rowsTraceId = traceId;
+                    notifyDataSetChanged();
+                    tracer.end("RatesAdapter.apply", applyStart, traceId);
+                    DELIVERY_TIME.recordSince(sentNanos);
+                });
+                return;
+            }
 
-        String baseCode = getString(currencyCode);
-
-        // map three letter code to a two letter flag name
-        String drawableCode;
-        switch (baseCode) {
-            case "GBP": drawableCode = "gb"; break;
-            case "USD": drawableCode = "us"; break;
-            case "EUR": drawableCode = "eu"; break;
-            case "JPY": drawableCode = "jp"; break;
-            case "AUD": drawableCode = "au"; break;
-            case "CAD": drawableCode = "ca"; break;
-            case "CHF": drawableCode = "ch"; break;
-            case "CNY": drawableCode = "cn"; break;
-            case "NZD": drawableCode = "nz"; break;
-            case "SEK": drawableCode = "se"; break;
-            case "NOK": drawableCode = "no"; break;
-            case "DKK": drawableCode = "dk"; break;
-            case "CZK": drawableCode = "cz"; break;
-            case "PLN": drawableCode = "pl"; break;
-            case "HUF": drawableCode = "hu"; break;
-            case "RON": drawableCode = "ro"; break;
-            case "BGN": drawableCode = "bg"; break;
-            case "MXN": drawableCode = "mx"; break;
-            case "BRL": drawableCode = "br"; break;
-            case "ARS": drawableCode = "ar"; break;
-            case "CLP": drawableCode = "cl"; break;
-            case "COP": drawableCode = "co"; break;
-            case "AED": drawableCode = "ae"; break;
-            case "SAR": drawableCode = "sa"; break;
-            case "EGP": drawableCode = "eg"; break;
-            case "ZAR": drawableCode = "za"; break;
-            case "ILS": drawableCode = "il"; break;
-            case "KWD": drawableCode = "kw"; break;
-            case "QAR": drawableCode = "qa"; break;
-            case "INR": drawableCode = "in"; break;
-            case "SGD": drawableCode = "sg"; break;
-            case "HKD": drawableCode = "hk"; break;
-            case "KRW": drawableCode = "kr"; break;
-            case "THB": drawableCode = "th"; break;
-            case "MYR": drawableCode = "my"; break;
-            case "TWD": drawableCode = "tw"; break;
-            case "PHP": drawableCode = "ph"; break;
-            case "IDR": drawableCode = "id"; break;
-            case "VND": drawableCode = "vn"; break;
-            case "PKR": drawableCode = "pk"; break;
-            case "TRY": drawableCode = "tr"; break;
-            case "RUB": drawableCode = "ru"; break;
-            case "BDT": drawableCode = "bd"; break;
-            case "XDR": drawableCode = "un"; break;
-            default:
-                // last fallback is first two letters of the base code
-                if (baseCode.length() >= 2) {
-                    drawableCode = baseCode.substring(0, 2).toLowerCase(Locale.ROOT);
-                } else {
-                    drawableCode = baseCode.toLowerCase(Locale.ROOT);
+            long diffStart = tracer.begin("DiffUtil.calculateDiff");
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new RowsDiff(oldModel.table, oldRows, newTable, newRows));
+            tracer.end("DiffUtil.calculateDiff", diffStart, traceId);
+            mainHandler.post(() -> {
+                // a newer list was sent while this one was being prepared
+                if (generation != listGeneration) {
+                    return;
                 }
-                break;
-        }
+                long applyStart = tracer.begin("RatesAdapter.apply");
+                model = built;
+                rows = newRows;
+                rowsTraceId = traceId;
+                result.dispatchUpdatesTo(this);
+                tracer.end("RatesAdapter.apply", applyStart, traceId);
+                DELIVERY_TIME.recordSince(sentNanos);
+            });
+        });
+    }
 
-        return activity.getResources()
-                .getIdentifier(drawableCode, "drawable", activity.getPackageName());
+    private static boolean allRatePayloads(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_RATE) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    @NonNull
-    private static String getString(String currencyCode) {
-        String upper = currencyCode.toUpperCase(Locale.ROOT);
-
-        // first try to get a three letter code from inside brackets
-        String baseCode;
-        int open = upper.lastIndexOf('(');
-        int close = upper.lastIndexOf(')');
-        if (open >= 0 && close > open + 1) {
-            baseCode = upper.substring(open + 1, close).trim();
-        } else if (upper.length() >= 3) {
-            // fallback to first three letters
-            baseCode = upper.substring(0, 3);
-        } else {
-            baseCode = upper;
+    // compares two sets of rows by currency id
+    private static final class RowsDiff extends DiffUtil.Callback {
+        private final RateTable oldTable;
+        private final int[] oldRows;
+        private final RateTable newTable;
+        private final int[] newRows;
+
+        RowsDiff(RateTable oldTable, int[] oldRows, RateTable newTable, int[] newRows) {
+            this.oldTable = oldTable;
+            this.oldRows = oldRows;
+            this.newTable = newTable;
+            this.newRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldRows.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newRows.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldTable.getId(oldRows[oldPosition]) == newTable.getId(newRows[newPosition]);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            // titles come from the registry so they only need the same reference
+            int oldRow = oldRows[oldPosition];
+            int newRow = newRows[newPosition];
+            return oldTable.getUnits(oldRow) == newTable.getUnits(newRow)
+                    && oldTable.getScale(oldRow) == newTable.getScale(newRow)
+                    && oldTable.getTitle(oldRows[oldPosition]) == newTable.getTitle(newRows[newPosition]);
+        }
+
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            if (oldTable.getTitle(oldRows[oldPosition]) == newTable.getTitle(newRows[newPosition])) {
+                return PAYLOAD_RATE;
+            }
+            return null;
         }
-        return baseCode;
     }
 
     // holder for one row in the recycler view
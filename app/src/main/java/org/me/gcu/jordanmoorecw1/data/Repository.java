@@ -4,129 +4,832 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import org.me.gcu.jordanmoorecw1.App;
+import org.me.gcu.jordanmoorecw1.BuildConfig;
 import org.me.gcu.jordanmoorecw1.RssParser;
-import org.me.gcu.jordanmoorecw1.model.CurrencyRate;
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.model.MultiBaseRates;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 // class that loads and stores currency rates
+// whatever the process already holds is served straight away and then checked with the server
+// there is one repository per process and callers that ask while a fetch is running share its result
+// screens follow the rates through the snapshot stream which gets one event per change
 public class Repository {
 
     // interface used to send data back to the view model
     public interface DataCallback {
-        void onSuccess(List<CurrencyRate> rates, String updatedTime);
+        // new rates to show
+        // the table is shared and never changes so it can be kept without copying
+        // stale is true when they are older than the fresh window and are being revalidated
+        void onSuccess(RateTable rates, String updatedTime, boolean stale);
+
+        // the server confirmed the rates already sent are still current
+        default void onStillValid(String updatedTime) {
+        }
+
         void onError(String errorMsg);
+
+        // called once after the last update of a fetch
+        default void onFinished() {
+        }
+    }
+
+    // told about every answer from the server whoever asked for it
+    // called on the repository thread
+    public interface FeedCheckListener {
+        // changed is false when the server confirmed the rates already held
+        void onFeedChecked(RateSnapshot snapshot, boolean changed);
     }
 
-    // executor that runs work on a background thread
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // how long a snapshot counts as fresh before it is revalidated
+    private static final long FRESH_FOR_MS = 15L * 60L * 1000L;
+
+    // the one repository of this process
+    private static Repository instance;
+
+    // snapshots served from memory and from the disk and loads that found nothing at all
+    private static final Counter MEMORY_HITS =
+            MetricsRegistry.getInstance().counter("cache.memory_hits");
+    private static final Counter DISK_HITS = MetricsRegistry.getInstance().counter("cache.disk_hits");
+    private static final Counter MISSES = MetricsRegistry.getInstance().counter("cache.misses");
+    // age of every snapshot served from memory or disk
+    private static final Histogram STALENESS =
+            MetricsRegistry.getInstance().histogram("cache.staleness", Histogram.SECONDS);
+    private static final Histogram READ_TIME =
+            MetricsRegistry.getInstance().histogram("cache.read", Histogram.MICROS);
+    private static final Histogram WRITE_TIME =
+            MetricsRegistry.getInstance().histogram("cache.write", Histogram.MICROS);
+
+    // whole revalidations from asking the sources to having every waiter answered
+    private static final Histogram REFRESH_TIME =
+            MetricsRegistry.getInstance().histogram("refresh.duration", Histogram.MICROS);
+    private static final Counter REFRESH_CHANGED =
+            MetricsRegistry.getInstance().counter("refresh.changed");
+    private static final Counter REFRESH_UNCHANGED =
+            MetricsRegistry.getInstance().counter("refresh.unchanged");
+    private static final Counter REFRESH_FAILED =
+            MetricsRegistry.getInstance().counter("refresh.failed");
+
+    // cold start from the application being created to the saved or seed rates being published
+    private static final Histogram FIRST_DATA_TIME =
+            MetricsRegistry.getInstance().histogram("startup.first_data", Histogram.MICROS);
+
+    // background thread for every fetch
+    // it lives as long as the process so screens and rotations never start or leak threads
+    private final ExecutorService executor;
+
+    // guards the callers waiting on the fetch that is running
+    private final Object flightLock = new Object();
+
+    // callers waiting on the running fetch or null when no fetch is running
+    private List<Waiter> waiters;
 
-    // helper that downloads the rss feed xml text
-    private final FeedFetcher feedFetcher = new FeedFetcher();
+    // true when any waiter asked for the server even if the cache is fresh
+    private boolean flightForced;
 
-    // parser that turns xml text into currency rate objects
+    // waiters of the fetch that just ended which still have to be told it finished
+    // only touched on the repository thread
+    private final List<Waiter> finishedWaiters = new ArrayList<>();
+
+    // listeners told about every answer from the server
+    private final List<FeedCheckListener> checkListeners = new CopyOnWriteArrayList<>();
+
+    // events for the screens with the rates and where they came from
+    private final SnapshotStream snapshots = new SnapshotStream();
+
+    // callback for callers that only follow the snapshot stream
+    private static final DataCallback STREAM_ONLY = new DataCallback() {
+        @Override
+        public void onSuccess(RateTable rates, String updatedTime, boolean stale) {
+        }
+
+        @Override
+        public void onError(String errorMsg) {
+        }
+    };
+
+    // http layer shared by every feed source so connections are pooled together
+    private final FeedTransport transport;
+
+    // loads the feed from the healthiest source and hedges with the others when it is slow
+    private final HedgedFeedFetcher feedFetcher;
+
+    // other base currencies whose own feeds are loaded alongside gbp
+    // their direct quotes back the converter so it does not have to go through gbp
+    // none by default so a refresh and the background worker only download the gbp feed
+    // until the converter asks for a pair through setBaseCurrencies
+    private static final List<String> DEFAULT_EXTRA_BASES = Collections.emptyList();
+
+    // loads the feeds of the extra bases in parallel while the gbp feed is revalidated
+    // only replaced on the repository thread and read by merges on the download threads
+    private volatile MultiBaseFetcher baseFetcher;
+
+    // quotes of the extra bases merged after every fetch
+    // sent to the screens inside the snapshot events
+    private volatile MultiBaseRates multiBaseRates = MultiBaseRates.EMPTY;
+
+    // parser that turns the xml into currency rate objects
+    // it keeps no state so the fetch and the legacy migration can share it
     private final RssParser parser = new RssParser();
 
-    // name of the shared preferences file used for cache
-    private static final String PREFS_NAME = "feed_cache";
+    // name of the old shared preferences file that held the raw xml
+    private static final String LEGACY_PREFS_NAME = "feed_cache";
 
-    // key used to store the last xml feed string
-    private static final String KEY_LAST_FEED = "last_feed";
+    // key the old cache stored the xml feed string under
+    private static final String LEGACY_KEY_LAST_FEED = "last_feed";
 
-    // tries to read cached data before using the network
-    // returns true when cache was used
-    private boolean tryUseCachedDataFirst(DataCallback callback) {
-        SharedPreferences prefs = App.getInstance()
-                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String cachedXml = prefs.getString(KEY_LAST_FEED, "");
+    // name of the binary snapshot file inside the app files folder
+    private static final String SNAPSHOT_FILE = "rates_snapshot.bin";
 
-        if (cachedXml == null || cachedXml.isEmpty()) {
-            return false;
+    // binary cache of the last parsed feed
+    private final SnapshotStore snapshotStore;
+
+    // false for a repository made in a test without the app
+    // it then only reads its own store and keeps no history
+    private final boolean appFiles;
+
+    // seed snapshot made at build time and shipped in the apk assets
+    private static final String SEED_ASSET = "seed_snapshot.bin";
+
+    // name of the folder inside the app files folder that holds the rate history
+    private static final String HISTORY_DIR = "rate_history";
+
+    // log of every downloaded feed opened the first time it is needed
+    private static RateHistoryStore historyStore;
+
+    // latest snapshot held by this process
+    // kept by the one repository so rotations and new screens can show it in their first frame
+    private volatile RateSnapshot memorySnapshot;
+
+    // a caller waiting on the running fetch
+    private static final class Waiter {
+        final DataCallback callback;
+        // snapshot this caller has already been sent or null when it has nothing yet
+        // only changed while holding flightLock
+        RateSnapshot shown;
+
+        Waiter(DataCallback callback, RateSnapshot shown) {
+            this.callback = callback;
+            this.shown = shown;
+        }
+    }
+
+    private Repository() {
+        this(new FeedTransport());
+    }
+
+    private Repository(FeedTransport transport) {
+        this(transport, new HedgedFeedFetcher(feedSources(transport)),
+                new SnapshotStore(new File(App.getInstance().getFilesDir(), SNAPSHOT_FILE)),
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "rates-repository");
+                    thread.setDaemon(true);
+                    return thread;
+                }), true);
+    }
+
+    // lets tests hand in fake sources a temporary store and an executor they can wait on
+    Repository(FeedTransport transport, HedgedFeedFetcher feedFetcher, SnapshotStore snapshotStore,
+               ExecutorService executor, boolean appFiles) {
+        this.transport = transport;
+        this.feedFetcher = feedFetcher;
+        this.snapshotStore = snapshotStore;
+        this.executor = executor;
+        this.appFiles = appFiles;
+        baseFetcher = MultiBaseFetcher.forFxExchange(DEFAULT_EXTRA_BASES, transport);
+    }
+
+    // the main feed and the mirror set by feedMirrorUrl in gradle.properties when there is one
+    // the mirror is checked like any source so a feed quoted against another base counts as failed
+    // it is named after its host so validators saved from one mirror never go to another
+    private static List<FeedSource> feedSources(FeedTransport transport) {
+        List<FeedSource> sources = new ArrayList<>();
+        sources.add(new RssFeedSource("fx-exchange", FeedFetcher.FEED_URL, transport));
+        String mirrorUrl = BuildConfig.FEED_MIRROR_URL;
+        if (!mirrorUrl.isEmpty()) {
+            sources.add(new RssFeedSource(URI.create(mirrorUrl).getHost(), mirrorUrl, transport));
         }
+        return sources;
+    }
+
+    // returns the shared repository and makes it the first time
+    public static synchronized Repository getInstance() {
+        if (instance == null) {
+            instance = new Repository();
+        }
+        return instance;
+    }
 
+    // stream of snapshot events that screens subscribe to
+    public SnapshotStream getSnapshots() {
+        return snapshots;
+    }
+
+    // changes which extra base feeds are loaded with every fetch
+    // a new set is loaded straight away so the converter does not wait for the next refresh
+    // and no codes stops loading them so later refreshes only download gbp again
+    // gbp is always loaded by the main fetch so it is left out here
+    // runs on the repository thread so a batch that is running finishes with the old set
+    public void setBaseCurrencies(String... isoCodes) {
+        List<String> bases = new ArrayList<>();
+        for (String isoCode : isoCodes) {
+            String base = isoCode.toUpperCase(Locale.ROOT);
+            if (!base.equals("GBP") && !bases.contains(base)) {
+                bases.add(base);
+            }
+        }
+        executor.execute(() -> {
+            // the same currencies in any order are already loaded
+            if (new HashSet<>(bases).equals(new HashSet<>(baseFetcher.getBases()))) {
+                return;
+            }
+            baseFetcher.shutdown();
+            baseFetcher = MultiBaseFetcher.forFxExchange(bases, transport);
+            startBaseFeeds();
+        });
+    }
+
+    // loads the saved snapshot on the repository thread while the first screen is being made
+    // so the screen gets rates from the stream as soon as it subscribes
+    // a fetch asked for in the meantime runs after this on the same thread
+    public void warmUp() {
+        executor.execute(() -> {
+            if (memorySnapshot != null) {
+                return;
+            }
+            RateSnapshot cached = loadCachedSnapshot();
+            if (cached == null) {
+                return;
+            }
+            synchronized (flightLock) {
+                if (memorySnapshot != null) {
+                    return;
+                }
+                memorySnapshot = cached;
+                snapshots.publish(SnapshotEvent.of(cached, SnapshotEvent.Source.CACHE,
+                        !isFresh(cached), waiters != null, multiBaseRates));
+            }
+            FIRST_DATA_TIME.recordSince(App.getCreatedAtNanos());
+            // the converter needs the cross rates of this table so make them now
+            cached.getFeed().getRates().getCrossRates();
+        });
+    }
+
+    // starts a fetch whose result only goes to the snapshot stream
+    // nothing is fetched when the rates held are fresh and force refresh is false
+    public void fetchRates(boolean forceRefresh) {
+        fetchRates(forceRefresh, STREAM_ONLY);
+    }
+
+    // loads currency rates serving any snapshot in memory first
+    // the snapshot is revalidated in the background when it is stale or when force refresh is true
+    // a second update is only sent when the server has different rates
+    // a caller that asks while a fetch is running joins it instead of starting another download
+    // the fetch runs under the trace of the caller and one that has none such as the worker gets a new one
+    public void fetchRates(boolean forceRefresh, DataCallback callback) {
+        Tracer tracer = Tracer.getInstance();
+        long traceId = tracer.currentTraceId();
+        if (traceId == Tracer.NO_TRACE) {
+            traceId = tracer.newTraceId();
+        }
+        long previousTrace = tracer.attach(traceId);
+        long spanStart = tracer.begin("Repository.fetchRates");
         try {
-            List<CurrencyRate> cachedRates = parser.parse(cachedXml);
-            if (cachedRates != null && !cachedRates.isEmpty()) {
-                String lastUpdatedFromCache = parser.getLastUpdated();
-                String label = (lastUpdatedFromCache != null && !lastUpdatedFromCache.isEmpty())
-                        ? lastUpdatedFromCache + " (from cache)"
-                        : "(cached data)";
-
-                callback.onSuccess(cachedRates, label);
-                return true;
+            startOrJoinFetch(forceRefresh, callback, traceId);
+        } finally {
+            tracer.end("Repository.fetchRates", spanStart);
+            tracer.attach(previousTrace);
+        }
+    }
+
+    private void startOrJoinFetch(boolean forceRefresh, DataCallback callback, long traceId) {
+        boolean startFetch = false;
+
+        synchronized (flightLock) {
+            // serve what this process already holds without waiting for the fetch
+            // sent while holding the lock so it always arrives before the fetch result
+            // the view model callbacks only post values so this never blocks
+            RateSnapshot inMemory = memorySnapshot;
+            boolean fresh = inMemory != null && isFresh(inMemory);
+            if (inMemory != null) {
+                recordHit(MEMORY_HITS, inMemory);
+                deliver(inMemory, !fresh, callback);
+                if (fresh && !forceRefresh) {
+                    callback.onFinished();
+                    return;
+                }
             }
+
+            if (waiters == null) {
+                waiters = new ArrayList<>();
+                flightForced = false;
+                startFetch = true;
+
+                // tell the screens the rates they show are being checked
+                SnapshotEvent shownEvent = snapshots.getLatest();
+                if (shownEvent != null && shownEvent.getRates() == memoryRates()) {
+                    snapshots.publish(shownEvent.withRefreshing(true));
+                }
+            } else {
+                // the trace of the fetch already running carries on without this one
+                Tracer.getInstance().mark("Repository.joinFetch");
+            }
+            addWaiter(callback, inMemory);
+            flightForced |= forceRefresh;
+        }
+
+        if (startFetch) {
+            executor.execute(() -> runFetch(traceId));
+        }
+    }
+
+    // adds a caller to the running fetch
+    // a callback that is already waiting is kept once so it only gets one result
+    private void addWaiter(DataCallback callback, RateSnapshot shown) {
+        for (Waiter waiter : waiters) {
+            if (waiter.callback == callback) {
+                if (shown != null) {
+                    waiter.shown = shown;
+                }
+                return;
+            }
+        }
+        waiters.add(new Waiter(callback, shown));
+    }
+
+    // adds a listener that hears about every answer from the server
+    public void addFeedCheckListener(FeedCheckListener listener) {
+        checkListeners.add(listener);
+    }
+
+    public void removeFeedCheckListener(FeedCheckListener listener) {
+        checkListeners.remove(listener);
+    }
+
+    // the one fetch every waiting caller shares
+    // runs under the trace of the caller that started it
+    private void runFetch(long traceId) {
+        Tracer tracer = Tracer.getInstance();
+        long previousTrace = tracer.attach(traceId);
+        long spanStart = tracer.begin("Repository.runFetch");
+        try {
+            if (memorySnapshot == null) {
+                // nothing in memory yet so the disk snapshot is the quickest thing to show
+                RateSnapshot cached = loadCachedSnapshot();
+                if (cached != null && serveCached(cached)) {
+                    return;
+                }
+            }
+
+            // the extra bases download and merge on their own threads while gbp is revalidated
+            // so nothing on this thread ever waits for them
+            if (!baseFetcher.getBases().isEmpty()) {
+                startBaseFeeds();
+            }
+
+            long startNanos = System.nanoTime();
+            revalidate();
+            REFRESH_TIME.recordSince(startNanos);
+
         } catch (Exception e) {
             e.printStackTrace();
+            // if something goes wrong here then fall back to cached data
+            failed();
+        } finally {
+            // every waiter has had its last update so tell them the fetch is over
+            for (Waiter waiter : finishedWaiters) {
+                waiter.callback.onFinished();
+            }
+            finishedWaiters.clear();
+            tracer.end("Repository.runFetch", spanStart);
+            tracer.attach(previousTrace);
         }
+    }
 
-        return false;
+    // starts the feeds of the extra bases sending the validators of the rows already held
+    // the batch merges itself from the download thread that finishes it last
+    private void startBaseFeeds() {
+        MultiBaseFetcher fetcher = baseFetcher;
+        List<String> bases = fetcher.getBases();
+        MultiBaseRates held = multiBaseRates;
+        RateSnapshot[] known = new RateSnapshot[bases.size()];
+        for (int i = 0; i < known.length; i++) {
+            int row = held.baseRowOf(bases.get(i));
+            known[i] = row >= 0 ? held.getSnapshot(row) : null;
+        }
+        long traceId = Tracer.getInstance().currentTraceId();
+        fetcher.start(known).whenDone(outcomes -> mergeBaseFeeds(fetcher, outcomes, traceId));
     }
 
-    // loads currency rates either from cache or from the network
-    // when force refresh is true it skips the cache and goes to the network
-    public void fetchRates(boolean forceRefresh, DataCallback callback) {
-        executor.execute(() -> {
-            try {
-                if (!forceRefresh) {
-                    // try cached data first when not forcing refresh
-                    boolean usedCache = tryUseCachedDataFirst(callback);
-                    if (usedCache) {
-                        return;
-                    }
+    // merges the extra bases into a new matrix for the screens
+    // runs on a download thread under the trace of the fetch that started the batch
+    // a base that failed or timed out keeps the row it had before
+    // a batch of a set that has since been replaced is dropped so it cannot bring old bases back
+    // gbp is left out since the table the screens show already quotes every gbp pair
+    private void mergeBaseFeeds(MultiBaseFetcher fetcher, MultiBaseFetcher.Outcome[] outcomes,
+                                long traceId) {
+        Tracer tracer = Tracer.getInstance();
+        long previousTrace = tracer.attach(traceId);
+        long startNanos = tracer.begin("Repository.mergeBaseFeeds");
+        // held under the lock so two batches finishing together cannot lose each other's rows
+        synchronized (flightLock) {
+            if (fetcher != baseFetcher) {
+                tracer.end("Repository.mergeBaseFeeds", startNanos);
+                tracer.attach(previousTrace);
+                return;
+            }
+            mergeLocked(outcomes);
+        }
+        tracer.end("Repository.mergeBaseFeeds", startNanos);
+        tracer.attach(previousTrace);
+    }
+
+    // builds and publishes the merged matrix while holding flightLock
+    private void mergeLocked(MultiBaseFetcher.Outcome[] outcomes) {
+        try {
+            MultiBaseRates held = multiBaseRates;
+
+            MultiBaseRates.Builder merged = new MultiBaseRates.Builder();
+            for (MultiBaseFetcher.Outcome outcome : outcomes) {
+                int row = held.baseRowOf(outcome.getBase());
+                RateSnapshot previous = row >= 0 ? held.getSnapshot(row) : null;
+                switch (outcome.getStatus()) {
+                    case OK:
+                        // stamped with when its own download finished so bases compare fairly
+                        FeedResult result = outcome.getResult();
+                        merged.put(outcome.getBase(), new RateSnapshot(result.getFeed(),
+                                outcome.getFetchedAtMs(), result.getEtag(),
+                                result.getLastModified(), result.getSourceName()));
+                        break;
+                    case NOT_MODIFIED:
+                        merged.put(outcome.getBase(),
+                                previous.withFetchedAtMs(outcome.getFetchedAtMs()));
+                        break;
+                    default:
+                        merged.put(outcome.getBase(), previous);
+                        break;
+                }
+            }
+            MultiBaseRates built = merged.build();
+            multiBaseRates = built;
+            SnapshotEvent shownEvent = snapshots.getLatest();
+            if (shownEvent != null) {
+                snapshots.publish(shownEvent.withBases(built));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // sends the disk snapshot to every waiter that has nothing yet
+    // returns true when it is fresh and no waiter forced a refresh so the fetch can stop here
+    private boolean serveCached(RateSnapshot cached) {
+        boolean fresh = isFresh(cached);
+        synchronized (flightLock) {
+            if (memorySnapshot == null) {
+                memorySnapshot = cached;
+            }
+            boolean done = fresh && !flightForced;
+            snapshots.publish(SnapshotEvent.of(cached, SnapshotEvent.Source.CACHE, !fresh, !done,
+                    multiBaseRates));
+            for (Waiter waiter : waiters) {
+                if (waiter.shown == null) {
+                    deliver(cached, !fresh, waiter.callback);
+                    waiter.shown = cached;
                 }
+            }
+            if (done) {
+                finishedWaiters.addAll(waiters);
+                waiters = null;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // ends the running fetch and returns everyone that was waiting on it
+    // a caller that asks after this starts a new fetch
+    private List<Waiter> finishFlight() {
+        synchronized (flightLock) {
+            List<Waiter> done = waiters != null ? waiters : Collections.<Waiter>emptyList();
+            waiters = null;
+            finishedWaiters.addAll(done);
+            return done;
+        }
+    }
 
-                // fetch data from the network
-                String xmlData = feedFetcher.fetchFeed();
+    // asks the server for the feed and sends an update only when the rates changed
+    // each waiter is compared against the snapshot it was already sent
+    private void revalidate() throws Exception {
+        // only ask for a 304 when we hold the rates the validators belong to
+        // and only from the source that made them which the fetcher sorts out
+        RateSnapshot known = memorySnapshot;
+        boolean conditional = known != null && known.hasValidators();
 
-                if (xmlData == null || xmlData.isEmpty()) {
-                    // if network fails then try cached data
-                    useCachedData(callback);
-                    return;
+        // ask the sources on the network
+        FeedResult result = feedFetcher.fetch(known);
+
+        if (result == null) {
+            // if every source failed then try cached data
+            failed();
+            return;
+        }
+
+        if (result.isNotModified()) {
+            // the known rates are still valid so skip the download parse and cache write
+            if (!conditional) {
+                failed();
+                return;
+            }
+            REFRESH_UNCHANGED.increment();
+            RateSnapshot confirmed = known.withFetchedAtMs(System.currentTimeMillis());
+            memorySnapshot = confirmed;
+            snapshots.publish(SnapshotEvent.of(confirmed,
+                    SnapshotEvent.Source.NOT_MODIFIED, false, false, multiBaseRates));
+            notifyChecked(confirmed, false);
+            for (Waiter waiter : finishFlight()) {
+                deliverRevalidated(waiter.shown, confirmed, waiter.callback);
+            }
+            return;
+        }
+
+        // sources only hand back feeds that have rates in them
+        ParsedFeed parsedFeed = result.getFeed();
+        boolean changed = known == null || !sameRates(known.getFeed(), parsedFeed);
+        if (!changed) {
+            // same rates as before so keep the table the screens already have
+            parsedFeed = known.getFeed();
+            REFRESH_UNCHANGED.increment();
+        } else {
+            REFRESH_CHANGED.increment();
+        }
+
+        // keep these rates and their validators for the next conditional request
+        // with the source that made the validators so they are only sent back there
+        RateSnapshot snapshot = new RateSnapshot(parsedFeed,
+                System.currentTimeMillis(),
+                result.getEtag(), result.getLastModified(), result.getSourceName());
+        memorySnapshot = snapshot;
+        snapshots.publish(SnapshotEvent.of(snapshot, SnapshotEvent.Source.NETWORK, false, false,
+                multiBaseRates));
+
+        // save the parsed snapshot so we can use it offline later
+        // nothing is written when the server sent back exactly what we already had
+        if (known == null || !sameContent(known, snapshot)) {
+            try {
+                writeSnapshot(snapshot);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        // add the new rates to the history used by trend views
+        if (changed) {
+            try {
+                RateHistoryStore history = appFiles ? getHistory() : null;
+                if (history != null) {
+                    history.append(snapshot.getFetchedAtMs(), parsedFeed.getRates());
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
 
-                // parse the xml into a list of rates
-                List<CurrencyRate> parsedRates = parser.parse(xmlData);
-                String lastUpdated = parser.getLastUpdated();
+        notifyChecked(snapshot, changed);
 
-                if (parsedRates != null && !parsedRates.isEmpty()) {
-                    // save the raw xml text so we can use it offline later
-                    SharedPreferences prefs = App.getInstance()
-                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-                    prefs.edit().putString(KEY_LAST_FEED, xmlData).apply();
+        for (Waiter waiter : finishFlight()) {
+            deliverRevalidated(waiter.shown, snapshot, waiter.callback);
+        }
+    }
 
-                    // send parsed data back through the callback
-                    callback.onSuccess(parsedRates, lastUpdated);
-                } else {
-                    callback.onError("Parsed feed returned no valid results.");
+    // ends a fetch where no source gave usable rates
+    // the screens keep what they have with an error or get the disk snapshot when they have nothing
+    private void failed() {
+        REFRESH_FAILED.increment();
+        SnapshotEvent shownEvent = snapshots.getLatest();
+        if (shownEvent != null && !shownEvent.getRates().isEmpty()) {
+            snapshots.publish(shownEvent.withError("Could not refresh, showing saved rates."));
+        } else {
+            RateSnapshot cached = memorySnapshot != null ? memorySnapshot : loadCachedSnapshot();
+            if (cached != null) {
+                if (memorySnapshot == null) {
+                    memorySnapshot = cached;
                 }
+                snapshots.publish(SnapshotEvent.of(cached, SnapshotEvent.Source.CACHE,
+                        !isFresh(cached), false, multiBaseRates));
+            } else {
+                snapshots.publish(SnapshotEvent.failed(
+                        "No internet connection and no cached data available."));
+            }
+        }
 
+        for (Waiter waiter : finishFlight()) {
+            networkFailed(waiter.shown, waiter.callback);
+        }
+    }
+
+    // table of the snapshot held in memory or null when there is none
+    private RateTable memoryRates() {
+        RateSnapshot held = memorySnapshot;
+        return held != null ? held.getFeed().getRates() : null;
+    }
+
+    // tells the listeners about an answer from the server
+    private void notifyChecked(RateSnapshot snapshot, boolean changed) {
+        for (FeedCheckListener listener : checkListeners) {
+            try {
+                listener.onFeedChecked(snapshot, changed);
             } catch (Exception e) {
                 e.printStackTrace();
-                // if something goes wrong here then fall back to cached data
-                useCachedData(callback);
             }
-        });
+        }
+    }
+
+    // gets the rate history store or null when it could not be opened
+    // queries read the disk so call them off the main thread
+    public static synchronized RateHistoryStore getHistory() {
+        if (historyStore == null) {
+            try {
+                historyStore = new RateHistoryStore(
+                        new File(App.getInstance().getFilesDir(), HISTORY_DIR));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return historyStore;
+    }
+
+    // sends the result of a revalidation
+    // the rates are only sent again when they differ from the ones already shown
+    private void deliverRevalidated(RateSnapshot shown, RateSnapshot latest,
+                                    DataCallback callback) {
+        if (shown != null && sameRates(shown.getFeed(), latest.getFeed())) {
+            callback.onStillValid(latest.getFeed().getLastUpdated());
+        } else {
+            deliver(latest, false, callback);
+        }
+    }
+
+    // called when the network could not give us new rates
+    // a caller that already has rates keeps them and one that has none gets the cache or an error
+    private void networkFailed(RateSnapshot shown, DataCallback callback) {
+        if (shown != null) {
+            callback.onError("Could not refresh, showing saved rates.");
+        } else {
+            useCachedData(callback);
+        }
     }
+
+    // sends a snapshot to the callback
+    // stale snapshots are labelled as coming from the cache
+    private void deliver(RateSnapshot snapshot, boolean stale, DataCallback callback) {
+        String feedTime = snapshot.getFeed().getLastUpdated();
+        String label;
+        if (!stale) {
+            label = feedTime;
+        } else if (!feedTime.isEmpty()) {
+            label = feedTime + " (from cache)";
+        } else {
+            label = "(cached data)";
+        }
+
+        callback.onSuccess(snapshot.getFeed().getRates(), label, stale);
+    }
+
+    // true while a snapshot is inside the fresh window
+    private static boolean isFresh(RateSnapshot snapshot) {
+        long age = System.currentTimeMillis() - snapshot.getFetchedAtMs();
+        return age >= 0 && age < FRESH_FOR_MS;
+    }
+
+    // true when two snapshots hold the same rates and the same validators from the same source
+    private static boolean sameContent(RateSnapshot a, RateSnapshot b) {
+        return sameRates(a.getFeed(), b.getFeed())
+                && Objects.equals(a.getEtag(), b.getEtag())
+                && Objects.equals(a.getLastModified(), b.getLastModified())
+                && Objects.equals(a.getSourceName(), b.getSourceName());
+    }
+
+    // true when two feeds have the same published date and the same rates in the same order
+    private static boolean sameRates(ParsedFeed a, ParsedFeed b) {
+        return a.getLastUpdated().equals(b.getLastUpdated())
+                && a.getRates().sameRates(b.getRates());
+    }
+
+    // reads the snapshot file
+    // a fresh install falls back to the seed in the apk
+    // returns null when there is no usable cache
+    private RateSnapshot loadCachedSnapshot() {
+        Tracer tracer = Tracer.getInstance();
+        long startNanos = tracer.begin("Repository.loadCachedSnapshot");
+        RateSnapshot cached;
+        try {
+            cached = snapshotStore.read();
+            if (cached == null && appFiles) {
+                cached = migrateLegacyCache();
+            }
+            if (cached == null && appFiles) {
+                cached = loadSeedSnapshot();
+            }
+        } finally {
+            tracer.end("Repository.loadCachedSnapshot", startNanos);
+        }
+        READ_TIME.recordSince(startNanos);
+        if (cached == null || cached.getFeed().isEmpty()) {
+            MISSES.increment();
+            return null;
+        }
+        recordHit(DISK_HITS, cached);
+        return cached;
+    }
+
+    // writes the snapshot file and times it
+    private void writeSnapshot(RateSnapshot snapshot) throws IOException {
+        Tracer tracer = Tracer.getInstance();
+        long startNanos = tracer.begin("SnapshotStore.write");
+        try {
+            snapshotStore.write(snapshot);
+        } finally {
+            tracer.end("SnapshotStore.write", startNanos);
+        }
+        WRITE_TIME.recordSince(startNanos);
+    }
+
+    // counts a snapshot served from a cache and how old it was
+    // the seed and migrated snapshots have no fetch time so only their hit is counted
+    private static void recordHit(Counter hits, RateSnapshot snapshot) {
+        hits.increment();
+        if (snapshot.getFetchedAtMs() > 0) {
+            STALENESS.record((System.currentTimeMillis() - snapshot.getFetchedAtMs()) / 1_000L);
+        }
+    }
+
+    // reads the seed snapshot from the apk assets
+    // its fetched time is 0 so it always counts as stale and is checked with the server
+    private RateSnapshot loadSeedSnapshot() {
+        try (InputStream in = App.getInstance().getAssets().open(SEED_ASSET)) {
+            return SnapshotStore.read(in);
+        } catch (IOException e) {
+            // no seed in this build
+            return null;
+        }
+    }
+
+    // converts xml left in shared preferences by older versions into a snapshot file
+    // this is the last time that xml is parsed and the old entry is removed afterwards
+    private RateSnapshot migrateLegacyCache() {
+        SharedPreferences prefs = App.getInstance()
+                .getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        String cachedXml = prefs.getString(LEGACY_KEY_LAST_FEED, "");
+        if (cachedXml == null || cachedXml.isEmpty()) {
+            return null;
+        }
+
+        RateSnapshot migrated = null;
+        try {
+            ParsedFeed legacyFeed = parser.parse(cachedXml);
+            if (!legacyFeed.isEmpty()) {
+                migrated = new RateSnapshot(legacyFeed, 0L, null, null);
+                snapshotStore.write(migrated);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        prefs.edit().remove(LEGACY_KEY_LAST_FEED).apply();
+        return migrated;
+    }
+
     // used when there is no internet connection
     private void useCachedData(DataCallback callback) {
         try {
-            SharedPreferences prefs = App.getInstance()
-                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String cachedXml = prefs.getString(KEY_LAST_FEED, "");
-
-            if (!cachedXml.isEmpty()) {
-                List<CurrencyRate> cachedRates = parser.parse(cachedXml);
-                if (cachedRates != null && !cachedRates.isEmpty()) {
-                    String lastUpdatedFromCache = parser.getLastUpdated();
-                    String label = (lastUpdatedFromCache != null && !lastUpdatedFromCache.isEmpty())
-                            ? lastUpdatedFromCache + " (from cache)"
-                            : "(cached data)";
-
-                    callback.onSuccess(cachedRates, label);
-                    return;
+            RateSnapshot cached = memorySnapshot != null ? memorySnapshot : loadCachedSnapshot();
+            if (cached != null) {
+                if (memorySnapshot == null) {
+                    memorySnapshot = cached;
                 }
+                deliver(cached, true, callback);
+                return;
             }
 
             callback.onError("No internet connection and no cached data available.");
@@ -0,0 +1,133 @@
+package org.me.gcu.jordanmoorecw1.refresh;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import org.me.gcu.jordanmoorecw1.data.Repository;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+// keeps one background refresh queued in work manager
+// every answer from the server teaches the cadence when the feed is published
+// and the next refresh is moved to just after the publish it expects next
+public final class RefreshScheduler implements Repository.FeedCheckListener {
+
+    // unique name of the queued refresh so there is never more than one
+    static final String WORK_NAME = "rates-refresh";
+
+    // shared preferences file that holds the learned cadence
+    private static final String PREFS_NAME = "refresh_cadence";
+    private static final String KEY_LAST_PUBLISHED = "last_published_ms";
+    private static final String KEY_INTERVAL = "interval_ms";
+    private static final String KEY_UNCHANGED = "unchanged_checks";
+
+    private static RefreshScheduler instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+
+    // learned publish cadence guarded by this
+    private final PublishCadence cadence;
+
+    // true while the refresh worker is running
+    // it queues its own follow up so checks made for it must not replace it
+    private boolean workerRunning;
+
+    // true when the server answered while the worker was running
+    private boolean checkedDuringWork;
+
+    private RefreshScheduler(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        cadence = new PublishCadence(
+                prefs.getLong(KEY_LAST_PUBLISHED, 0L),
+                prefs.getLong(KEY_INTERVAL, 0L),
+                prefs.getInt(KEY_UNCHANGED, 0));
+    }
+
+    // returns the shared scheduler and makes it the first time
+    public static synchronized RefreshScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new RefreshScheduler(context);
+        }
+        return instance;
+    }
+
+    // listens to the repository and makes sure a refresh is queued
+    // a refresh that is already queued is kept
+    public void start() {
+        Repository.getInstance().addFeedCheckListener(this);
+        enqueue(ExistingWorkPolicy.KEEP);
+    }
+
+    // called on the repository thread whenever the server answered
+    @Override
+    public void onFeedChecked(RateSnapshot snapshot, boolean changed) {
+        boolean queueNow;
+        synchronized (this) {
+            cadence.record(PublishCadence.parsePubDate(snapshot.getFeed().getLastUpdated()));
+            save();
+            checkedDuringWork = true;
+            queueNow = !workerRunning;
+        }
+        if (queueNow) {
+            // a refresh from the screen moves the queued one to the new expected publish
+            enqueue(ExistingWorkPolicy.REPLACE);
+        }
+    }
+
+    // called by the worker before it fetches
+    synchronized void onWorkStarted() {
+        workerRunning = true;
+        checkedDuringWork = false;
+    }
+
+    // called by the worker once its fetch is over
+    // queues the next refresh to run after this one finishes
+    void onWorkFinished() {
+        synchronized (this) {
+            workerRunning = false;
+            if (!checkedDuringWork) {
+                // no source answered so back off like a check that found nothing new
+                cadence.record(0L);
+                save();
+            }
+        }
+        enqueue(ExistingWorkPolicy.APPEND_OR_REPLACE);
+    }
+
+    // queues a refresh for just after the next expected publish
+    // it only runs with a network and when the battery is not low
+    private void enqueue(ExistingWorkPolicy policy) {
+        long delayMs;
+        synchronized (this) {
+            delayMs = cadence.nextDelayMs(System.currentTimeMillis());
+        }
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(RefreshWorker.class)
+                .setInitialDelay(delayMs, TimeUnit.MILLISECONDS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(appContext).enqueueUniqueWork(WORK_NAME, policy, request);
+    }
+
+    // writes the cadence so it survives the process being killed
+    private void save() {
+        prefs.edit()
+                .putLong(KEY_LAST_PUBLISHED, cadence.getLastPublishedMs())
+                .putLong(KEY_INTERVAL, cadence.getIntervalMs())
+                .putInt(KEY_UNCHANGED, cadence.getUnchangedChecks())
+                .apply();
+    }
+}
@@ -0,0 +1,58 @@
+package org.me.gcu.jordanmoorecw1.refresh;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import org.me.gcu.jordanmoorecw1.data.Repository;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// background refresh run by work manager
+// asks the server through the shared repository so it joins any fetch the screen already started
+public class RefreshWorker extends Worker {
+
+    // longest the worker waits for the repository before giving up on this run
+    private static final long FETCH_TIMEOUT_SECONDS = 60L;
+
+    public RefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        RefreshScheduler scheduler = RefreshScheduler.getInstance(getApplicationContext());
+        scheduler.onWorkStarted();
+
+        CountDownLatch finished = new CountDownLatch(1);
+        try {
+            // the repository keeps the result and tells the scheduler and any open screen about it
+            Repository.getInstance().fetchRates(true, new Repository.DataCallback() {
+                @Override
+                public void onSuccess(RateTable rates, String updatedTime, boolean stale) {
+                }
+
+                @Override
+                public void onError(String errorMsg) {
+                }
+
+                @Override
+                public void onFinished() {
+                    finished.countDown();
+                }
+            });
+            finished.await(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the next run is queued by the scheduler so this one always counts as done
+            scheduler.onWorkFinished();
+        }
+        return Result.success();
+    }
+}
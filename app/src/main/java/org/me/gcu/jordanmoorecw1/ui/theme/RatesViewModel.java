@@ -1,63 +1,89 @@
 package org.me.gcu.jordanmoorecw1.ui.theme;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import org.me.gcu.jordanmoorecw1.data.Repository;
-import org.me.gcu.jordanmoorecw1.model.CurrencyRate;
-
-import java.util.List;
+import org.me.gcu.jordanmoorecw1.data.SnapshotStream;
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
 
 // view model that holds the currency data for the ui
 public class RatesViewModel extends ViewModel {
 
-    // live data for the list of currency rates
-    private final MutableLiveData<List<CurrencyRate>> rates = new MutableLiveData<>();
-
-    // live data for the last updated text from the feed
-    private final MutableLiveData<String> lastUpdated = new MutableLiveData<>();
-
-    // live data for any error message
-    private final MutableLiveData<String> error = new MutableLiveData<>();
+    // latest snapshot event with the rates feed time source and any error together
+    private final MutableLiveData<SnapshotEvent> snapshot = new MutableLiveData<>();
 
     // repository that loads data from the network or cache
-    private final Repository repository = new Repository();
+    // shared by every view model so a rotation joins the fetch that is already running
+    private final Repository repository = Repository.getInstance();
 
-    // returns the live list of currency rates
-    public LiveData<List<CurrencyRate>> getRates() {
-        return rates;
+    // events are handed over on the main thread and only the newest waiting one is kept
+    private final SnapshotStream.Subscription subscription;
+
+    public RatesViewModel() {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        subscription = repository.getSnapshots().subscribe(mainHandler::post, this::publish);
     }
 
-    // returns the live last updated text
-    public LiveData<String> getLastUpdated() {
-        return lastUpdated;
+    // hands an event to the observers under the trace of the refresh that published it
+    // setValue calls the observers straight away so the screen work joins that trace too
+    private void publish(SnapshotEvent event) {
+        Tracer tracer = Tracer.getInstance();
+        long previousTrace = tracer.attach(event.getTraceId());
+        long spanStart = tracer.begin("RatesViewModel.setValue");
+        try {
+            snapshot.setValue(event);
+        } finally {
+            tracer.end("RatesViewModel.setValue", spanStart);
+            tracer.attach(previousTrace);
+        }
     }
 
+    // returns the live snapshot event
+    public LiveData<SnapshotEvent> getSnapshot() {
+        return snapshot;
+    }
 
     // fetches data using the repository
-    // when force refresh is true it skips the cache and goes straight to the network
+    // when force refresh is true the server is asked even if the rates shown are fresh
+    // the result arrives through the snapshot event
     public void fetchRates(boolean forceRefresh) {
-        repository.fetchRates(forceRefresh, new Repository.DataCallback() {
-            @Override
-            public void onSuccess(List<CurrencyRate> newRates, String updatedTime) {
-                // update live data with the new values
-                rates.postValue(newRates);
-                lastUpdated.postValue(updatedTime);
-                error.postValue(null);
-            }
-
-            @Override
-            public void onError(String errorMsg) {
-                // send error message to the ui
-                error.postValue(errorMsg);
-            }
-        });
-    }
-
-    // helper used by pull to refresh and first app load
-    // always tries to fetch new data when possible
+        Tracer tracer = Tracer.getInstance();
+        long spanStart = tracer.begin("RatesViewModel.fetchRates");
+        try {
+            // calls made while a fetch is running join it instead of downloading again
+            repository.fetchRates(forceRefresh);
+        } finally {
+            tracer.end("RatesViewModel.fetchRates", spanStart);
+        }
+    }
+
+    // loads the feeds of these base currencies alongside gbp so their pairs are quoted directly
+    // called with nothing to stop loading any
+    public void setBaseCurrencies(String... isoCodes) {
+        repository.setBaseCurrencies(isoCodes);
+    }
+
+    // helper used by pull to refresh
+    // always checks with the server even when the rates shown are fresh
     public void refreshRates() {
         fetchRates(true);
     }
+
+    // helper used when the screen opens
+    // shows saved rates straight away and only checks with the server when they are stale
+    public void loadRates() {
+        fetchRates(false);
+    }
+
+    @Override
+    protected void onCleared() {
+        // the repository outlives this view model so stop its events
+        subscription.close();
+    }
 }
@@ -0,0 +1,18 @@
+package org.me.gcu.jordanmoorecw1;
+
+import androidx.work.Configuration;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+// the app with a test work manager set up before App.onCreate queues the background refresh
+public class TestApp extends App {
+
+    @Override
+    public void onCreate() {
+        Configuration config = new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(this, config);
+        super.onCreate();
+    }
+}
@@ -0,0 +1,262 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// callers sharing one fetch and stale rates being served before they are checked
+// runs without the app using a fake source a temporary store and an executor the test can drain
+public class RepositoryTest {
+
+    private static final String FEED_TIME = "Fri, 16 Oct 2026 09:00:00 GMT";
+    private static final long HOUR_MS = 60L * 60L * 1000L;
+
+    private File directory;
+    private SnapshotStore store;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("repository").toFile();
+        store = new SnapshotStore(new File(directory, "snapshot.bin"));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File left : files) {
+                left.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void callersThatAskTogetherShareOneDownload() throws Exception {
+        FakeSource source = new FakeSource(feed(1234));
+        Repository repository = repository(source);
+
+        int count = 8;
+        Recorder[] recorders = new Recorder[count];
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Recorder recorder = new Recorder();
+            recorders[i] = recorder;
+            Thread caller = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                repository.fetchRates(false, recorder);
+            });
+            caller.start();
+            callers.add(caller);
+        }
+        go.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        // every caller has joined while the download is still held up
+        source.release.countDown();
+        drain();
+
+        assertEquals(1, source.calls.get());
+        for (Recorder recorder : recorders) {
+            assertEquals(Arrays.asList("success", "finished"), recorder.events);
+        }
+    }
+
+    @Test
+    public void aCallbackThatAsksTwiceIsOnlyToldOnce() throws Exception {
+        FakeSource source = new FakeSource(feed(1234));
+        Repository repository = repository(source);
+        Recorder recorder = new Recorder();
+
+        repository.fetchRates(false, recorder);
+        repository.fetchRates(true, recorder);
+        source.release.countDown();
+        drain();
+
+        assertEquals(1, source.calls.get());
+        assertEquals(Arrays.asList("success", "finished"), recorder.events);
+    }
+
+    @Test
+    public void aFreshDiskSnapshotIsServedWithoutTheNetwork() throws Exception {
+        store.write(new RateSnapshot(feed(1234), System.currentTimeMillis(), null, null));
+        FakeSource source = new FakeSource(feed(1234));
+        source.release.countDown();
+        Recorder recorder = new Recorder();
+
+        repository(source).fetchRates(false, recorder);
+        drain();
+
+        assertEquals(0, source.calls.get());
+        assertEquals(Arrays.asList("success", "finished"), recorder.events);
+    }
+
+    @Test
+    public void aCallerThatForcesARefreshTakesAFreshDiskSnapshotToTheNetwork() throws Exception {
+        store.write(new RateSnapshot(feed(1234), System.currentTimeMillis(), null, null));
+        FakeSource source = new FakeSource(feed(1234));
+        source.release.countDown();
+        Repository repository = repository(source);
+        Recorder first = new Recorder();
+        Recorder forcing = new Recorder();
+
+        // hold the repository thread so the forcing caller joins before the disk is read
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        repository.fetchRates(false, first);
+        repository.fetchRates(true, forcing);
+        gate.countDown();
+        drain();
+
+        assertEquals(1, source.calls.get());
+        // both were sent the disk snapshot and then told the server still has it
+        assertEquals(Arrays.asList("success", "valid", "finished"), first.events);
+        assertEquals(Arrays.asList("success", "valid", "finished"), forcing.events);
+    }
+
+    @Test
+    public void staleRatesThatAreStillCurrentAreOnlyConfirmed() throws Exception {
+        long fetchedAtMs = System.currentTimeMillis() - HOUR_MS;
+        store.write(new RateSnapshot(feed(1234), fetchedAtMs, null, null));
+        FakeSource source = new FakeSource(feed(1234));
+        source.release.countDown();
+        Recorder recorder = new Recorder();
+
+        repository(source).fetchRates(false, recorder);
+        drain();
+
+        assertEquals(1, source.calls.get());
+        assertEquals(Arrays.asList("stale success", "valid", "finished"), recorder.events);
+    }
+
+    @Test
+    public void staleRatesThatChangedAreSentAgain() throws Exception {
+        long fetchedAtMs = System.currentTimeMillis() - HOUR_MS;
+        store.write(new RateSnapshot(feed(1234), fetchedAtMs, null, null));
+        ParsedFeed changed = feed(1240);
+        FakeSource source = new FakeSource(changed);
+        source.release.countDown();
+        Recorder recorder = new Recorder();
+
+        repository(source).fetchRates(false, recorder);
+        drain();
+
+        assertEquals(Arrays.asList("stale success", "success", "finished"), recorder.events);
+        assertSame(changed.getRates(), recorder.lastRates);
+    }
+
+    private Repository repository(FeedSource source) {
+        return new Repository(new FeedTransport(),
+                new HedgedFeedFetcher(Collections.singletonList(source)), store, executor, false);
+    }
+
+    // waits for everything already queued on the repository thread
+    // the callbacks of a fetch are all made before its task ends
+    private void drain() throws Exception {
+        executor.submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    // gbp feed with one usd rate of the given units at scale 3
+    private static ParsedFeed feed(long usdUnits) {
+        int id = CurrencyRegistry.getInstance().intern("REPOSITORYTESTDOLLAR(RTD)",
+                "British Pound Sterling(GBP)/Repository Test Dollar(RTD)");
+        RateTable table = new RateTable.Builder().add(id, usdUnits, 3).build();
+        return new ParsedFeed(table, FEED_TIME);
+    }
+
+    // source that counts its downloads and holds each one until it is released
+    private static final class FakeSource implements FeedSource {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        private final ParsedFeed feed;
+
+        FakeSource(ParsedFeed feed) {
+            this.feed = feed;
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public FeedResult fetch(String ifNoneMatch, String ifModifiedSince, FeedCall call)
+                throws IOException {
+            calls.incrementAndGet();
+            try {
+                if (!release.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("never released");
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return FeedResult.of("fake", feed, null, null);
+        }
+    }
+
+    // writes down every callback in the order it came
+    private static final class Recorder implements Repository.DataCallback {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        volatile RateTable lastRates;
+
+        @Override
+        public void onSuccess(RateTable rates, String updatedTime, boolean stale) {
+            lastRates = rates;
+            events.add(stale ? "stale success" : "success");
+        }
+
+        @Override
+        public void onStillValid(String updatedTime) {
+            events.add("valid");
+        }
+
+        @Override
+        public void onError(String errorMsg) {
+            events.add("error " + errorMsg);
+        }
+
+        @Override
+        public void onFinished() {
+            events.add("finished");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// rate logic with no android dependencies
+// it builds and tests on a plain jvm and carries the jmh benchmarks
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // android has the xmlpull api built in so only the jvm builds need kxml2
+    compileOnly(libs.kxml2)
+    testImplementation(libs.junit)
+    testImplementation(libs.kxml2)
+    jmhImplementation(libs.kxml2)
+}
+
+// the benchmarks read the same fixture feed as the tests
+sourceSets.named("jmh") {
+    resources.srcDir("src/test/resources")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // run part of the suite with -PjmhInclude=SearchBenchmark
+    providers.gradleProperty("jmhInclude").orNull?.let { includes.add(it) }
+    // add profilers such as -PjmhProfilers=gc to record bytes allocated per call
+    providers.gradleProperty("jmhProfilers").orNull?.let { profilers.addAll(it.split(",")) }
+    // results are json so runs from two releases can be compared
+    // name each run with -PjmhTag=1.2.0 to keep it next to the others
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file(
+        providers.gradleProperty("jmhTag").orElse("latest").map { "results/jmh/$it.json" }))
+}
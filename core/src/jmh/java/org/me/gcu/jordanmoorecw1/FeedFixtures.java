@@ -0,0 +1,102 @@
+package org.me.gcu.jordanmoorecw1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+// feeds the benchmarks run against
+// the fixture is a copy of the real gbp feed and the synthetic feeds are the fixture
+// followed by generated items so every item has its own currency code
+public final class FeedFixtures {
+
+    // name of the real feed used as is
+    public static final String FIXTURE = "fixture";
+
+    private static final String FIXTURE_RESOURCE = "gbp_rss.xml";
+
+    // same seed every run so every run parses the same rates
+    private static final long SEED = 20251017L;
+
+    private FeedFixtures() {
+    }
+
+    // returns the fixture for "fixture" or a synthetic feed with that many items for a number
+    public static String load(String feed) {
+        String fixture = readFixture();
+        if (FIXTURE.equals(feed)) {
+            return fixture;
+        }
+        return synthetic(fixture, Integer.parseInt(feed));
+    }
+
+    // the fixture with generated items added until it holds the given number of items
+    private static String synthetic(String fixture, int itemCount) {
+        int firstItem = fixture.indexOf("<item>");
+        int afterLastItem = fixture.lastIndexOf("</item>") + "</item>".length();
+        String realItems = fixture.substring(firstItem, afterLastItem);
+        int realCount = realItems.split("<item>", -1).length - 1;
+
+        StringBuilder builder = new StringBuilder(fixture.length() + itemCount * 400);
+        builder.append(fixture, 0, afterLastItem).append('\n');
+
+        Random random = new Random(SEED);
+        int code = 0;
+        for (int added = realCount; added < itemCount; added++) {
+            String iso = nextCode(code++);
+            while (realItems.contains("(" + iso + ")")) {
+                iso = nextCode(code++);
+            }
+            appendItem(builder, iso, 0.01 + random.nextDouble() * 500.0);
+        }
+        builder.append(fixture.substring(afterLastItem));
+        return builder.toString();
+    }
+
+    // three letter code for a number starting at AAA
+    private static String nextCode(int number) {
+        char[] letters = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            letters[i] = (char) ('A' + number % 26);
+            number /= 26;
+        }
+        return new String(letters);
+    }
+
+    // one item laid out the way the real feed writes them
+    private static void appendItem(StringBuilder builder, String iso, double rate) {
+        String name = "Synthetic Currency " + iso;
+        String lower = iso.toLowerCase(Locale.ROOT);
+        builder.append("<item>\n")
+                .append("<title>British Pound Sterling(GBP)/").append(name)
+                .append('(').append(iso).append(")</title>\n")
+                .append("<link>https://www.fx-exchange.com/gbp/").append(lower).append(".html</link>\n")
+                .append("<guid>https://www.fx-exchange.com/gbp/").append(lower).append(".html</guid>\n")
+                .append("<pubDate>Fri, 17 Oct 2025 10:00:04 GMT</pubDate>\n")
+                .append("<description>1 British Pound Sterling = ")
+                .append(String.format(Locale.US, "%.4f", rate))
+                .append(' ').append(name).append("</description>\n")
+                .append("<category>Synthetic</category>\n")
+                .append("</item>\n");
+    }
+
+    private static String readFixture() {
+        try (InputStream in = FeedFixtures.class.getClassLoader()
+                .getResourceAsStream(FIXTURE_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark fixture " + FIXTURE_RESOURCE);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + FIXTURE_RESOURCE, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.me.gcu.jordanmoorecw1;
+
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// parsing the feed from a string and from the downloaded bytes
+// the pull parser is measured too since it is what any feed the fast scanner rejects goes through
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RssParserBenchmark {
+
+    // the real feed then roughly the size of the live feed then a very large one
+    @Param({FeedFixtures.FIXTURE, "180", "5000"})
+    public String feed;
+
+    private final RssParser parser = new RssParser();
+
+    private String xml;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        xml = FeedFixtures.load(feed);
+        bytes = xml.getBytes(StandardCharsets.UTF_8);
+        // currencies are interned by the first parse so every measured parse finds them
+        parser.parse(xml);
+    }
+
+    @Benchmark
+    public ParsedFeed parseString() {
+        return parser.parse(xml);
+    }
+
+    // the path a download takes with the bytes decoded while they are scanned
+    @Benchmark
+    public ParsedFeed parseBytes() throws IOException {
+        return parser.parse(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ParsedFeed parsePullParser() throws IOException {
+        return parser.parseWithPullParser(new StringReader(xml), null);
+    }
+
+    // rates handed out one by one while the bytes are still being read
+    @Benchmark
+    public ParsedFeed extractRates(Blackhole blackhole) throws IOException {
+        return parser.parse(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8,
+                (id, units, scale) -> {
+                    blackhole.consume(id);
+                    blackhole.consume(units);
+                    blackhole.consume(scale);
+                });
+    }
+}
@@ -0,0 +1,47 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.FeedFixtures;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// turning a snapshot into the bytes of the snapshot file and back
+// the file itself is left out so the numbers do not depend on the disk
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+
+    @Param({FeedFixtures.FIXTURE, "180", "5000"})
+    public String feed;
+
+    private RateSnapshot snapshot;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = new RateSnapshot(new RssParser().parse(FeedFixtures.load(feed)),
+                System.currentTimeMillis(), "\"etag\"", "Fri, 17 Oct 2025 10:00:04 GMT");
+        bytes = SnapshotStore.encode(snapshot);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return SnapshotStore.encode(snapshot);
+    }
+
+    @Benchmark
+    public RateSnapshot decode() {
+        return SnapshotStore.decode(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,77 @@
+package org.me.gcu.jordanmoorecw1.format;
+
+import org.me.gcu.jordanmoorecw1.FeedFixtures;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// formatting every rate of a table the way the list does against the String.format it replaced
+// run with -PjmhProfilers=gc and compare the gc.alloc.rate.norm of each
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateFormatterBenchmark {
+
+    @Param({FeedFixtures.FIXTURE, "180", "5000"})
+    public String feed;
+
+    private final RateFormatter formatter = new RateFormatter(Locale.UK, true);
+
+    private RateTable table;
+    private char[] target;
+
+    @Setup
+    public void setUp() {
+        table = new RssParser().parse(FeedFixtures.load(feed)).getRates();
+        target = new char[64];
+    }
+
+    // grouped text written into the reused buffer and copied out as the render model does
+    @Benchmark
+    public int formatter() {
+        int total = 0;
+        for (int row = 0; row < table.size(); row++) {
+            formatter.formatFor(table.getId(row), table.getUnits(row), table.getScale(row));
+            total += formatter.copyTo(target, 0);
+        }
+        return total;
+    }
+
+    // what the list did before fixed point rates
+    @Benchmark
+    public void stringFormatDouble(Blackhole blackhole) {
+        for (int row = 0; row < table.size(); row++) {
+            blackhole.consume(String.format("%.4f", table.getRate(row)));
+        }
+    }
+
+    // the same grouped and exactly rounded text through String.format
+    @Benchmark
+    public void stringFormatGrouped(Blackhole blackhole) {
+        for (int row = 0; row < table.size(); row++) {
+            blackhole.consume(String.format(Locale.UK, "%,.4f",
+                    BigDecimal.valueOf(table.getUnits(row), table.getScale(row))));
+        }
+    }
+
+    // the plain text the render model built before the formatter
+    @Benchmark
+    public void plainString(Blackhole blackhole) {
+        for (int row = 0; row < table.size(); row++) {
+            blackhole.consume(FixedDecimal.toPlainString(table.getUnits(row), table.getScale(row)));
+        }
+    }
+}
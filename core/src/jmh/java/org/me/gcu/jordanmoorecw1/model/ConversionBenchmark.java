@@ -0,0 +1,97 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import org.me.gcu.jordanmoorecw1.FeedFixtures;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// converting between currencies in the converter and revaluing a portfolio when new rates arrive
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConversionBenchmark {
+
+    // number of from and to pairs converted per call
+    private static final int PAIRS = 1024;
+
+    @Param({FeedFixtures.FIXTURE, "180", "5000"})
+    public String feed;
+
+    private RateTable table;
+    private CrossRates crossRates;
+    private int[] fromSlots;
+    private int[] toSlots;
+
+    // the portfolio and two tables with every rate moved so each update recomputes every group
+    private PortfolioValuation portfolio;
+    private RateTable[] tables;
+    private int nextTable;
+
+    @Setup
+    public void setUp() {
+        table = new RssParser().parse(FeedFixtures.load(feed)).getRates();
+        crossRates = new CrossRates(table);
+
+        Random random = new Random(42L);
+        int slots = crossRates.size();
+        fromSlots = new int[PAIRS];
+        toSlots = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            fromSlots[i] = random.nextInt(slots);
+            toSlots[i] = random.nextInt(slots);
+        }
+
+        int[] ids = new int[table.size()];
+        long[] amounts = new long[table.size()];
+        RateTable.Builder moved = new RateTable.Builder(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            ids[row] = table.getId(row);
+            // 100.00 plus the row at scale 2
+            amounts[row] = 10_000L + row * 100L;
+            moved.add(table.getId(row), table.getUnits(row) + 1, table.getScale(row));
+        }
+        portfolio = new PortfolioValuation(ids, amounts, 2);
+        tables = new RateTable[]{table, moved.build()};
+    }
+
+    // the matrix rows are filled lazily so a new table starts from nothing
+    @Benchmark
+    public CrossRates buildCrossRates() {
+        return new CrossRates(table);
+    }
+
+    // 100.00 of each from currency converted from the two gbp rates and rounded to four places
+    // one 128 bit multiply divide per pair with no matrix row to fill
+    @Benchmark
+    public long convertPairs() {
+        long sum = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            sum += crossRates.convert(10_000L, 2, fromSlots[i], toSlots[i], 4,
+                    RoundingMode.HALF_EVEN);
+        }
+        return sum;
+    }
+
+    // pair rates read from a matrix row filled for a new table
+    @Benchmark
+    public long[] buildMatrixRow() {
+        return new CrossRates(table).row(fromSlots[0]);
+    }
+
+    @Benchmark
+    public long revaluePortfolio() {
+        nextTable ^= 1;
+        portfolio.update(tables[nextTable]);
+        return portfolio.total(PortfolioValuation.BASE_ID, 2);
+    }
+}
@@ -0,0 +1,55 @@
+package org.me.gcu.jordanmoorecw1.search;
+
+import org.me.gcu.jordanmoorecw1.FeedFixtures;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// building the search index for a new table and running the queries typed into the search box
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Table {
+
+        @Param({FeedFixtures.FIXTURE, "180", "5000"})
+        public String feed;
+
+        RateTable table;
+        SearchIndex index;
+
+        @Setup
+        public void setUp() {
+            table = new RssParser().parse(FeedFixtures.load(feed)).getRates();
+            index = SearchIndex.build(table);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        // an iso code then a word prefix then a country then a typo
+        @Param({"usd", "doll", "japan", "dollr"})
+        public String query;
+    }
+
+    @Benchmark
+    public SearchIndex buildIndex(Table state) {
+        return SearchIndex.build(state.table);
+    }
+
+    @Benchmark
+    public int[] search(Table state, Query query) {
+        return state.index.search(query.query, () -> false);
+    }
+}
@@ -0,0 +1,411 @@
+package org.me.gcu.jordanmoorecw1;
+
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// fast path parser for the fx exchange feed
+// it scans the raw characters for the few tags we use instead of running a full xml parser
+// as soon as it sees something it does not expect it gives up so the pull parser can take over
+final class FastRssScanner {
+
+    // starting size of the shared char buffer
+    private static final int INITIAL_BUFFER_CHARS = 16 * 1024;
+
+    // buffers bigger than this are dropped after use instead of being kept for the next scan
+    private static final int MAX_RETAINED_BUFFER_CHARS = 512 * 1024;
+
+    // longest code we expect after the slash in a title
+    private static final int MAX_CODE_CHARS = 64;
+
+    // returned by buildRate for an item the pull parser would also skip
+    private static final int SKIP = -2;
+
+    // returned by buildRate when the item does not match the expected shape
+    private static final int MISMATCH = -3;
+
+    // char buffer kept per thread so each refresh reuses the one from the last refresh
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<>();
+
+    // scratch space used to build a code without making substrings
+    private static final ThreadLocal<char[]> CODE_SCRATCH = new ThreadLocal<>();
+
+    // where the characters come from
+    private final Reader in;
+
+    // every character read so far lives here so the feed can be replayed on a fallback
+    private char[] buf;
+
+    // number of characters in the buffer
+    private int length;
+
+    // scan position inside the buffer
+    private int pos;
+
+    // true once the reader has no more characters
+    private boolean eof;
+
+    // how many rates have been given to the listener
+    private int emitted;
+
+    // rate of the item buildRate last accepted as fixed point units and scale
+    private long builtUnits;
+    private int builtScale;
+
+    FastRssScanner(Reader in) {
+        this.in = in;
+        char[] shared = BUFFERS.get();
+        // take the buffer away from the thread while we use it so a nested scan gets its own
+        BUFFERS.set(null);
+        this.buf = shared != null ? shared : new char[INITIAL_BUFFER_CHARS];
+    }
+
+    // scans the whole feed and returns the result
+    // returns null when the feed does not have the shape this scanner expects
+    ParsedFeed scan(RssParser.RateListener listener) throws IOException {
+        RateTable.Builder rates = new RateTable.Builder();
+        String lastUpdated = "";
+
+        boolean inItem = false;
+        int titleStart = -1;
+        int titleEnd = -1;
+        int descriptionStart = -1;
+        int descriptionEnd = -1;
+
+        while (true) {
+            int lt = indexOf('<', pos);
+            if (lt < 0) {
+                // only text left in the buffer so skip it and read more
+                pos = length;
+                if (!fill()) {
+                    break;
+                }
+                continue;
+            }
+
+            int gt = indexOf('>', lt + 1);
+            if (gt < 0) {
+                // the tag is cut off at the end of the buffer
+                pos = lt;
+                if (!fill()) {
+                    return null;
+                }
+                continue;
+            }
+
+            char first = buf[lt + 1];
+
+            if (first == '?') {
+                // xml prolog or processing instruction
+                pos = gt + 1;
+
+            } else if (first == '!') {
+                // comments are skipped but cdata and doctypes are left to the real parser
+                if (!startsWith(lt, "<!--")) {
+                    return null;
+                }
+                int end = indexOf("-->", lt + 4);
+                while (end < 0) {
+                    pos = lt;
+                    if (!fill()) {
+                        return null;
+                    }
+                    end = indexOf("-->", lt + 4);
+                }
+                pos = end + 3;
+
+            } else if (first == '/') {
+                // end tag so only the end of an item matters
+                if (inItem && nameEquals(lt + 2, trimEnd(lt + 2, gt), "item")) {
+                    int id = buildRate(titleStart, titleEnd,
+                            descriptionStart, descriptionEnd);
+                    if (id == MISMATCH) {
+                        return null;
+                    }
+                    if (id != SKIP) {
+                        rates.add(id, builtUnits, builtScale);
+                        emitted++;
+                        if (listener != null) {
+                            listener.onRate(id, builtUnits, builtScale);
+                        }
+                    }
+                    inItem = false;
+                    titleStart = titleEnd = descriptionStart = descriptionEnd = -1;
+                }
+                pos = gt + 1;
+
+            } else {
+                // start tag
+                int nameEnd = lt + 1;
+                while (nameEnd < gt && !isNameEnd(buf[nameEnd])) {
+                    nameEnd++;
+                }
+                boolean selfClosing = buf[gt - 1] == '/';
+
+                boolean isItem = nameEquals(lt + 1, nameEnd, "item");
+                boolean isPubDate = nameEquals(lt + 1, nameEnd, "pubDate");
+                boolean isTitle = inItem && nameEquals(lt + 1, nameEnd, "title");
+                boolean isDescription = inItem && nameEquals(lt + 1, nameEnd, "description");
+
+                if (isItem) {
+                    // nested or empty items are not part of this feed's format
+                    if (inItem || selfClosing) {
+                        return null;
+                    }
+                    inItem = true;
+                    pos = gt + 1;
+
+                } else if (isPubDate || isTitle || isDescription) {
+                    if (selfClosing) {
+                        return null;
+                    }
+
+                    // the text must run straight into the matching end tag
+                    int textStart = gt + 1;
+                    int textEnd = indexOf('<', textStart);
+                    int closeEnd = textEnd >= 0 ? indexOf('>', textEnd) : -1;
+                    while (closeEnd < 0) {
+                        pos = lt;
+                        if (!fill()) {
+                            return null;
+                        }
+                        textEnd = indexOf('<', textStart);
+                        closeEnd = textEnd >= 0 ? indexOf('>', textEnd) : -1;
+                    }
+
+                    if (buf[textEnd + 1] != '/'
+                            || !nameEquals(textEnd + 2, trimEnd(textEnd + 2, closeEnd),
+                            buf, lt + 1, nameEnd)
+                            || indexOf('&', textStart, textEnd) >= 0) {
+                        // nested markup or entities need the real parser
+                        return null;
+                    }
+
+                    if (isPubDate) {
+                        int start = trimStart(textStart, textEnd);
+                        lastUpdated = new String(buf, start, trimEnd(start, textEnd) - start);
+                    } else if (isTitle) {
+                        if (titleStart >= 0) {
+                            return null;
+                        }
+                        titleStart = textStart;
+                        titleEnd = textEnd;
+                    } else {
+                        if (descriptionStart >= 0) {
+                            return null;
+                        }
+                        descriptionStart = textStart;
+                        descriptionEnd = textEnd;
+                    }
+                    pos = closeEnd + 1;
+
+                } else {
+                    // any other tag is skipped
+                    pos = gt + 1;
+                }
+            }
+        }
+
+        // a feed that stops half way through an item is left to the real parser
+        if (inItem) {
+            return null;
+        }
+
+        return new ParsedFeed(rates.build(), lastUpdated);
+    }
+
+    // how many rates were handed to the listener before the scan stopped
+    int getEmittedCount() {
+        return emitted;
+    }
+
+    // reads the rest of the input and returns a reader over the whole feed from the start
+    // used when the scan gave up so the pull parser can read the same characters
+    Reader replay() throws IOException {
+        while (fill()) {
+            // keep reading until the end of the input
+        }
+        return new CharArrayReader(buf, 0, length);
+    }
+
+    // hands the buffer back to the thread so the next scan can reuse it
+    void release() {
+        if (buf.length <= MAX_RETAINED_BUFFER_CHARS) {
+            BUFFERS.set(buf);
+        }
+    }
+
+    // reads the currency and rate from the title and description ranges of an item
+    // returns the registry id and leaves the rate in builtUnits and builtScale
+    // returns SKIP for items the pull parser would also skip and MISMATCH for items it cannot handle
+    private int buildRate(int titleStart, int titleEnd,
+                          int descriptionStart, int descriptionEnd) {
+        char[] scratch = null;
+        int codeLength = 0;
+
+        if (titleStart >= 0) {
+            int slash = indexOf('/', titleStart, titleEnd);
+            if (slash >= 0) {
+                int segmentEnd = indexOf('/', slash + 1, titleEnd);
+                if (segmentEnd < 0) {
+                    segmentEnd = titleEnd;
+                }
+
+                // copy the code without spaces and in upper case
+                scratch = CODE_SCRATCH.get();
+                if (scratch == null) {
+                    scratch = new char[MAX_CODE_CHARS];
+                    CODE_SCRATCH.set(scratch);
+                }
+                for (int i = slash + 1; i < segmentEnd; i++) {
+                    char c = buf[i];
+                    if (c == ' ') {
+                        continue;
+                    }
+                    if (c < ' ' || c > '~' || codeLength == scratch.length) {
+                        return MISMATCH;
+                    }
+                    if (c >= 'a' && c <= 'z') {
+                        c = (char) (c - ('a' - 'A'));
+                    }
+                    scratch[codeLength++] = c;
+                }
+                if (codeLength == 0) {
+                    return MISMATCH;
+                }
+            }
+        }
+
+        long rateValue = 0L;
+        if (descriptionStart >= 0) {
+            int equals = indexOf('=', descriptionStart, descriptionEnd);
+            if (equals >= 0) {
+                int segmentEnd = indexOf('=', equals + 1, descriptionEnd);
+                if (segmentEnd < 0) {
+                    segmentEnd = descriptionEnd;
+                }
+                int start = trimStart(equals + 1, segmentEnd);
+                int end = trimEnd(start, segmentEnd);
+                int tokenEnd = indexOf(' ', start, end);
+                // the rate is read straight from the buffer into fixed point
+                rateValue = FixedDecimal.parse(buf, start, tokenEnd >= 0 ? tokenEnd : end);
+                if (rateValue == FixedDecimal.INVALID) {
+                    return MISMATCH;
+                }
+            }
+        }
+
+        if (scratch == null || FixedDecimal.units(rateValue) <= 0) {
+            return SKIP;
+        }
+
+        // the registry only makes strings the first time it sees a currency
+        builtUnits = FixedDecimal.units(rateValue);
+        builtScale = FixedDecimal.scale(rateValue);
+        return CurrencyRegistry.getInstance().intern(scratch, codeLength,
+                buf, titleStart, titleEnd);
+    }
+
+    // reads more characters into the buffer and grows it when it is full
+    // returns false at the end of the input
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (length == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int read = in.read(buf, length, buf.length - length);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        length += read;
+        return true;
+    }
+
+    private int indexOf(char c, int from) {
+        return indexOf(c, from, length);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String text, int from) {
+        int last = length - text.length();
+        for (int i = from; i <= last; i++) {
+            if (startsWith(i, text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int at, String text) {
+        if (at + text.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buf[at + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // compares a tag name in the buffer with a known name ignoring case like the pull parser path
+    private boolean nameEquals(int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(buf[start + i]) != Character.toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // compares two tag names that are both in the buffer
+    private boolean nameEquals(int start, int end, char[] other, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < end - start; i++) {
+            if (buf[start + i] != other[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimStart(int start, int end) {
+        while (start < end && buf[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && buf[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isNameEnd(char c) {
+        return c <= ' ' || c == '/' || c == '>';
+    }
+}
@@ -0,0 +1,233 @@
+package org.me.gcu.jordanmoorecw1;
+
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+// parser that reads the rss xml and builds a rate table
+// it keeps no state between calls so one instance can be shared
+public class RssParser {
+
+    // listener that is told about each rate as soon as its item has been read
+    // the id comes from the currency registry and the rate is fixed point units and scale
+    public interface RateListener {
+        void onRate(int currencyId, long units, int scale);
+    }
+
+    // factory is expensive to look up so it is made once and shared
+    private static volatile XmlPullParserFactory factory;
+
+    // time and items of every parse
+    // a stream is parsed while it downloads so its time includes waiting on the network
+    private static final Histogram PARSE_TIME =
+            MetricsRegistry.getInstance().histogram("parse.duration", Histogram.MICROS);
+    private static final Histogram PARSE_ITEMS =
+            MetricsRegistry.getInstance().histogram("parse.items", Histogram.ITEMS);
+    // feeds the fast scanner gave up on
+    private static final Counter PULL_FALLBACKS =
+            MetricsRegistry.getInstance().counter("parse.pull_fallbacks");
+
+    // parses the xml string and returns the rates and published date
+    public ParsedFeed parse(String xmlData) {
+        try {
+            return parse(new StringReader(xmlData), null);
+        } catch (IOException e) {
+            // a string reader does not really fail but print it just in case
+            e.printStackTrace();
+            return new ParsedFeed(RateTable.EMPTY, "");
+        }
+    }
+
+    // parses the feed straight from a byte stream using the given charset
+    // io errors are thrown so a broken download is not mistaken for a short feed
+    public ParsedFeed parse(InputStream in, Charset charset) throws IOException {
+        return parse(in, charset, null);
+    }
+
+    // same as above but also hands each rate to the listener while the stream is still being read
+    public ParsedFeed parse(InputStream in, Charset charset, RateListener listener)
+            throws IOException {
+        return parse(new InputStreamReader(in, charset), listener);
+    }
+
+    // shared entry used by the string and stream entry points
+    private ParsedFeed parse(Reader input, RateListener listener) throws IOException {
+        Tracer tracer = Tracer.getInstance();
+        long startNanos = tracer.begin("RssParser.parse");
+        ParsedFeed result = scanOrReplay(input, listener);
+        tracer.end("RssParser.parse", startNanos);
+        PARSE_TIME.recordSince(startNanos);
+        PARSE_ITEMS.record(result.getRates().size());
+        return result;
+    }
+
+    // tries the fast scanner first and only uses the pull parser when the feed looks different
+    private ParsedFeed scanOrReplay(Reader input, RateListener listener) throws IOException {
+        FastRssScanner scanner = new FastRssScanner(input);
+        try {
+            ParsedFeed fastResult = scanner.scan(listener);
+            if (fastResult != null) {
+                return fastResult;
+            }
+            PULL_FALLBACKS.increment();
+
+            // replay everything through the pull parser
+            // rates the scanner already sent to the listener are not sent again
+            int alreadySent = scanner.getEmittedCount();
+            RateListener replayListener = listener;
+            if (listener != null && alreadySent > 0) {
+                int[] skipped = {0};
+                replayListener = (id, units, scale) -> {
+                    if (skipped[0] < alreadySent) {
+                        skipped[0]++;
+                    } else {
+                        listener.onRate(id, units, scale);
+                    }
+                };
+            }
+            return parseWithPullParser(scanner.replay(), replayListener);
+        } finally {
+            scanner.release();
+        }
+    }
+
+    // general xml pull parser loop that copes with any valid rss layout
+    ParsedFeed parseWithPullParser(Reader input, RateListener listener) throws IOException {
+        RateTable.Builder rates = new RateTable.Builder();
+        CurrencyRegistry registry = CurrencyRegistry.getInstance();
+        String lastUpdated = "";
+
+        // fields of the item being read
+        boolean inItem = false;
+        String currentTitle = null;
+        String currentCode = null;
+        // packed fixed point rate or INVALID
+        long currentRate = FixedDecimal.INVALID;
+
+        try {
+            // set up xml pull parser
+            XmlPullParser parser = getFactory().newPullParser();
+            parser.setInput(input);
+
+            int eventType = parser.getEventType();
+
+            // loop through every xml event
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                String tagName;
+
+                switch (eventType) {
+                    case XmlPullParser.START_TAG:
+                        tagName = parser.getName();
+
+                        // start of a new item
+                        if (tagName.equalsIgnoreCase("item")) {
+                            inItem = true;
+                            currentTitle = null;
+                            currentCode = null;
+                            currentRate = FixedDecimal.INVALID;
+                        }
+                        // read the feed published date
+                        else if (tagName.equalsIgnoreCase("pubDate")) {
+                            lastUpdated = parser.nextText().trim();
+                        }
+                        // inside an item read title and description
+                        else if (inItem) {
+                            if (tagName.equalsIgnoreCase("title")) {
+                                String title = parser.nextText();
+                                currentTitle = title;
+
+                                // try to pull a code from the title if it contains a slash
+                                if (title != null && title.contains("/")) {
+                                    try {
+                                        String[] parts = title.split("/");
+                                        if (parts.length >= 2) {
+                                            String code = parts[1]
+                                                    .replace(" ", "")
+                                                    .trim()
+                                                    .toUpperCase();
+                                            currentCode = code;
+                                        }
+                                    } catch (Exception ignored) {
+                                        // ignore any problems with bad title formats
+                                    }
+                                }
+                            } else if (tagName.equalsIgnoreCase("description")) {
+                                String description = parser.nextText();
+                                currentRate = extractRate(description);
+                            }
+                        }
+                        break;
+
+                    case XmlPullParser.END_TAG:
+                        tagName = parser.getName();
+
+                        // when we reach end of item add it to the list if it is valid
+                        if (tagName.equalsIgnoreCase("item") && inItem) {
+                            if (currentCode != null && currentRate != FixedDecimal.INVALID
+                                    && FixedDecimal.units(currentRate) > 0) {
+                                int id = registry.intern(currentCode, currentTitle);
+                                long units = FixedDecimal.units(currentRate);
+                                int scale = FixedDecimal.scale(currentRate);
+                                rates.add(id, units, scale);
+                                if (listener != null) {
+                                    listener.onRate(id, units, scale);
+                                }
+                            }
+                            inItem = false;
+                        }
+                        break;
+                }
+
+                // move to the next event
+                eventType = parser.next();
+            }
+
+        } catch (XmlPullParserException | RuntimeException e) {
+            // print bad xml errors and keep whatever was read before them
+            e.printStackTrace();
+        }
+
+        return new ParsedFeed(rates.build(), lastUpdated);
+    }
+
+    // returns the shared pull parser factory and makes it the first time
+    private static XmlPullParserFactory getFactory() throws XmlPullParserException {
+        XmlPullParserFactory result = factory;
+        if (result == null) {
+            result = XmlPullParserFactory.newInstance();
+            result.setNamespaceAware(false);
+            factory = result;
+        }
+        return result;
+    }
+
+    // pull rate value from a description string as a packed fixed point value
+    // returns FixedDecimal.INVALID when there is no plain decimal after the equals sign
+    private long extractRate(String description) {
+        try {
+            String[] parts = description.split("=");
+            if (parts.length >= 2) {
+                String ratePart = parts[1].trim().split(" ")[0];
+                return FixedDecimal.parse(ratePart);
+            }
+        } catch (Exception ignored) {
+            // ignore any problems with unexpected formats
+        }
+        return FixedDecimal.INVALID;
+    }
+}
@@ -0,0 +1,44 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+// one attempt at a feed source that can be cancelled from another thread
+// the source attaches its open download so cancelling can drop the connection straight away
+public final class FeedCall {
+
+    private boolean cancelled;
+
+    // download that is open for this attempt or null
+    private FeedResponse response;
+
+    // true once the result of this attempt is no longer wanted
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    // links an open download to this attempt
+    // it is aborted straight away when the attempt was already cancelled
+    public void attach(FeedResponse openResponse) {
+        boolean abort;
+        synchronized (this) {
+            response = openResponse;
+            abort = cancelled;
+        }
+        if (abort) {
+            openResponse.abort();
+        }
+    }
+
+    // marks the attempt as unwanted and drops its connection if it has one
+    public void cancel() {
+        FeedResponse open;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            open = response;
+        }
+        if (open != null) {
+            open.abort();
+        }
+    }
+}
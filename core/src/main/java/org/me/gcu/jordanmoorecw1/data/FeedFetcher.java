@@ -0,0 +1,207 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// helper class that downloads the rss feed for gbp exchange rates
+public class FeedFetcher {
+
+    // url for the rss feed
+    public static final String FEED_URL = "https://www.fx-exchange.com/gbp/rss.xml";
+
+    // the same site has a feed per base currency at the same path
+    public static String feedUrlFor(String baseIso) {
+        return "https://www.fx-exchange.com/" + baseIso.toLowerCase(Locale.ROOT) + "/rss.xml";
+    }
+
+    // how many bytes we peek at to find the encoding in the xml prolog
+    private static final int PROLOG_PEEK_BYTES = 256;
+
+    // how each open ended
+    // the times and bytes of the request itself are recorded by the transport
+    private static final Counter NOT_MODIFIED =
+            MetricsRegistry.getInstance().counter("fetch.not_modified");
+    private static final Counter HTTP_ERRORS =
+            MetricsRegistry.getInstance().counter("fetch.http_errors");
+    private static final Counter FAILURES = MetricsRegistry.getInstance().counter("fetch.failures");
+
+    // url this fetcher downloads
+    private final String feedUrl;
+
+    // http layer that handles compression connection reuse and timeouts
+    private final FeedTransport transport;
+
+    // validators from the last body the caller kept
+    // sent back to the server so it can answer 304 when nothing changed
+    private volatile String etag;
+    private volatile String lastModified;
+
+    public FeedFetcher() {
+        this(FEED_URL, new FeedTransport());
+    }
+
+    public FeedFetcher(String feedUrl, FeedTransport transport) {
+        this.feedUrl = feedUrl;
+        this.transport = transport;
+    }
+
+    // opens the xml feed and returns the body as a stream without reading it
+    // when conditional is true the stored validators are sent and a 304 gives a not modified response
+    // returns null when the feed could not be opened
+    public FeedResponse openFeed(boolean conditional) {
+        return conditional ? openFeed(etag, lastModified) : openFeed(null, null);
+    }
+
+    // same as above but with the validators passed in instead of the stored ones
+    // keeps no state between calls so several threads can use one fetcher
+    // either validator can be null and a 304 is only possible when one is given
+    public FeedResponse openFeed(String ifNoneMatch, String ifModifiedSince) {
+        FeedTransport.Exchange exchange = null;
+        // covers the request up to the status line since the body is read by the caller
+        Tracer tracer = Tracer.getInstance();
+        long startNanos = tracer.begin("FeedFetcher.openFeed");
+
+        try {
+            // ask the server to skip the body when it has not changed since our copy
+            Map<String, String> headers = new HashMap<>();
+            if (ifNoneMatch != null) {
+                headers.put("If-None-Match", ifNoneMatch);
+            }
+            if (ifModifiedSince != null) {
+                headers.put("If-Modified-Since", ifModifiedSince);
+            }
+
+            // connect to the server
+            exchange = transport.get(feedUrl, headers);
+
+            // nothing changed so there is nothing to download
+            int responseCode = exchange.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                NOT_MODIFIED.increment();
+                return FeedResponse.notModified(exchange);
+            }
+
+            // check the response code is ok
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                HTTP_ERRORS.increment();
+                exchange.close();
+                return null;
+            }
+
+            // buffer the body so the prolog can be peeked without losing bytes
+            InputStream body = new BufferedInputStream(exchange.getBody());
+
+            // header charset wins and the xml prolog is only used when the header has none
+            Charset charset = charsetFromContentType(exchange.getHeader("Content-Type"));
+            if (charset == null) {
+                charset = sniffXmlCharset(body);
+            }
+
+            return new FeedResponse(body, charset, exchange,
+                    exchange.getHeader("ETag"),
+                    exchange.getHeader("Last-Modified"));
+
+        } catch (Exception e) {
+            // if something goes wrong print the error and give up on this download
+            e.printStackTrace();
+            FAILURES.increment();
+            if (exchange != null) {
+                exchange.close();
+            }
+            return null;
+        } finally {
+            tracer.end("FeedFetcher.openFeed", startNanos);
+        }
+    }
+
+    // gets the http layer so callers can read its counters
+    public FeedTransport getTransport() {
+        return transport;
+    }
+
+    // stores the validators of a body that was parsed and kept
+    // called only after a good parse so a broken download is never treated as current
+    public void rememberValidators(String etag, String lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    // true when there are validators to send with a conditional request
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    // reads the charset parameter from a content type header like text/xml; charset=utf-8
+    // returns null when there is no usable charset
+    static Charset charsetFromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        for (String param : contentType.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String name = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                return lookupCharset(name);
+            }
+        }
+        return null;
+    }
+
+    // peeks at the start of the body for encoding="..." in the xml prolog
+    // the stream is reset afterwards so the parser still sees every byte
+    // xml defaults to utf 8 when no encoding is declared
+    static Charset sniffXmlCharset(InputStream body) {
+        try {
+            body.mark(PROLOG_PEEK_BYTES);
+            byte[] head = new byte[PROLOG_PEEK_BYTES];
+            int length = 0;
+            int read;
+            while (length < head.length
+                    && (read = body.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+            body.reset();
+
+            // the prolog is plain ascii so this is safe for any ascii compatible encoding
+            String prolog = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+            if (prolog.startsWith("<?xml")) {
+                int end = prolog.indexOf("?>");
+                int start = prolog.indexOf("encoding=");
+                if (start > 0 && (end < 0 || start < end)) {
+                    int valueStart = start + "encoding=".length() + 1;
+                    char quote = prolog.charAt(valueStart - 1);
+                    int valueEnd = prolog.indexOf(quote, valueStart);
+                    if (valueEnd > valueStart) {
+                        Charset charset = lookupCharset(prolog.substring(valueStart, valueEnd));
+                        if (charset != null) {
+                            return charset;
+                        }
+                    }
+                }
+            }
+        } catch (Exception ignored) {
+            // ignore problems while peeking and use the xml default
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    // returns the named charset or null when the platform does not know it
+    private static Charset lookupCharset(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+}
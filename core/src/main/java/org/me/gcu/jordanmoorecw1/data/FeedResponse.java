@@ -0,0 +1,81 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+// open feed download that hands out the raw bytes and the charset they use
+// the caller must close it once the body has been read
+public class FeedResponse implements Closeable {
+
+    // body of the response as it comes off the network or null for a 304
+    private final InputStream body;
+
+    // charset of the body from the content type header or the xml prolog
+    private final Charset charset;
+
+    // request the body belongs to
+    private final FeedTransport.Exchange exchange;
+
+    // etag header sent with the body or null when the server sent none
+    private final String etag;
+
+    // last modified header sent with the body or null when the server sent none
+    private final String lastModified;
+
+    FeedResponse(InputStream body, Charset charset, FeedTransport.Exchange exchange,
+                 String etag, String lastModified) {
+        this.body = body;
+        this.charset = charset;
+        this.exchange = exchange;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    // makes a response for a 304 where the server said our copy is still current
+    static FeedResponse notModified(FeedTransport.Exchange exchange) {
+        return new FeedResponse(null, null, exchange, null, null);
+    }
+
+    // true when the server answered 304 and there is no body to read
+    public boolean isNotModified() {
+        return body == null;
+    }
+
+    // gets the etag validator for this body
+    public String getEtag() {
+        return etag;
+    }
+
+    // gets the last modified validator for this body
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    // gets the response body stream
+    public InputStream getBody() {
+        return body;
+    }
+
+    // gets the charset used by the body
+    public Charset getCharset() {
+        return charset;
+    }
+
+    // gets the byte and latency counters for this download once it has been closed
+    public FeedTransport.Stats getStats() {
+        return exchange.getStats();
+    }
+
+    // drops the download from another thread when its result is no longer wanted
+    // the thread reading the body still has to call close
+    public void abort() {
+        exchange.abort();
+    }
+
+    // finishes the body and hands the connection back for reuse
+    @Override
+    public void close() {
+        exchange.close();
+    }
+}
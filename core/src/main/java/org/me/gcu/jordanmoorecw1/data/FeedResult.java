@@ -0,0 +1,63 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+
+// what one feed source gave back
+// either a parsed feed with its validators or a not modified answer
+public final class FeedResult {
+
+    // name of the source that answered
+    private final String sourceName;
+
+    // parsed feed or null when the server said our copy is still current
+    private final ParsedFeed feed;
+
+    // validators of the body that was parsed
+    private final String etag;
+    private final String lastModified;
+
+    private FeedResult(String sourceName, ParsedFeed feed, String etag, String lastModified) {
+        this.sourceName = sourceName;
+        this.feed = feed;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    // result holding a freshly parsed feed
+    public static FeedResult of(String sourceName, ParsedFeed feed,
+                                String etag, String lastModified) {
+        return new FeedResult(sourceName, feed, etag, lastModified);
+    }
+
+    // result for a 304 where the rates already held are still current
+    public static FeedResult notModified(String sourceName) {
+        return new FeedResult(sourceName, null, null, null);
+    }
+
+    // true when the source said the rates already held are still current
+    public boolean isNotModified() {
+        return feed == null;
+    }
+
+    // true when this result can be used
+    // a parsed feed with no rates counts as a failed source
+    public boolean isUsable() {
+        return feed == null || !feed.isEmpty();
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public ParsedFeed getFeed() {
+        return feed;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
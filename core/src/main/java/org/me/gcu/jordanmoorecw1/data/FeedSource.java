@@ -0,0 +1,19 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import java.io.IOException;
+
+// somewhere the gbp rates can be loaded from
+// a mirror of the rss feed or another provider with its own adapter
+// implementations must be safe to call from several threads at once
+public interface FeedSource {
+
+    // short name used in logs and health stats
+    String getName();
+
+    // downloads and parses the feed
+    // the validators are sent so the source can answer not modified and either can be null
+    // returns null when the source answered but had nothing usable
+    // should stop early once the call is cancelled
+    FeedResult fetch(String ifNoneMatch, String ifModifiedSince, FeedCall call)
+            throws IOException;
+}
@@ -0,0 +1,409 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// http layer used by the feed fetcher
+// asks for a compressed body and keeps connections alive so the next refresh can reuse them
+public class FeedTransport {
+
+    // default time allowed to open a connection
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10_000;
+
+    // default time allowed between bytes of the response
+    public static final int DEFAULT_READ_TIMEOUT_MS = 15_000;
+
+    // most bytes we will read off an unfinished body so its connection can go back to the pool
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    // pipeline metrics for every request of every transport
+    private static final Counter REQUESTS = MetricsRegistry.getInstance().counter("fetch.requests");
+    private static final Histogram CONNECT_TIME =
+            MetricsRegistry.getInstance().histogram("fetch.connect", Histogram.MICROS);
+    private static final Histogram FIRST_BYTE_TIME =
+            MetricsRegistry.getInstance().histogram("fetch.ttfb", Histogram.MICROS);
+    private static final Histogram TOTAL_TIME =
+            MetricsRegistry.getInstance().histogram("fetch.total", Histogram.MICROS);
+    private static final Histogram WIRE_BYTES =
+            MetricsRegistry.getInstance().histogram("fetch.wire_bytes", Histogram.BYTES);
+    private static final Histogram BODY_BYTES =
+            MetricsRegistry.getInstance().histogram("fetch.body_bytes", Histogram.BYTES);
+
+    // time allowed to open a connection
+    private final int connectTimeoutMs;
+
+    // time allowed between bytes of the response
+    private final int readTimeoutMs;
+
+    // running totals across every request made by this transport
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong totalWireBytes = new AtomicLong();
+    private final AtomicLong totalBodyBytes = new AtomicLong();
+
+    // stats of the last request that was closed
+    private volatile Stats lastStats;
+
+    public FeedTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS);
+    }
+
+    public FeedTransport(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    // sends a get request with the given extra headers and returns once the status line arrives
+    // the body is decompressed as it is read
+    public Exchange get(String url, Map<String, String> headers) throws IOException {
+        long startNanos = System.nanoTime();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+
+        // setting this ourselves means we also decode the body ourselves on every platform
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        connection.setRequestProperty("Connection", "keep-alive");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        try {
+            connection.connect();
+            long connectedNanos = System.nanoTime();
+            int responseCode = connection.getResponseCode();
+            long firstByteNanos = System.nanoTime();
+
+            return new Exchange(connection, responseCode,
+                    startNanos, connectedNanos, firstByteNanos);
+        } catch (IOException e) {
+            // the connection is broken so it must not go back to the pool
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    // gets the stats of the last finished request or null when there has not been one
+    public Stats getLastStats() {
+        return lastStats;
+    }
+
+    // number of requests finished by this transport
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    // compressed bytes read off the network by this transport
+    public long getTotalWireBytes() {
+        return totalWireBytes.get();
+    }
+
+    // decoded body bytes handed to callers by this transport
+    public long getTotalBodyBytes() {
+        return totalBodyBytes.get();
+    }
+
+    // one request and its response
+    // closing it finishes the body so the connection can be reused
+    public final class Exchange implements Closeable {
+
+        private final HttpURLConnection connection;
+        private final int responseCode;
+        private final long startNanos;
+        private final long connectedNanos;
+        private final long firstByteNanos;
+
+        // counts bytes as they come off the network before decompression
+        private CountingInputStream wire;
+
+        // counts bytes after decompression
+        private CountingInputStream body;
+
+        private boolean closed;
+
+        // counters filled in when the exchange is closed
+        private Stats stats;
+
+        Exchange(HttpURLConnection connection, int responseCode,
+                 long startNanos, long connectedNanos, long firstByteNanos) {
+            this.connection = connection;
+            this.responseCode = responseCode;
+            this.startNanos = startNanos;
+            this.connectedNanos = connectedNanos;
+            this.firstByteNanos = firstByteNanos;
+        }
+
+        // gets the http status code
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        // gets a response header or null when it was not sent
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        // gets the decoded body stream
+        // the same stream is returned on every call
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = responseCode >= 400
+                        ? connection.getErrorStream()
+                        : connection.getInputStream();
+                wire = new CountingInputStream(raw != null ? raw : emptyStream());
+                // a 304 or 204 can still say gzip but has no header for a decoder to read
+                body = new CountingInputStream(hasBody()
+                        ? decode(wire, getHeader("Content-Encoding"))
+                        : wire);
+            }
+            return body;
+        }
+
+        // false when the status or a zero content length says no body follows
+        private boolean hasBody() {
+            if (responseCode < 200 || responseCode == HttpURLConnection.HTTP_NO_CONTENT
+                    || responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return false;
+            }
+            return connection.getContentLengthLong() != 0;
+        }
+
+        // finishes the body and records the stats
+        // the connection is left open so the pool can hand it to the next request
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if ((wire != null && wire.hasFailed()) || (body != null && body.hasFailed())) {
+                // a read already failed so the socket is broken and draining would only wait again
+                connection.disconnect();
+                recordStats();
+                return;
+            }
+
+            try {
+                InputStream in = getBody();
+                // read what is left of a short body so keep alive can reuse the socket
+                byte[] skip = new byte[4096];
+                long drained = 0;
+                int read;
+                while (drained < MAX_DRAIN_BYTES && (read = in.read(skip)) != -1) {
+                    drained += read;
+                }
+                in.close();
+                if (drained >= MAX_DRAIN_BYTES) {
+                    // too much left to be worth reusing the socket
+                    connection.disconnect();
+                }
+            } catch (IOException e) {
+                // a broken body means a broken socket so drop it
+                connection.disconnect();
+            }
+
+            recordStats();
+        }
+
+        // drops the connection without reading the rest of the body
+        // safe to call from another thread and makes a read that is waiting fail straight away
+        public void abort() {
+            connection.disconnect();
+        }
+
+        // builds the stats for this request and adds them to the transport totals
+        private void recordStats() {
+            long endNanos = System.nanoTime();
+            stats = new Stats(
+                    responseCode,
+                    wire != null ? wire.getCount() : 0,
+                    body != null ? body.getCount() : 0,
+                    nanosToMillis(connectedNanos - startNanos),
+                    nanosToMillis(firstByteNanos - startNanos),
+                    nanosToMillis(endNanos - startNanos)
+            );
+            totalRequests.incrementAndGet();
+            totalWireBytes.addAndGet(stats.wireBytes);
+            totalBodyBytes.addAndGet(stats.bodyBytes);
+            lastStats = stats;
+
+            REQUESTS.increment();
+            CONNECT_TIME.record((connectedNanos - startNanos) / 1_000L);
+            FIRST_BYTE_TIME.record((firstByteNanos - startNanos) / 1_000L);
+            TOTAL_TIME.record((endNanos - startNanos) / 1_000L);
+            WIRE_BYTES.record(stats.wireBytes);
+            BODY_BYTES.record(stats.bodyBytes);
+        }
+
+        // gets the stats for this request or null until it has been closed
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    // byte and latency counters for one request
+    public static final class Stats {
+
+        // http status code
+        public final int responseCode;
+
+        // bytes read off the network before decompression
+        public final long wireBytes;
+
+        // bytes handed to the caller after decompression
+        public final long bodyBytes;
+
+        // time to open the connection which is close to zero when a pooled one was reused
+        public final long connectMs;
+
+        // time until the status line arrived
+        public final long firstByteMs;
+
+        // time until the body was finished
+        public final long totalMs;
+
+        Stats(int responseCode, long wireBytes, long bodyBytes,
+              long connectMs, long firstByteMs, long totalMs) {
+            this.responseCode = responseCode;
+            this.wireBytes = wireBytes;
+            this.bodyBytes = bodyBytes;
+            this.connectMs = connectMs;
+            this.firstByteMs = firstByteMs;
+            this.totalMs = totalMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "http %d wire=%dB body=%dB connect=%dms ttfb=%dms total=%dms",
+                    responseCode, wireBytes, bodyBytes, connectMs, firstByteMs, totalMs);
+        }
+    }
+
+    // wraps the raw body in a decoder that matches the content encoding header
+    static InputStream decode(InputStream raw, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return raw;
+        }
+
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        boolean gzip = encoding.equals("gzip") || encoding.equals("x-gzip");
+        if (!gzip && !encoding.equals("deflate")) {
+            return raw;
+        }
+
+        // look at the first bytes before making a decoder
+        // an empty body is handed back as it is since both decoders fail on a missing header
+        BufferedInputStream buffered = new BufferedInputStream(raw);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == -1) {
+            return buffered;
+        }
+        if (gzip) {
+            return new GZIPInputStream(buffered, 8192);
+        }
+        // some servers send raw deflate instead of the zlib wrapped form so look at the header
+        boolean zlibWrapped = second != -1
+                && (first & 0x0F) == 8
+                && ((first << 8) | second) % 31 == 0;
+        return new InflaterInputStream(buffered, new Inflater(!zlibWrapped), 8192);
+    }
+
+    private static InputStream emptyStream() {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+        };
+    }
+
+    private static long nanosToMillis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    // input stream that counts the bytes read through it and remembers when a read failed
+    static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+        private boolean failed;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b != -1) {
+                    count++;
+                }
+                return b;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    count += read;
+                }
+                return read;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                long skipped = super.skip(n);
+                count += skipped;
+                return skipped;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        // mark and reset would make the count wrong so they are turned off
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        boolean hasFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// loads the feed from several sources with hedged requests
+// the healthiest source is asked first and when it is slower than it usually is
+// the next source is started as well and the first usable answer wins
+// a source that fails hands over to the next one straight away
+// validators only go to the source that served the rates held since a mirror has its own
+public class HedgedFeedFetcher {
+
+    // wait before hedging while a source has too few latencies to trust
+    public static final long DEFAULT_HEDGE_DELAY_MS = 1_500L;
+
+    // percentile of the primary latency after which a hedge is started
+    static final double HEDGE_PERCENTILE = 0.9;
+
+    // latencies a source needs before its percentile is used
+    static final int MIN_SAMPLES = 5;
+
+    // bounds for the learned hedge delay
+    static final long MIN_HEDGE_DELAY_MS = 100L;
+    static final long MAX_HEDGE_DELAY_MS = 5_000L;
+
+    // sources in configured order which breaks ties between equal scores
+    private final List<FeedSource> sources;
+
+    // health of each source at the same index
+    private final SourceHealth[] health;
+
+    // hedge delay used until a source has enough latencies
+    private final long defaultHedgeDelayMs;
+
+    // threads for the attempts which sit idle and die off between refreshes
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "feed-source");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HedgedFeedFetcher(List<FeedSource> sources) {
+        this(sources, DEFAULT_HEDGE_DELAY_MS);
+    }
+
+    public HedgedFeedFetcher(List<FeedSource> sources, long defaultHedgeDelayMs) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("At least one feed source is needed");
+        }
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        this.defaultHedgeDelayMs = defaultHedgeDelayMs;
+        health = new SourceHealth[sources.size()];
+        for (int i = 0; i < health.length; i++) {
+            health[i] = new SourceHealth();
+        }
+    }
+
+    // one running attempt at a source
+    private final class Attempt implements Runnable {
+        final int source;
+        final FeedCall call = new FeedCall();
+        final BlockingQueue<Attempt> finished;
+        final String ifNoneMatch;
+        final String ifModifiedSince;
+        final long startNanos = System.nanoTime();
+        // trace of the refresh that started this attempt carried over to the attempt thread
+        final long traceId = Tracer.getInstance().currentTraceId();
+
+        // set before the attempt is put on the finished queue
+        volatile FeedResult result;
+        volatile boolean done;
+
+        Attempt(int source, String ifNoneMatch, String ifModifiedSince,
+                BlockingQueue<Attempt> finished) {
+            this.source = source;
+            this.ifNoneMatch = ifNoneMatch;
+            this.ifModifiedSince = ifModifiedSince;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            Tracer tracer = Tracer.getInstance();
+            long previousTrace = tracer.attach(traceId);
+            long spanStart = tracer.begin("FeedSource.fetch");
+            FeedResult answer = null;
+            try {
+                answer = sources.get(source).fetch(ifNoneMatch, ifModifiedSince, call);
+            } catch (Exception e) {
+                if (!call.isCancelled()) {
+                    e.printStackTrace();
+                }
+            } finally {
+                tracer.end("FeedSource.fetch", spanStart);
+                tracer.attach(previousTrace);
+            }
+
+            // a cancelled attempt was already recorded by whoever cancelled it
+            if (!call.isCancelled()) {
+                if (answer != null && answer.isUsable()) {
+                    health[source].recordSuccess(elapsedMs());
+                } else {
+                    health[source].recordFailure();
+                }
+            }
+            result = answer;
+            done = true;
+            finished.add(this);
+        }
+
+        long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    // loads the feed from whichever source answers first with something usable
+    // known is the snapshot held or null and its validators are only sent to the source it names
+    // every other source gets a plain request so one host can never confirm rates from another
+    // returns null when every source failed
+    public FeedResult fetch(RateSnapshot known) throws InterruptedException {
+        Tracer tracer = Tracer.getInstance();
+        long spanStart = tracer.begin("HedgedFeedFetcher.fetch");
+        try {
+            return fetchHedged(known);
+        } finally {
+            tracer.end("HedgedFeedFetcher.fetch", spanStart);
+        }
+    }
+
+    private FeedResult fetchHedged(RateSnapshot known) throws InterruptedException {
+        int[] order = rankSources();
+        long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs(order[0]));
+
+        BlockingQueue<Attempt> finished = new LinkedBlockingQueue<>();
+        List<Attempt> started = new ArrayList<>(order.length);
+        int next = 0;
+        int running = 0;
+
+        try {
+            started.add(start(order[next++], known, finished));
+            running++;
+            long hedgeAtNanos = System.nanoTime() + hedgeDelayNanos;
+
+            while (running > 0) {
+                Attempt attempt;
+                if (next < order.length) {
+                    // wait for an answer until it is time to hedge
+                    long waitNanos = hedgeAtNanos - System.nanoTime();
+                    attempt = waitNanos > 0
+                            ? finished.poll(waitNanos, TimeUnit.NANOSECONDS)
+                            : null;
+                    if (attempt == null) {
+                        Tracer.getInstance().mark("HedgedFeedFetcher.hedge");
+                        started.add(start(order[next++], known, finished));
+                        running++;
+                        hedgeAtNanos = System.nanoTime() + hedgeDelayNanos;
+                        continue;
+                    }
+                } else {
+                    attempt = finished.take();
+                }
+                running--;
+
+                FeedResult result = attempt.result;
+                if (result != null && result.isUsable()) {
+                    return result;
+                }
+
+                // this source failed so the next one starts without waiting for the hedge delay
+                if (next < order.length) {
+                    started.add(start(order[next++], known, finished));
+                    running++;
+                    hedgeAtNanos = System.nanoTime() + hedgeDelayNanos;
+                }
+            }
+            return null;
+
+        } finally {
+            // cancel the losers and count the time they had taken as a lower bound
+            for (Attempt attempt : started) {
+                if (!attempt.done) {
+                    attempt.call.cancel();
+                    health[attempt.source].recordCancelled(attempt.elapsedMs());
+                }
+            }
+        }
+    }
+
+    // source that would be asked first right now
+    public FeedSource getPrimary() {
+        return sources.get(rankSources()[0]);
+    }
+
+    // configured sources in their configured order
+    public List<FeedSource> getSources() {
+        return sources;
+    }
+
+    // health of the source at the given index of getSources
+    public SourceHealth getHealth(int index) {
+        return health[index];
+    }
+
+    // stops the attempt threads
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // how long to wait on a source before starting the next one
+    long hedgeDelayMs(int source) {
+        SourceHealth sourceHealth = health[source];
+        if (sourceHealth.getSampleCount() < MIN_SAMPLES) {
+            return defaultHedgeDelayMs;
+        }
+        long delay = sourceHealth.percentile(HEDGE_PERCENTILE);
+        return Math.max(MIN_HEDGE_DELAY_MS, Math.min(MAX_HEDGE_DELAY_MS, delay));
+    }
+
+    // source indexes from best score to worst keeping configured order on ties
+    private int[] rankSources() {
+        int count = sources.size();
+        Integer[] order = new Integer[count];
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            scores[i] = health[i].score();
+        }
+        // the sort is stable so equal scores keep their configured order
+        Arrays.sort(order, (a, b) -> Double.compare(scores[a], scores[b]));
+
+        int[] ranked = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranked[i] = order[i];
+        }
+        return ranked;
+    }
+
+    private Attempt start(int source, RateSnapshot known, BlockingQueue<Attempt> finished) {
+        boolean conditional = known != null && known.hasValidators()
+                && sources.get(source).getName().equals(known.getSourceName());
+        Attempt attempt = new Attempt(source,
+                conditional ? known.getEtag() : null,
+                conditional ? known.getLastModified() : null,
+                finished);
+        executor.execute(attempt);
+        return attempt;
+    }
+}
@@ -0,0 +1,312 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.Histogram;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// loads the feeds of several base currencies at the same time
+// at most maxParallel feeds download together and the rest wait for a free thread
+// each feed is parsed on the thread that downloads it so the feeds are parsed in parallel too
+// a feed that runs past its deadline is cancelled which drops its connection
+// and every feed reports on its own so one slow or broken base never holds back the others
+public class MultiBaseFetcher {
+
+    // feeds downloading at once
+    public static final int DEFAULT_MAX_PARALLEL = 4;
+
+    // time one feed gets from starting its request to having parsed its body
+    public static final long DEFAULT_FEED_DEADLINE_MS = 8_000L;
+
+    // how one feed ended
+    public enum Status {
+        // new rates were downloaded and parsed
+        OK,
+        // the server said the rates held are still current
+        NOT_MODIFIED,
+        // the request failed or the feed had no rates
+        FAILED,
+        // the feed was cancelled at its deadline
+        TIMED_OUT
+    }
+
+    private static final Counter TIMEOUTS = MetricsRegistry.getInstance().counter("bases.timeouts");
+    private static final Counter FAILURES = MetricsRegistry.getInstance().counter("bases.failures");
+    // one feed from its start to its result
+    private static final Histogram FEED_TIME =
+            MetricsRegistry.getInstance().histogram("bases.feed", Histogram.MICROS);
+    // a whole batch which should be close to the slowest feed in it
+    private static final Histogram BATCH_TIME =
+            MetricsRegistry.getInstance().histogram("bases.batch", Histogram.MICROS);
+
+    // base iso codes and the source of each at the same index
+    private final List<String> bases;
+    private final List<FeedSource> sources;
+
+    private final long feedDeadlineMs;
+
+    // bounded threads for the downloads which die off between refreshes
+    private final ThreadPoolExecutor executor;
+
+    // cancels feeds that pass their deadline
+    private final ScheduledThreadPoolExecutor watchdog;
+
+    public MultiBaseFetcher(List<String> bases, List<FeedSource> sources) {
+        this(bases, sources, DEFAULT_MAX_PARALLEL, DEFAULT_FEED_DEADLINE_MS);
+    }
+
+    public MultiBaseFetcher(List<String> bases, List<FeedSource> sources,
+                            int maxParallel, long feedDeadlineMs) {
+        if (bases.size() != sources.size()) {
+            throw new IllegalArgumentException("Every base needs exactly one source");
+        }
+        if (maxParallel < 1) {
+            throw new IllegalArgumentException("Bad parallelism " + maxParallel);
+        }
+        List<String> upper = new ArrayList<>(bases.size());
+        for (String base : bases) {
+            upper.add(base.toUpperCase(Locale.ROOT));
+        }
+        this.bases = Collections.unmodifiableList(upper);
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        this.feedDeadlineMs = feedDeadlineMs;
+
+        executor = new ThreadPoolExecutor(maxParallel, maxParallel, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "base-feed");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "base-feed-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    // fetcher for the fx-exchange feed of each base over a shared transport
+    public static MultiBaseFetcher forFxExchange(List<String> bases, FeedTransport transport) {
+        List<FeedSource> sources = new ArrayList<>(bases.size());
+        for (String base : bases) {
+            sources.add(new RssFeedSource("fx-exchange-" + base.toLowerCase(Locale.ROOT),
+                    FeedFetcher.feedUrlFor(base), base, transport));
+        }
+        return new MultiBaseFetcher(bases, sources);
+    }
+
+    // base iso codes in the order of the results
+    public List<String> getBases() {
+        return bases;
+    }
+
+    // starts every feed and returns straight away so the caller can do other work meanwhile
+    // known holds the snapshot already held for each base or null
+    // and its validators are sent so an unchanged feed costs a 304
+    public Batch start(RateSnapshot[] known) {
+        Batch batch = new Batch(bases.size());
+        long traceId = Tracer.getInstance().currentTraceId();
+        for (int i = 0; i < bases.size(); i++) {
+            RateSnapshot held = known != null ? known[i] : null;
+            executor.execute(new Task(batch, i, held, traceId));
+        }
+        return batch;
+    }
+
+    // starts every feed and waits for all of them
+    public Outcome[] fetchAll(RateSnapshot[] known) throws InterruptedException {
+        return start(known).await();
+    }
+
+    // stops the download and deadline threads
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    // result of one base
+    public static final class Outcome {
+
+        private final String base;
+        private final Status status;
+        private final FeedResult result;
+        private final long elapsedMs;
+        private final long fetchedAtMs;
+
+        Outcome(String base, Status status, FeedResult result, long elapsedMs, long fetchedAtMs) {
+            this.base = base;
+            this.status = status;
+            this.result = result;
+            this.elapsedMs = elapsedMs;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+
+        public String getBase() {
+            return base;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        // the feed and validators when the status is OK and null otherwise
+        public FeedResult getResult() {
+            return result;
+        }
+
+        // time from the request starting to the result
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        // wall clock time the answer arrived which is how fresh the rates of this base are
+        public long getFetchedAtMs() {
+            return fetchedAtMs;
+        }
+    }
+
+    // feeds started together
+    public final class Batch {
+
+        private final Outcome[] outcomes;
+        private final CountDownLatch remaining;
+        private final long startNanos = System.nanoTime();
+
+        // run once the last feed has its outcome
+        // guarded by outcomes
+        private Consumer<Outcome[]> onDone;
+
+        Batch(int size) {
+            outcomes = new Outcome[size];
+            remaining = new CountDownLatch(size);
+        }
+
+        // waits for every feed and returns their outcomes in base order
+        // each feed is cancelled at its own deadline but one that waits for a free thread
+        // only starts its deadline then so a batch bigger than maxParallel can take a round
+        // of deadlines per extra round of feeds and a thread that must stay free should use whenDone
+        public Outcome[] await() throws InterruptedException {
+            remaining.await();
+            return outcomes;
+        }
+
+        // hands the outcomes in base order to the callback once every feed has one
+        // it runs on the download thread that finished the last feed
+        // or straight away on this thread when they all have already
+        // nothing waits so the caller can go straight back to its own work
+        public void whenDone(Consumer<Outcome[]> callback) {
+            boolean done;
+            synchronized (outcomes) {
+                done = remaining.getCount() == 0;
+                if (!done) {
+                    onDone = callback;
+                }
+            }
+            if (done) {
+                callback.accept(outcomes);
+            }
+        }
+
+        void finish(int index, Outcome outcome) {
+            Consumer<Outcome[]> callback = null;
+            synchronized (outcomes) {
+                outcomes[index] = outcome;
+                remaining.countDown();
+                if (remaining.getCount() == 0) {
+                    BATCH_TIME.recordSince(startNanos);
+                    callback = onDone;
+                }
+            }
+            if (callback != null) {
+                callback.accept(outcomes);
+            }
+        }
+    }
+
+    // one base downloaded and parsed on a pool thread
+    private final class Task implements Runnable {
+
+        private final Batch batch;
+        private final int index;
+        private final RateSnapshot known;
+        private final long traceId;
+        private final FeedCall call = new FeedCall();
+
+        // set by the watchdog before it cancels the call
+        private volatile boolean timedOut;
+
+        Task(Batch batch, int index, RateSnapshot known, long traceId) {
+            this.batch = batch;
+            this.index = index;
+            this.known = known;
+            this.traceId = traceId;
+        }
+
+        @Override
+        public void run() {
+            Tracer tracer = Tracer.getInstance();
+            long previousTrace = tracer.attach(traceId);
+            long startNanos = tracer.begin("MultiBaseFetcher.feed");
+
+            // the deadline starts when the request does so time spent queued is not held against it
+            ScheduledFuture<?> deadline = watchdog.schedule(() -> {
+                timedOut = true;
+                call.cancel();
+            }, feedDeadlineMs, TimeUnit.MILLISECONDS);
+
+            FeedResult answer = null;
+            long fetchedAtMs;
+            try {
+                boolean conditional = known != null && known.hasValidators();
+                answer = sources.get(index).fetch(
+                        conditional ? known.getEtag() : null,
+                        conditional ? known.getLastModified() : null,
+                        call);
+            } catch (Exception e) {
+                if (!call.isCancelled()) {
+                    e.printStackTrace();
+                }
+            } finally {
+                fetchedAtMs = System.currentTimeMillis();
+                deadline.cancel(false);
+                tracer.end("MultiBaseFetcher.feed", startNanos);
+                tracer.attach(previousTrace);
+            }
+
+            Status status;
+            if (timedOut) {
+                status = Status.TIMED_OUT;
+                answer = null;
+                TIMEOUTS.increment();
+            } else if (answer == null || !answer.isUsable()) {
+                status = Status.FAILED;
+                answer = null;
+                FAILURES.increment();
+            } else if (answer.isNotModified()) {
+                status = known != null ? Status.NOT_MODIFIED : Status.FAILED;
+                answer = null;
+            } else {
+                status = Status.OK;
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            FEED_TIME.record(elapsedNanos / 1_000L);
+            batch.finish(index, new Outcome(bases.get(index), status, answer,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), fetchedAtMs));
+        }
+    }
+}
@@ -0,0 +1,707 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// append only history of every feed the app has downloaded
+// each refresh adds one compressed block of (currency id, rate) pairs to a log file
+// most blocks only store how much each rate moved since the block before
+// every few blocks a keyframe stores full values and a small index points at the keyframes
+// so a query can jump close to the time it wants instead of reading the whole file
+//
+// log block layout, all big endian
+//   int   length of the rest of the block
+//   byte  kind, keyframe or delta
+//   long  timestamp ms
+//   int   payload length before compression
+//   bytes deflated payload: varint count then count times varint id and zigzag varint value
+// values are rates scaled to whole units of 1e-8
+//
+// index layout
+//   int magic, int version, long time of last compaction
+//   then one long timestamp and long log offset per keyframe
+public class RateHistoryStore {
+
+    // rates are stored as whole numbers of 1e-8
+    private static final int SCALE_DIGITS = 8;
+    private static final double SCALE = 100_000_000d;
+
+    // a full keyframe is written after this many delta blocks
+    private static final int KEYFRAME_INTERVAL = 24;
+
+    // blocks older than this are dropped when the log is compacted
+    public static final long RETENTION_MS = 180L * 24L * 60L * 60L * 1000L;
+
+    // blocks older than this are thinned to one per day when the log is compacted
+    public static final long FULL_RESOLUTION_MS = 30L * 24L * 60L * 60L * 1000L;
+
+    // how often append runs a compaction
+    private static final long COMPACT_INTERVAL_MS = 24L * 60L * 60L * 1000L;
+
+    private static final long DAY_MS = 24L * 60L * 60L * 1000L;
+
+    private static final byte KIND_KEYFRAME = 0;
+    private static final byte KIND_DELTA = 1;
+
+    private static final int INDEX_MAGIC = 0x46584849;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 16;
+
+    // bytes in front of the compressed payload of a block not counting the length field
+    private static final int BLOCK_HEADER_BYTES = 1 + 8 + 4;
+
+    // blocks claiming a bigger payload than this are treated as damaged
+    private static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+
+    private final File logFile;
+    private final File indexFile;
+    private final File dictionaryFile;
+
+    // currency codes by id and ids by code
+    private final List<String> codes = new ArrayList<>();
+    private final Map<String, Integer> idsByCode = new HashMap<>();
+
+    // keyframe timestamps and offsets loaded from the index
+    private long[] keyframeTimes = new long[16];
+    private long[] keyframeOffsets = new long[16];
+    private int keyframeCount;
+
+    // running values after the last block so the next delta can be written
+    private long[] lastValues = new long[0];
+    private boolean[] lastPresent = new boolean[0];
+    private long lastTimestamp = Long.MIN_VALUE;
+    private int blocksSinceKeyframe;
+    private long logLength;
+    private long lastCompactedMs;
+
+    // reused compressors
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+
+    // times and rates of one currency over a time range
+    public static final class RateSeries {
+        public final long[] timesMs;
+        public final double[] rates;
+        public final int size;
+
+        RateSeries(long[] timesMs, double[] rates, int size) {
+            this.timesMs = timesMs;
+            this.rates = rates;
+            this.size = size;
+        }
+    }
+
+    // opens the store in the given folder and creates it when it does not exist
+    public RateHistoryStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create history folder: " + directory);
+        }
+        logFile = new File(directory, "rates.log");
+        indexFile = new File(directory, "rates.idx");
+        dictionaryFile = new File(directory, "currencies.txt");
+
+        loadDictionary();
+        loadIndex();
+        recoverTail();
+    }
+
+    // adds one snapshot of rates to the end of the log
+    // snapshots that are not newer than the last one are ignored
+    public synchronized void append(long timestampMs, RateTable rates) throws IOException {
+        if (timestampMs <= lastTimestamp || rates.isEmpty()) {
+            return;
+        }
+
+        boolean keyframe = keyframeCount == 0 || blocksSinceKeyframe >= KEYFRAME_INTERVAL - 1;
+        byte[] block = encodeBlock(keyframe, timestampMs, rates);
+
+        long offset = logLength;
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(block);
+            out.getFD().sync();
+        }
+        logLength += block.length;
+        lastTimestamp = timestampMs;
+
+        if (keyframe) {
+            addKeyframe(timestampMs, offset);
+            appendIndexEntry(timestampMs, offset);
+            blocksSinceKeyframe = 0;
+        } else {
+            blocksSinceKeyframe++;
+        }
+
+        if (timestampMs - lastCompactedMs >= COMPACT_INTERVAL_MS) {
+            compact(timestampMs);
+        }
+    }
+
+    // returns every stored rate of one currency between from and to inclusive
+    public synchronized RateSeries range(String code, long fromMs, long toMs) throws IOException {
+        Integer id = idsByCode.get(code);
+        if (id == null || keyframeCount == 0 || toMs < fromMs) {
+            return new RateSeries(new long[0], new double[0], 0);
+        }
+
+        long[] times = new long[32];
+        double[] values = new double[32];
+        int size = 0;
+
+        BlockReader reader = new BlockReader(keyframeOffsets[floorKeyframe(fromMs)]);
+        try {
+            while (reader.next()) {
+                if (reader.timestamp > toMs) {
+                    break;
+                }
+                if (reader.timestamp >= fromMs && id < reader.present.length
+                        && reader.present[id]) {
+                    if (size == times.length) {
+                        times = Arrays.copyOf(times, size * 2);
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    times[size] = reader.timestamp;
+                    values[size] = reader.values[id] / SCALE;
+                    size++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return new RateSeries(times, values, size);
+    }
+
+    // returns every currency's rate from the last snapshot at or before the given time
+    // the map is empty when there is no snapshot that old
+    public synchronized Map<String, Double> at(long timeMs) throws IOException {
+        Map<String, Double> result = new LinkedHashMap<>();
+        if (keyframeCount == 0 || timeMs < keyframeTimes[0]) {
+            return result;
+        }
+
+        long[] values = null;
+        boolean[] present = null;
+        BlockReader reader = new BlockReader(keyframeOffsets[floorKeyframe(timeMs)]);
+        try {
+            while (reader.next() && reader.timestamp <= timeMs) {
+                values = reader.values.clone();
+                present = reader.present.clone();
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (values != null) {
+            for (int id = 0; id < present.length; id++) {
+                if (present[id]) {
+                    result.put(codes.get(id), values[id] / SCALE);
+                }
+            }
+        }
+        return result;
+    }
+
+    // rewrites the log without blocks past retention and with old blocks thinned to one per day
+    // keyframes are laid out again from scratch so the index stays sparse
+    public synchronized void compact(long nowMs) throws IOException {
+        try {
+            rewrite(nowMs);
+        } catch (IOException e) {
+            // the old files are still in place so reload the state that belongs to them
+            new File(logFile.getPath() + ".tmp").delete();
+            new File(indexFile.getPath() + ".tmp").delete();
+            loadIndex();
+            recoverTail();
+            throw e;
+        }
+    }
+
+    private void rewrite(long nowMs) throws IOException {
+        long dropBefore = nowMs - RETENTION_MS;
+        long thinBefore = nowMs - FULL_RESOLUTION_MS;
+
+        File tempLog = new File(logFile.getPath() + ".tmp");
+        File tempIndex = new File(indexFile.getPath() + ".tmp");
+
+        // reset the writer state so the rewritten blocks get fresh keyframes
+        keyframeCount = 0;
+        lastValues = new long[codes.size()];
+        lastPresent = new boolean[codes.size()];
+        blocksSinceKeyframe = 0;
+        lastTimestamp = Long.MIN_VALUE;
+
+        long newLength = 0;
+        long lastKeptDay = Long.MIN_VALUE;
+        BlockReader reader = new BlockReader(0);
+        try (FileOutputStream out = new FileOutputStream(tempLog)) {
+            while (reader.next()) {
+                long timestamp = reader.timestamp;
+                if (timestamp < dropBefore) {
+                    continue;
+                }
+                if (timestamp < thinBefore) {
+                    long day = Math.floorDiv(timestamp, DAY_MS);
+                    if (day == lastKeptDay) {
+                        continue;
+                    }
+                    lastKeptDay = day;
+                }
+
+                boolean keyframe = keyframeCount == 0
+                        || blocksSinceKeyframe >= KEYFRAME_INTERVAL - 1;
+                byte[] block = encodeBlock(keyframe, timestamp,
+                        reader.values, reader.present);
+                if (keyframe) {
+                    addKeyframe(timestamp, newLength);
+                    blocksSinceKeyframe = 0;
+                } else {
+                    blocksSinceKeyframe++;
+                }
+                out.write(block);
+                newLength += block.length;
+                lastTimestamp = timestamp;
+            }
+            out.getFD().sync();
+        } finally {
+            reader.close();
+        }
+
+        lastCompactedMs = nowMs;
+        writeIndex(tempIndex);
+
+        // the log goes first so a crash in between leaves an index that gets rebuilt on open
+        if (!tempLog.renameTo(logFile) || !tempIndex.renameTo(indexFile)) {
+            throw new IOException("Could not replace history files");
+        }
+        logLength = newLength;
+    }
+
+    // number of bytes the log takes on disk
+    public synchronized long getLogBytes() {
+        return logLength;
+    }
+
+    // index of the last keyframe at or before the time or zero when the time is before them all
+    private int floorKeyframe(long timeMs) {
+        int low = 0;
+        int high = keyframeCount - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keyframeTimes[mid] <= timeMs) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // builds one block from a feed and updates the running values
+    private byte[] encodeBlock(boolean keyframe, long timestampMs, RateTable rates)
+            throws IOException {
+        long[] values = new long[codes.size() + rates.size()];
+        boolean[] present = new boolean[values.length];
+        for (int row = 0; row < rates.size(); row++) {
+            // the log keeps its own ids because registry ids only last as long as the process
+            int id = idFor(rates.getCode(row));
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, id + 1);
+                present = Arrays.copyOf(present, id + 1);
+            }
+            values[id] = FixedDecimal.rescale(rates.getUnits(row), rates.getScale(row),
+                    SCALE_DIGITS, RoundingMode.HALF_EVEN);
+            present[id] = true;
+        }
+        return encodeBlock(keyframe, timestampMs, values, present);
+    }
+
+    // builds one block from values by id and updates the running values
+    private byte[] encodeBlock(boolean keyframe, long timestampMs, long[] values, boolean[] present) {
+        if (lastValues.length < values.length) {
+            lastValues = Arrays.copyOf(lastValues, values.length);
+            lastPresent = Arrays.copyOf(lastPresent, values.length);
+        }
+        if (keyframe) {
+            Arrays.fill(lastValues, 0L);
+            Arrays.fill(lastPresent, false);
+        }
+
+        int count = 0;
+        for (boolean p : present) {
+            if (p) {
+                count++;
+            }
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(8 + count * 6);
+        writeVarLong(raw, count);
+        for (int id = 0; id < present.length; id++) {
+            if (!present[id]) {
+                continue;
+            }
+            writeVarLong(raw, id);
+            // deltas are against the running value which is zero right after a keyframe
+            writeVarLong(raw, zigzag(values[id] - lastValues[id]));
+            lastValues[id] = values[id];
+            lastPresent[id] = true;
+        }
+        byte[] payload = raw.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2 + 16);
+        byte[] chunk = new byte[512];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(4 + BLOCK_HEADER_BYTES + compressed.size());
+        block.putInt(BLOCK_HEADER_BYTES + compressed.size());
+        block.put(keyframe ? KIND_KEYFRAME : KIND_DELTA);
+        block.putLong(timestampMs);
+        block.putInt(payload.length);
+        block.put(compressed.toByteArray());
+        return block.array();
+    }
+
+    // reads blocks one after another from a keyframe while keeping the running values
+    private final class BlockReader {
+        private final DataInputStream in;
+        private long position;
+
+        long timestamp;
+        long[] values = new long[codes.size()];
+        boolean[] present = new boolean[codes.size()];
+        long blockOffset;
+        boolean keyframe;
+
+        BlockReader(long offset) throws IOException {
+            FileInputStream file = new FileInputStream(logFile);
+            file.getChannel().position(offset);
+            in = new DataInputStream(new BufferedInputStream(file, 16 * 1024));
+            position = offset;
+        }
+
+        // moves to the next block and returns false at the end of the log
+        boolean next() throws IOException {
+            if (position >= logLength) {
+                return false;
+            }
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            if (length < BLOCK_HEADER_BYTES || position + 4 + length > logLength) {
+                throw new IOException("Torn history block at " + position);
+            }
+            blockOffset = position;
+            keyframe = in.readByte() == KIND_KEYFRAME;
+            timestamp = in.readLong();
+            int rawLength = in.readInt();
+            if (rawLength < 0 || rawLength > MAX_PAYLOAD_BYTES) {
+                throw new IOException("Damaged history block at " + blockOffset);
+            }
+            byte[] compressed = new byte[length - BLOCK_HEADER_BYTES];
+            in.readFully(compressed);
+            position += 4 + length;
+
+            byte[] payload = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(compressed);
+            try {
+                int done = 0;
+                while (done < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(payload, done, rawLength - done);
+                    // a cut or damaged stream wants more input than the block has and would spin
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Damaged history block at " + blockOffset);
+                    }
+                    done += inflated;
+                }
+                if (done != rawLength) {
+                    throw new IOException("Damaged history block at " + blockOffset);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Damaged history block at " + blockOffset, e);
+            }
+
+            if (keyframe) {
+                Arrays.fill(values, 0L);
+            }
+            Arrays.fill(present, false);
+
+            int[] cursor = {0};
+            long count = readVarLong(payload, cursor);
+            for (long i = 0; i < count; i++) {
+                long rawId = readVarLong(payload, cursor);
+                long delta = unzigzag(readVarLong(payload, cursor));
+                if (rawId < 0 || rawId >= codes.size()) {
+                    throw new IOException("Unknown currency in history block at " + blockOffset);
+                }
+                int id = (int) rawId;
+                if (id >= values.length) {
+                    values = Arrays.copyOf(values, id + 1);
+                    present = Arrays.copyOf(present, id + 1);
+                }
+                values[id] += delta;
+                present[id] = true;
+            }
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // reads the currency dictionary
+    private void loadDictionary() throws IOException {
+        if (!dictionaryFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(dictionaryFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                idsByCode.put(line, codes.size());
+                codes.add(line);
+            }
+        }
+    }
+
+    // returns the id for a code and appends it to the dictionary the first time it is seen
+    private int idFor(String code) throws IOException {
+        Integer id = idsByCode.get(code);
+        if (id != null) {
+            return id;
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(dictionaryFile, true), StandardCharsets.UTF_8)) {
+            writer.write(code);
+            writer.write('\n');
+        }
+        int newId = codes.size();
+        codes.add(code);
+        idsByCode.put(code, newId);
+        return newId;
+    }
+
+    // reads the keyframe index and rebuilds it from the log when it does not match
+    private void loadIndex() throws IOException {
+        logLength = logFile.isFile() ? logFile.length() : 0;
+        keyframeCount = 0;
+        lastCompactedMs = 0;
+
+        boolean valid = false;
+        if (indexFile.isFile() && indexFile.length() >= INDEX_HEADER_BYTES) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile)))) {
+                if (in.readInt() == INDEX_MAGIC && in.readInt() == INDEX_VERSION) {
+                    lastCompactedMs = in.readLong();
+                    long entries = (indexFile.length() - INDEX_HEADER_BYTES) / INDEX_ENTRY_BYTES;
+                    for (long i = 0; i < entries; i++) {
+                        addKeyframe(in.readLong(), in.readLong());
+                    }
+                    valid = keyframeCount == 0
+                            ? logLength == 0
+                            : lastKeyframeMatches();
+                }
+            }
+        }
+
+        // a store that has never been compacted counts from when it was opened
+        // otherwise the first append after every fresh index would rewrite the whole log
+        if (!valid || lastCompactedMs == 0) {
+            lastCompactedMs = System.currentTimeMillis();
+        }
+        if (!valid) {
+            rebuildIndex();
+        }
+    }
+
+    // true when the last index entry points at a keyframe with the same timestamp
+    // catches an index left over from before a compaction that did not finish
+    private boolean lastKeyframeMatches() throws IOException {
+        long offset = keyframeOffsets[keyframeCount - 1];
+        if (offset >= logLength) {
+            return false;
+        }
+        BlockReader reader = new BlockReader(offset);
+        try {
+            return reader.next() && reader.keyframe
+                    && reader.timestamp == keyframeTimes[keyframeCount - 1];
+        } catch (IOException e) {
+            return false;
+        } finally {
+            reader.close();
+        }
+    }
+
+    // scans the whole log for keyframes and writes a new index
+    private void rebuildIndex() throws IOException {
+        keyframeCount = 0;
+        if (logLength > 0) {
+            BlockReader reader = new BlockReader(0);
+            try {
+                while (reader.next()) {
+                    if (reader.keyframe) {
+                        addKeyframe(reader.timestamp, reader.blockOffset);
+                    }
+                }
+            } catch (IOException e) {
+                // a torn block at the end is cut off by recoverTail
+            } finally {
+                reader.close();
+            }
+        }
+        writeIndex(indexFile);
+    }
+
+    // replays the log from the last keyframe to restore the running values
+    // a block that was only half written before a crash is cut off
+    private void recoverTail() throws IOException {
+        lastValues = new long[codes.size()];
+        lastPresent = new boolean[codes.size()];
+        if (keyframeCount == 0) {
+            if (logLength > 0) {
+                truncateLog(0);
+            }
+            return;
+        }
+
+        long goodEnd = keyframeOffsets[keyframeCount - 1];
+        int blocks = -1;
+        BlockReader reader = new BlockReader(goodEnd);
+        try {
+            while (reader.next()) {
+                goodEnd = reader.position;
+                lastTimestamp = reader.timestamp;
+                lastValues = reader.values.clone();
+                lastPresent = reader.present.clone();
+                blocks++;
+            }
+        } catch (IOException e) {
+            // stop at the first block that cannot be read
+        } finally {
+            reader.close();
+        }
+        blocksSinceKeyframe = Math.max(0, blocks);
+
+        if (goodEnd < logLength) {
+            truncateLog(goodEnd);
+        }
+    }
+
+    private void truncateLog(long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(length);
+        }
+        logLength = length;
+    }
+
+    private void addKeyframe(long timestampMs, long offset) {
+        if (keyframeCount == keyframeTimes.length) {
+            keyframeTimes = Arrays.copyOf(keyframeTimes, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTimes[keyframeCount] = timestampMs;
+        keyframeOffsets[keyframeCount] = offset;
+        keyframeCount++;
+    }
+
+    private void appendIndexEntry(long timestampMs, long offset) throws IOException {
+        if (!indexFile.isFile()) {
+            writeIndex(indexFile);
+            return;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        entry.putLong(timestampMs);
+        entry.putLong(offset);
+        try (FileOutputStream out = new FileOutputStream(indexFile, true)) {
+            out.write(entry.array());
+        }
+    }
+
+    private void writeIndex(File target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(
+                INDEX_HEADER_BYTES + keyframeCount * INDEX_ENTRY_BYTES);
+        buffer.putInt(INDEX_MAGIC);
+        buffer.putInt(INDEX_VERSION);
+        buffer.putLong(lastCompactedMs);
+        for (int i = 0; i < keyframeCount; i++) {
+            buffer.putLong(keyframeTimes[i]);
+            buffer.putLong(keyframeOffsets[i]);
+        }
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            out.write(buffer.array());
+            out.getFD().sync();
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // throws when the number runs past the end of the payload or past 64 bits
+    // so a bad count or id in a damaged block is an IOException like any other damage
+    private static long readVarLong(byte[] bytes, int[] cursor) throws IOException {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            if (cursor[0] >= bytes.length || shift > 63) {
+                throw new IOException("Damaged history block");
+            }
+            byte b = bytes[cursor[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
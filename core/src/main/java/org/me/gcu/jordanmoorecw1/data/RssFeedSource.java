@@ -0,0 +1,84 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.IOException;
+import java.util.Locale;
+
+// feed source for any host serving the fx-exchange rss layout
+// the main feed and its mirrors all use this
+// every item has to be quoted against the expected base so a mirror that serves
+// another base or another layout counts as failed instead of replacing the saved rates
+public class RssFeedSource implements FeedSource {
+
+    private final String name;
+
+    // iso code every item title has to start with such as GBP
+    private final String baseIso;
+
+    // downloads the xml over the shared transport
+    private final FeedFetcher fetcher;
+
+    // parser keeps no state so one instance is shared by every call
+    private final RssParser parser = new RssParser();
+
+    // source of a gbp feed
+    public RssFeedSource(String name, String feedUrl, FeedTransport transport) {
+        this(name, feedUrl, "GBP", transport);
+    }
+
+    public RssFeedSource(String name, String feedUrl, String baseIso, FeedTransport transport) {
+        this.name = name;
+        this.baseIso = baseIso.toUpperCase(Locale.ROOT);
+        this.fetcher = new FeedFetcher(feedUrl, transport);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public FeedResult fetch(String ifNoneMatch, String ifModifiedSince, FeedCall call)
+            throws IOException {
+        FeedResponse response = fetcher.openFeed(ifNoneMatch, ifModifiedSince);
+        if (response == null) {
+            throw new IOException("Could not open feed from " + name);
+        }
+
+        // from here a cancel drops the connection and the parse below fails fast
+        call.attach(response);
+        try {
+            if (call.isCancelled()) {
+                return null;
+            }
+            if (response.isNotModified()) {
+                return FeedResult.notModified(name);
+            }
+
+            // parse the rates while the body is still downloading
+            ParsedFeed feed = parser.parse(response.getBody(), response.getCharset());
+            if (!quotesBase(feed.getRates(), baseIso)) {
+                return null;
+            }
+            return FeedResult.of(name, feed, response.getEtag(), response.getLastModified());
+        } finally {
+            response.close();
+        }
+    }
+
+    // true when every title reads like Base Name(XXX)/Other Name(YYY) with XXX the base
+    static boolean quotesBase(RateTable rates, String baseIso) {
+        for (int row = 0; row < rates.size(); row++) {
+            String title = rates.getTitle(row);
+            int slash = title.indexOf('/');
+            if (slash < 5 || title.charAt(slash - 1) != ')' || title.charAt(slash - 5) != '('
+                    || !title.regionMatches(true, slash - 4, baseIso, 0, 3)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
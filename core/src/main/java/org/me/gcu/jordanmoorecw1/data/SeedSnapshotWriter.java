@@ -0,0 +1,47 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// turns a saved feed into the seed snapshot the app ships in its assets
+// run by the app build so the seed is parsed and encoded by the same code that reads it back
+public final class SeedSnapshotWriter {
+
+    private SeedSnapshotWriter() {
+    }
+
+    // args are the feed xml and the snapshot file to write
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SeedSnapshotWriter <feed.xml> <out.bin>");
+        }
+        File target = new File(args[1]);
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        try (InputStream in = new FileInputStream(args[0]);
+             OutputStream out = new FileOutputStream(target)) {
+            out.write(encode(in));
+        }
+    }
+
+    // parses the feed and encodes it as a snapshot
+    // fetched at is unknown so the seed always counts as stale and is checked straight away
+    static byte[] encode(InputStream feedXml) throws IOException {
+        ParsedFeed feed = new RssParser().parse(feedXml, StandardCharsets.UTF_8);
+        if (feed.isEmpty()) {
+            throw new IOException("No rates in the seed feed");
+        }
+        return SnapshotStore.encode(new RateSnapshot(feed, 0L, null, null));
+    }
+}
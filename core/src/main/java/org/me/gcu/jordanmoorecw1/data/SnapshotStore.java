@@ -0,0 +1,272 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// stores the last parsed snapshot in a small binary file
+// loading it is one file read and a walk over the bytes with no xml parsing
+//
+// file layout, all big endian
+//   int   magic
+//   short format version
+//   short reserved
+//   int   payload length
+//   int   crc32 of the payload
+//   payload:
+//     long  fetched at ms
+//     str   feed published date
+//     str   etag or empty
+//     str   last modified or empty
+//     str   name of the source the validators came from or empty
+//     int   rate count
+//     count times: str code, str title, long rate units, byte rate scale
+// where str is an unsigned short byte length followed by utf 8 bytes
+// version 1 files held a double rate instead and are still read so an update keeps the cache
+// version 2 files had no source name and are read with none so their validators are not sent
+public class SnapshotStore {
+
+    // marks the file as one of ours
+    static final int MAGIC = 0x46585253;
+
+    // bump this whenever the payload layout changes so old files are ignored
+    static final int VERSION = 3;
+
+    // layout with double rates from before rates were fixed point
+    private static final int VERSION_DOUBLE_RATES = 1;
+
+    // layout from before the source of the validators was kept
+    private static final int VERSION_NO_SOURCE = 2;
+
+    // size of the fixed header in front of the payload
+    private static final int HEADER_BYTES = 16;
+
+    // files bigger than this are treated as corrupt instead of being read into memory
+    private static final int MAX_FILE_BYTES = 4 * 1024 * 1024;
+
+    // file the snapshot lives in
+    private final File file;
+
+    public SnapshotStore(File file) {
+        this.file = file;
+    }
+
+    // writes the snapshot to a temp file and renames it over the old one
+    // readers see either the old snapshot or the new one and never half a file
+    public void write(RateSnapshot snapshot) throws IOException {
+        byte[] bytes = encode(snapshot);
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(bytes);
+            // make sure the bytes are on disk before the rename makes them live
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not move snapshot into place: " + file);
+        }
+    }
+
+    // reads the snapshot back
+    // returns null when there is no file or it is from another version or fails its checksum
+    public RateSnapshot read() {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long size = in.length();
+            if (size < HEADER_BYTES || size > MAX_FILE_BYTES) {
+                return null;
+            }
+
+            // one read of the whole file into one buffer
+            byte[] bytes = new byte[(int) size];
+            in.readFully(bytes);
+            return decode(bytes, bytes.length);
+
+        } catch (Exception e) {
+            // a damaged file is the same as no file
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // reads a snapshot in the same layout from a stream such as the seed in the apk assets
+    // returns null when the bytes are not a valid snapshot
+    public static RateSnapshot read(InputStream in) {
+        try {
+            byte[] bytes = new byte[8192];
+            int size = 0;
+            int read;
+            while ((read = in.read(bytes, size, bytes.length - size)) != -1) {
+                size += read;
+                if (size == bytes.length) {
+                    if (size >= MAX_FILE_BYTES) {
+                        return null;
+                    }
+                    bytes = Arrays.copyOf(bytes, size * 2);
+                }
+            }
+            return decode(bytes, size);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // header and payload of a snapshot exactly as they are written to the file
+    static byte[] encode(RateSnapshot snapshot) throws IOException {
+        byte[] payload = encodePayload(snapshot);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    // checks the header and checksum and decodes the payload
+    // returns null when the bytes are from another version or fail their checksum
+    static RateSnapshot decode(byte[] bytes, int size) {
+        if (size < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int version = buffer.getShort();
+        if (version < VERSION_DOUBLE_RATES || version > VERSION) {
+            return null;
+        }
+        buffer.getShort();
+        int payloadLength = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (payloadLength != size - HEADER_BYTES) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, payloadLength);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        return decodePayload(buffer, version);
+    }
+
+    // removes the snapshot file
+    public void delete() {
+        file.delete();
+    }
+
+    private static byte[] encodePayload(RateSnapshot snapshot) throws IOException {
+        ParsedFeed feed = snapshot.getFeed();
+        RateTable rates = feed.getRates();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rates.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(snapshot.getFetchedAtMs());
+        writeString(out, feed.getLastUpdated());
+        writeString(out, snapshot.getEtag());
+        writeString(out, snapshot.getLastModified());
+        writeString(out, snapshot.getSourceName());
+        out.writeInt(rates.size());
+        for (int row = 0; row < rates.size(); row++) {
+            writeString(out, rates.getCode(row));
+            writeString(out, rates.getTitle(row));
+            out.writeLong(rates.getUnits(row));
+            out.writeByte(rates.getScale(row));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static RateSnapshot decodePayload(ByteBuffer in, int version) {
+        long fetchedAtMs = in.getLong();
+        String lastUpdated = readString(in);
+        String etag = emptyToNull(readString(in));
+        String lastModified = emptyToNull(readString(in));
+        String sourceName = version > VERSION_NO_SOURCE ? emptyToNull(readString(in)) : null;
+
+        int count = in.getInt();
+        CurrencyRegistry registry = CurrencyRegistry.getInstance();
+        RateTable.Builder rates = new RateTable.Builder(count);
+        for (int i = 0; i < count; i++) {
+            String code = readString(in);
+            String title = readString(in);
+            int id = registry.intern(code, title);
+            if (version == VERSION_DOUBLE_RATES) {
+                addDoubleRate(rates, id, in.getDouble());
+            } else {
+                rates.add(id, in.getLong(), in.get());
+            }
+        }
+
+        return new RateSnapshot(new ParsedFeed(rates.build(), lastUpdated),
+                fetchedAtMs, etag, lastModified, sourceName);
+    }
+
+    // turns a rate from a version 1 file back into the decimal the feed most likely wrote
+    // only runs once after an update so the BigDecimal here does not matter
+    private static void addDoubleRate(RateTable.Builder rates, int id, double rate) {
+        BigDecimal value = BigDecimal.valueOf(rate).stripTrailingZeros();
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        } else if (value.scale() > FixedDecimal.MAX_SCALE) {
+            value = value.setScale(FixedDecimal.MAX_SCALE, RoundingMode.HALF_EVEN);
+        }
+        rates.add(id, value.unscaledValue().longValueExact(), value.scale());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (utf8.length > 0xFFFF) {
+            throw new IOException("String too long for snapshot: " + utf8.length);
+        }
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    // decodes the string straight out of the file buffer
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
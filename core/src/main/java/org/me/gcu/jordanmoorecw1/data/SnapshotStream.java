@@ -0,0 +1,86 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+// stream of snapshot events with any number of subscribers
+// a new subscriber gets the latest event straight away
+// events are conflated per subscriber so one that falls behind only gets the newest
+public final class SnapshotStream {
+
+    // receives events on the executor it subscribed with
+    public interface Subscriber {
+        void onSnapshot(SnapshotEvent event);
+    }
+
+    // one subscriber and the event waiting for it
+    public final class Subscription {
+        private final Executor executor;
+        private final Subscriber subscriber;
+
+        // newest event not yet handed over or null when there is none
+        private final AtomicReference<SnapshotEvent> pending = new AtomicReference<>();
+
+        private volatile boolean closed;
+
+        Subscription(Executor executor, Subscriber subscriber) {
+            this.executor = executor;
+            this.subscriber = subscriber;
+        }
+
+        // replaces whatever is waiting and only schedules a hand over when nothing was
+        void offer(SnapshotEvent event) {
+            if (pending.getAndSet(event) == null) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            SnapshotEvent event = pending.getAndSet(null);
+            if (event != null && !closed) {
+                subscriber.onSnapshot(event);
+            }
+        }
+
+        // stops the events and drops any that is waiting
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // newest event or null before the first one
+    private volatile SnapshotEvent latest;
+
+    // adds a subscriber that gets events on the given executor
+    // the executor has to run tasks in order such as the main thread or a single thread
+    public synchronized Subscription subscribe(Executor executor, Subscriber subscriber) {
+        Subscription subscription = new Subscription(executor, subscriber);
+        subscriptions.add(subscription);
+        SnapshotEvent current = latest;
+        if (current != null) {
+            subscription.offer(current);
+        }
+        return subscription;
+    }
+
+    // sends an event to every subscriber
+    // synchronized with subscribe so a new subscriber never gets an older event after a newer one
+    public synchronized void publish(SnapshotEvent event) {
+        latest = event;
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    // newest event or null before the first one
+    public SnapshotEvent getLatest() {
+        return latest;
+    }
+}
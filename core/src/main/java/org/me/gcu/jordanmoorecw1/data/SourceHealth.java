@@ -0,0 +1,93 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import java.util.Arrays;
+
+// recent latency and error record of one feed source
+// used to pick the primary source and to decide how long to wait before hedging
+public final class SourceHealth {
+
+    // how many recent latencies are kept
+    static final int WINDOW = 32;
+
+    // weight of the newest outcome in the error rate
+    private static final double ERROR_ALPHA = 0.25;
+
+    // latency assumed for a source that has never answered
+    static final long UNKNOWN_LATENCY_MS = 1_000L;
+
+    // how much a fully failing source is penalised in its score
+    private static final double ERROR_PENALTY = 10.0;
+
+    // ring of recent latencies in milliseconds
+    private final long[] latencies = new long[WINDOW];
+    private int count;
+    private int next;
+
+    // moving share of attempts that failed between 0 and 1
+    private double errorRate;
+
+    private long successes;
+    private long failures;
+
+    // records a usable answer and how long it took
+    public synchronized void recordSuccess(long latencyMs) {
+        addLatency(latencyMs);
+        errorRate = (1.0 - ERROR_ALPHA) * errorRate;
+        successes++;
+    }
+
+    // records an attempt that failed or gave nothing usable
+    public synchronized void recordFailure() {
+        errorRate = (1.0 - ERROR_ALPHA) * errorRate + ERROR_ALPHA;
+        failures++;
+    }
+
+    // records an attempt that was cancelled because another source won
+    // the time it had taken so far is a lower bound of its latency so it still counts
+    public synchronized void recordCancelled(long elapsedMs) {
+        addLatency(elapsedMs);
+    }
+
+    // latency at the given percentile between 0 and 1 or -1 when nothing has been recorded
+    public synchronized long percentile(double p) {
+        if (count == 0) {
+            return -1L;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    // number of latencies currently held
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    public synchronized long getSuccesses() {
+        return successes;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    // lower is better
+    // the median latency scaled up by how often the source has been failing lately
+    public synchronized double score() {
+        long median = count == 0 ? UNKNOWN_LATENCY_MS : percentile(0.5);
+        return median * (1.0 + ERROR_PENALTY * errorRate);
+    }
+
+    private void addLatency(long latencyMs) {
+        latencies[next] = latencyMs;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+    }
+}
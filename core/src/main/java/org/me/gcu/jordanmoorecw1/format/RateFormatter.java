@@ -0,0 +1,152 @@
+package org.me.gcu.jordanmoorecw1.format;
+
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Locale;
+
+// writes fixed point numbers as text into one reused char buffer
+// the separators and digits come from the locale once when the formatter is made
+// so formatting a number allocates nothing and the buffer can go straight to TextView.setText(char[], int, int)
+// not thread safe so use one instance from one thread
+public final class RateFormatter {
+
+    // digits after the point used for a currency with no digits of its own
+    public static final int DEFAULT_DIGITS = 4;
+
+    // longest text a long can need which is a sign 19 digits their group separators a point and 18 digits
+    private static final int MAX_CHARS = 1 + 19 + 18 + 1 + FixedDecimal.MAX_SCALE;
+
+    // the text is built backwards in the second half and then moved to the start
+    private final char[] buffer = new char[MAX_CHARS * 2];
+
+    // number of chars of the last result
+    private int length;
+
+    private final char zeroDigit;
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final char minusSign;
+
+    // digits between group separators or 0 for no grouping
+    private final int groupingSize;
+
+    // digits after the point by currency id or -1 for DEFAULT_DIGITS
+    private byte[] digitsById = new byte[0];
+
+    // formatter with the separators of the locale and grouping when grouped is true
+    public RateFormatter(Locale locale, boolean grouped) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        zeroDigit = symbols.getZeroDigit();
+        decimalSeparator = symbols.getDecimalSeparator();
+        groupingSeparator = symbols.getGroupingSeparator();
+        minusSign = symbols.getMinusSign();
+
+        int size = 0;
+        if (grouped) {
+            NumberFormat format = NumberFormat.getInstance(locale);
+            size = format instanceof DecimalFormat ? ((DecimalFormat) format).getGroupingSize() : 3;
+        }
+        groupingSize = size;
+    }
+
+    // sets how many digits after the point a currency is shown with
+    public void setDigits(int currencyId, int digits) {
+        if (digits < 0 || digits > FixedDecimal.MAX_SCALE) {
+            throw new IllegalArgumentException("Bad digits " + digits);
+        }
+        if (currencyId >= digitsById.length) {
+            int oldLength = digitsById.length;
+            digitsById = Arrays.copyOf(digitsById, Math.max(currencyId + 1, oldLength * 2));
+            Arrays.fill(digitsById, oldLength, digitsById.length, (byte) -1);
+        }
+        digitsById[currencyId] = (byte) digits;
+    }
+
+    // digits after the point of a currency
+    // ids that were never set such as CurrencyRegistry.NO_ID get DEFAULT_DIGITS
+    public int getDigits(int currencyId) {
+        if (currencyId < 0 || currencyId >= digitsById.length || digitsById[currencyId] < 0) {
+            return DEFAULT_DIGITS;
+        }
+        return digitsById[currencyId];
+    }
+
+    // formats a value with the digits of a currency rounding half even
+    // returns the number of chars which start at 0 in getBuffer
+    public int formatFor(int currencyId, long units, int scale) {
+        return format(units, scale, getDigits(currencyId), RoundingMode.HALF_EVEN);
+    }
+
+    // formats a value with the given digits after the point rounding with the mode
+    // returns the number of chars which start at 0 in getBuffer
+    public int format(long units, int scale, int digits, RoundingMode mode) {
+        if (digits < 0 || digits > FixedDecimal.MAX_SCALE) {
+            throw new IllegalArgumentException("Bad digits " + digits);
+        }
+        // extra digits are written as zeros so widening never has to multiply
+        int padding = Math.max(digits - scale, 0);
+        long value = padding > 0 ? units : FixedDecimal.rescale(units, scale, digits, mode);
+        if (value == Long.MIN_VALUE) {
+            throw new ArithmeticException("Value too large to format");
+        }
+        boolean negative = value < 0;
+        long magnitude = Math.abs(value);
+
+        // fraction digits then the whole part from the right with a separator every group
+        int pos = buffer.length;
+        for (int i = 0; i < padding; i++) {
+            buffer[--pos] = zeroDigit;
+        }
+        for (int i = padding; i < digits; i++) {
+            buffer[--pos] = (char) (zeroDigit + (int) (magnitude % 10));
+            magnitude /= 10;
+        }
+        if (digits > 0) {
+            buffer[--pos] = decimalSeparator;
+        }
+        int written = 0;
+        do {
+            if (groupingSize > 0 && written > 0 && written % groupingSize == 0) {
+                buffer[--pos] = groupingSeparator;
+            }
+            buffer[--pos] = (char) (zeroDigit + (int) (magnitude % 10));
+            magnitude /= 10;
+            written++;
+        } while (magnitude != 0);
+        if (negative) {
+            buffer[--pos] = minusSign;
+        }
+
+        length = buffer.length - pos;
+        System.arraycopy(buffer, pos, buffer, 0, length);
+        return length;
+    }
+
+    // chars of the last result from 0 up to getLength
+    // the contents change on the next format call
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    // number of chars of the last result
+    public int getLength() {
+        return length;
+    }
+
+    // copies the last result into target at offset and returns the number of chars copied
+    public int copyTo(char[] target, int offset) {
+        System.arraycopy(buffer, 0, target, offset, length);
+        return length;
+    }
+
+    // the last result as a string which allocates so keep it off hot paths
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
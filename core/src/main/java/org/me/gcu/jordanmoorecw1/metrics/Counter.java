@@ -0,0 +1,41 @@
+package org.me.gcu.jordanmoorecw1.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// running count that any thread can add to without locking
+// threads add to their own cell so hot counters do not fight over one cache line
+public final class Counter {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    // total so far
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + get();
+    }
+}
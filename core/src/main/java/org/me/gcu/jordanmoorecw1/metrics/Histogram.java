@@ -0,0 +1,130 @@
+package org.me.gcu.jordanmoorecw1.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// counts of values in fixed power of two buckets
+// bucket 0 holds 0 and bucket i holds values from 2^(i-1) up to 2^i - 1
+// so finding the bucket is one leading zeros count and recording never locks or allocates
+// the buckets are read one by one so a dump taken while values arrive can be a few values apart
+public final class Histogram {
+
+    // units the values are recorded in
+    public static final String MICROS = "us";
+    public static final String BYTES = "bytes";
+    public static final String ITEMS = "items";
+    public static final String SECONDS = "s";
+
+    // the last bucket also holds everything above 2^30 which is 17 minutes in micros
+    public static final int BUCKETS = 32;
+
+    private final String name;
+    private final String unit;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    // adds one value where negative values count as 0
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        // only a new largest value has to write the max
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // another thread moved the max so look again
+        }
+    }
+
+    // records the micros since a System.nanoTime reading and returns the time now
+    // so back to back stages can chain their start times
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record((now - startNanos) / 1_000L);
+        return now;
+    }
+
+    // bucket a value falls into
+    static int bucketOf(long value) {
+        return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+    }
+
+    // largest value a bucket holds
+    public static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    // number of values in a bucket
+    public long getBucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    // number of values recorded
+    public long getCount() {
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total += counts.get(bucket);
+        }
+        return total;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // value at or below which the fraction of values fall
+    // this is the upper bound of the bucket so it can be up to twice the real value
+    // capped at the max so a single bucket does not report more than was seen
+    public long getPercentile(double fraction) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        long count = getCount();
+        return String.format(Locale.US, "%s n=%d mean=%d p50=%d p90=%d p99=%d max=%d %s",
+                name, count, count > 0 ? getSum() / count : 0,
+                getPercentile(0.5), getPercentile(0.9), getPercentile(0.99), getMax(), unit);
+    }
+}
@@ -0,0 +1,133 @@
+package org.me.gcu.jordanmoorecw1.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// counters and latency histograms for every stage of the refresh pipeline
+// call sites look their metrics up once into static fields so recording is only the metric itself
+// recording is a few atomic adds so it stays on in release builds
+// names are stage dot measure such as fetch.ttfb or cache.hits
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // gets the counter with this name and makes it the first time
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    // gets the histogram with this name and makes it the first time
+    // the unit is only used the first time
+    public Histogram histogram(String name, String unit) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(key, unit));
+    }
+
+    // every counter sorted by name
+    public List<Counter> getCounters() {
+        List<Counter> list = new ArrayList<>(counters.values());
+        Collections.sort(list, Comparator.comparing(Counter::getName));
+        return list;
+    }
+
+    // every histogram sorted by name
+    public List<Histogram> getHistograms() {
+        List<Histogram> list = new ArrayList<>(histograms.values());
+        Collections.sort(list, Comparator.comparing(Histogram::getName));
+        return list;
+    }
+
+    // sets every metric back to zero
+    // the metrics stay registered so the fields holding them keep working
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // every metric as one json object
+    // histograms list only their non empty buckets as pairs of upper bound and count
+    public String toJson() {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"capturedAtMs\":").append(System.currentTimeMillis());
+
+        json.append(",\"counters\":{");
+        boolean first = true;
+        for (Counter counter : getCounters()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, counter.getName());
+            json.append(':').append(counter.get());
+        }
+        json.append('}');
+
+        json.append(",\"histograms\":{");
+        first = true;
+        for (Histogram histogram : getHistograms()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, histogram.getName());
+            json.append(":{\"unit\":");
+            appendString(json, histogram.getUnit());
+            json.append(",\"count\":").append(histogram.getCount())
+                    .append(",\"sum\":").append(histogram.getSum())
+                    .append(",\"max\":").append(histogram.getMax())
+                    .append(",\"p50\":").append(histogram.getPercentile(0.5))
+                    .append(",\"p90\":").append(histogram.getPercentile(0.9))
+                    .append(",\"p99\":").append(histogram.getPercentile(0.99))
+                    .append(",\"buckets\":[");
+            boolean firstBucket = true;
+            for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++) {
+                long count = histogram.getBucketCount(bucket);
+                if (count == 0) {
+                    continue;
+                }
+                if (!firstBucket) {
+                    json.append(',');
+                }
+                firstBucket = false;
+                json.append('[').append(Histogram.upperBound(bucket))
+                        .append(',').append(count).append(']');
+            }
+            json.append("]}");
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    // adds a quoted json string
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,132 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// any to any conversion rates worked out from one gbp based rate table
+// a slot is a row of the table plus one extra slot for gbp itself
+// each row of the pair matrix is only filled the first time a rate from that slot is asked for
+// after that a pair rate is two array reads
+// conversions skip the matrix since a rounded pair rate loses digits a large amount shows
+// they divide by the from rate straight from the table instead and round once
+// a new table gets a new instance so there is nothing to invalidate by hand
+// all of it is fixed point so the same inputs always give the same digits
+public final class CrossRates {
+
+    // digits after the point of the pair rates in the matrix
+    public static final int RATE_SCALE = 10;
+
+    // rounding used for the pair rates
+    public static final RoundingMode RATE_ROUNDING = RoundingMode.HALF_EVEN;
+
+    // iso code of the currency the feed is based on
+    public static final String BASE_ISO = "GBP";
+
+    // slot returned when a currency is not in the table
+    public static final int NO_SLOT = -1;
+
+    // table the rates came from
+    private final RateTable table;
+
+    // units of each slot per one gbp as fixed point with gbp itself in the last slot
+    private final long[] perBaseUnits;
+    private final byte[] perBaseScales;
+
+    // matrix rows by from slot filled lazily with pair rates at RATE_SCALE
+    private final AtomicReferenceArray<long[]> matrix;
+
+    CrossRates(RateTable table) {
+        this.table = table;
+        int size = table.size();
+        perBaseUnits = new long[size + 1];
+        perBaseScales = new byte[size + 1];
+        for (int row = 0; row < size; row++) {
+            perBaseUnits[row] = table.getUnits(row);
+            perBaseScales[row] = (byte) table.getScale(row);
+        }
+        // one gbp per gbp
+        perBaseUnits[size] = 1L;
+        matrix = new AtomicReferenceArray<>(size + 1);
+    }
+
+    // gets the table these rates belong to
+    public RateTable getTable() {
+        return table;
+    }
+
+    // number of slots which is the number of table rows plus gbp
+    public int size() {
+        return perBaseUnits.length;
+    }
+
+    // slot of gbp
+    public int baseSlot() {
+        return perBaseUnits.length - 1;
+    }
+
+    // slot of a three letter iso code or NO_SLOT when it is not in the table
+    public int slotOf(String isoCode) {
+        if (isoCode == null) {
+            return NO_SLOT;
+        }
+        int row = table.indexOf(isoCode);
+        if (row >= 0) {
+            return row;
+        }
+        return BASE_ISO.equalsIgnoreCase(isoCode) ? baseSlot() : NO_SLOT;
+    }
+
+    // iso code of a slot
+    public String isoCodeOf(int slot) {
+        return slot == baseSlot() ? BASE_ISO : table.getIsoCode(slot);
+    }
+
+    // units of the to currency for one unit of the from currency at RATE_SCALE
+    // rounded so it is for showing the rate and not for converting amounts
+    public long rate(int fromSlot, int toSlot) {
+        return row(fromSlot)[toSlot];
+    }
+
+    // converts an amount between two slots and returns the result at resultScale
+    // amount x to rate / from rate with both rates as the feed wrote them and one rounding
+    public long convert(long amountUnits, int amountScale, int fromSlot, int toSlot,
+                        int resultScale, RoundingMode mode) {
+        return FixedDecimal.multiplyDivide(amountUnits, amountScale,
+                perBaseUnits[toSlot], perBaseScales[toSlot],
+                perBaseUnits[fromSlot], perBaseScales[fromSlot], resultScale, mode);
+    }
+
+    // fills pair with the exact rate between two slots as two packed values
+    // pair[0] over pair[1] is the to currency per one of the from currency
+    // so a converter can look the pair up once and convert each amount with convert below
+    public void quote(int fromSlot, int toSlot, long[] pair) {
+        pair[0] = FixedDecimal.pack(perBaseUnits[toSlot], perBaseScales[toSlot]);
+        pair[1] = FixedDecimal.pack(perBaseUnits[fromSlot], perBaseScales[fromSlot]);
+    }
+
+    // converts an amount with a pair filled by quote or MultiBaseRates.quote
+    // one 128 bit multiply divide so the only rounding is to resultScale
+    public static long convert(long amountUnits, int amountScale, long[] pair, int resultScale,
+                               RoundingMode mode) {
+        return FixedDecimal.multiplyDivide(amountUnits, amountScale,
+                FixedDecimal.units(pair[0]), FixedDecimal.scale(pair[0]),
+                FixedDecimal.units(pair[1]), FixedDecimal.scale(pair[1]), resultScale, mode);
+    }
+
+    // every pair rate from one slot at RATE_SCALE filled on first use
+    // two threads may both build the same row which is harmless since they get the same numbers
+    public long[] row(int fromSlot) {
+        long[] row = matrix.get(fromSlot);
+        if (row == null) {
+            row = new long[perBaseUnits.length];
+            long from = perBaseUnits[fromSlot];
+            int fromScale = perBaseScales[fromSlot];
+            for (int to = 0; to < row.length; to++) {
+                row[to] = FixedDecimal.multiplyDivide(perBaseUnits[to], perBaseScales[to],
+                        1L, 0, from, fromScale, RATE_SCALE, RATE_ROUNDING);
+            }
+            matrix.set(fromSlot, row);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,265 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// gives every currency the app has seen a small int id for the life of the process
+// the code title and iso code strings are made once per currency instead of once per refresh
+// rate tables only hold the ids so they stay small and can be shared between screens
+// currencies known at build time can be seeded so their id is also their index in the metadata table
+public final class CurrencyRegistry {
+
+    // id returned when a currency is not known
+    public static final int NO_ID = -1;
+
+    private static final CurrencyRegistry INSTANCE = new CurrencyRegistry();
+
+    // strings by id
+    // an array is never written once it is published so every change copies it first
+    // the getters read without the lock and the volatile write is what makes the new strings visible
+    private volatile String[] codes = new String[64];
+    private volatile String[] titles = new String[64];
+    private volatile String[] isoCodes = new String[64];
+    private volatile int size;
+
+    // english names of the seeded currencies by id
+    // set once by seed and never written again
+    private volatile String[] displayNames = new String[0];
+
+    // open addressing table of ids keyed by the hash of the full code
+    // lets the scanner find an id straight from its char buffer without making a string
+    private int[] slots = newSlots(128);
+
+    // ids by three letter iso code
+    private final Map<String, Integer> idsByIso = new HashMap<>();
+
+    private CurrencyRegistry() {
+    }
+
+    // gets the registry shared by the whole app
+    public static CurrencyRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // reserves ids 0 up to the number of codes for the given iso codes in that order
+    // with the display name of each at the same index
+    // must be called before anything is interned and later calls are ignored
+    public synchronized void seed(String[] seededIsoCodes, String[] seededNames) {
+        if (seededNames.length != seededIsoCodes.length) {
+            throw new IllegalArgumentException("Every seeded currency needs one name");
+        }
+        if (size != 0) {
+            return;
+        }
+        int capacity = codes.length;
+        while (capacity < seededIsoCodes.length) {
+            capacity *= 2;
+        }
+        String[] newIso = new String[capacity];
+        for (int id = 0; id < seededIsoCodes.length; id++) {
+            newIso[id] = seededIsoCodes[id];
+            idsByIso.put(seededIsoCodes[id], id);
+        }
+        codes = new String[capacity];
+        titles = new String[capacity];
+        isoCodes = newIso;
+        displayNames = seededNames.clone();
+        size = seededIsoCodes.length;
+        rehash(Math.max(slots.length, Integer.highestOneBit(Math.max(size, 1)) * 4));
+    }
+
+    // returns the id for a code and title and adds the currency the first time it is seen
+    public synchronized int intern(String code, String title) {
+        int slot = findSlot(code);
+        int id = slots[slot];
+        if (id == NO_ID) {
+            return add(slot, code, title);
+        }
+        if (title != null && !title.equals(titles[id])) {
+            titles = with(titles, id, title, titles.length);
+        }
+        return id;
+    }
+
+    // same as above but reads the code and title straight out of char buffers
+    // no strings are made unless the currency is new or its title changed
+    public synchronized int intern(char[] code, int codeLength,
+                                   char[] titleBuffer, int titleStart, int titleEnd) {
+        int slot = findSlot(code, codeLength, hash(code, codeLength));
+        int id = slots[slot];
+        if (id == NO_ID) {
+            return add(slot, new String(code, 0, codeLength),
+                    new String(titleBuffer, titleStart, titleEnd - titleStart));
+        }
+        if (!regionEquals(titles[id], titleBuffer, titleStart, titleEnd)) {
+            titles = with(titles, id,
+                    new String(titleBuffer, titleStart, titleEnd - titleStart), titles.length);
+        }
+        return id;
+    }
+
+    // gets the id for a full code like UNITEDSTATESDOLLAR(USD) or NO_ID
+    public synchronized int findByCode(String code) {
+        return slots[findSlot(code)];
+    }
+
+    // gets the id for a three letter iso code like USD or NO_ID
+    public synchronized int findByIso(String isoCode) {
+        Integer id = idsByIso.get(isoCode.toUpperCase(Locale.ROOT));
+        return id != null ? id : NO_ID;
+    }
+
+    // gets the full code text
+    public String getCode(int id) {
+        return codes[id];
+    }
+
+    // gets the title the feed last used for this currency
+    public String getTitle(int id) {
+        return titles[id];
+    }
+
+    // gets the three letter iso code
+    public String getIsoCode(int id) {
+        return isoCodes[id];
+    }
+
+    // gets the english name from the build time metadata or null when the currency was not seeded
+    public String getDisplayName(int id) {
+        String[] names = displayNames;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    // one more than the highest id handed out or reserved
+    public int size() {
+        return size;
+    }
+
+    private int add(int slot, String code, String title) {
+        String iso = isoCodeOf(code);
+
+        // a seeded currency seen for the first time takes its reserved id
+        Integer seeded = idsByIso.get(iso);
+        if (seeded != null && codes[seeded] == null) {
+            // title before code so a reader that finds the code also finds its title
+            titles = with(titles, seeded, title, titles.length);
+            codes = with(codes, seeded, code, codes.length);
+            slots[slot] = seeded;
+            return seeded;
+        }
+
+        // new ids only show up once size moves past them so the arrays go first
+        int id = size;
+        int length = id == codes.length ? id * 2 : codes.length;
+        codes = with(codes, id, code, length);
+        titles = with(titles, id, title, length);
+        isoCodes = with(isoCodes, id, iso, length);
+        slots[slot] = id;
+        idsByIso.putIfAbsent(iso, id);
+        size = id + 1;
+
+        // keep the table at most half full so probes stay short
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        int[] newSlots = newSlots(capacity);
+        for (int id = 0; id < size; id++) {
+            if (codes[id] == null) {
+                // seeded id that has not been seen in a feed yet
+                continue;
+            }
+            int slot = hash(codes[id]) & (capacity - 1);
+            while (newSlots[slot] != NO_ID) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            newSlots[slot] = id;
+        }
+        slots = newSlots;
+    }
+
+    // slot holding the code or the empty slot where it would go
+    private int findSlot(String code) {
+        int mask = slots.length - 1;
+        int slot = hash(code) & mask;
+        while (slots[slot] != NO_ID && !code.equals(codes[slots[slot]])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findSlot(char[] code, int codeLength, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != NO_ID && !regionEquals(codes[slots[slot]], code, 0, codeLength)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // same hash for a string and a char buffer so both intern methods land on the same slot
+    private static int hash(String text) {
+        int h = 0;
+        for (int i = 0; i < text.length(); i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return spread(h);
+    }
+
+    private static int hash(char[] text, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + text[i];
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean regionEquals(String value, char[] chars, int start, int end) {
+        if (value == null || value.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i - start) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // copy of the array at the given length with one string set
+    // only called while holding the lock
+    private static String[] with(String[] array, int index, String value, int length) {
+        String[] copy = Arrays.copyOf(array, length);
+        copy[index] = value;
+        return copy;
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] result = new int[capacity];
+        Arrays.fill(result, NO_ID);
+        return result;
+    }
+
+    // works out the three letter code from the text inside the last brackets
+    // falls back to the first three letters when there are no brackets
+    static String isoCodeOf(String code) {
+        String upper = code.toUpperCase(Locale.ROOT);
+        int open = upper.lastIndexOf('(');
+        int close = upper.lastIndexOf(')');
+        if (open >= 0 && close > open + 1) {
+            return upper.substring(open + 1, close).trim();
+        } else if (upper.length() >= 3) {
+            return upper.substring(0, 3);
+        }
+        return upper;
+    }
+}
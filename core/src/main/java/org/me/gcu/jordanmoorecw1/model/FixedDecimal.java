@@ -0,0 +1,335 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+// fixed point decimals held as a whole number of units and a scale
+// the value is units / 10^scale so 1.3412 is 13412 units at scale 4
+// everything works on longs and only falls back to BigDecimal when a result would not fit
+public final class FixedDecimal {
+
+    // most fraction digits a value can have
+    public static final int MAX_SCALE = 18;
+
+    // returned by parse for text that is not a plain decimal
+    public static final long INVALID = Long.MIN_VALUE;
+
+    // parse packs the scale into the low bits so it returns one long and allocates nothing
+    private static final int SCALE_BITS = 5;
+    private static final long SCALE_MASK = (1L << SCALE_BITS) - 1;
+
+    // largest units that still fit next to the scale in a packed value
+    public static final long MAX_PACKED_UNITS = Long.MAX_VALUE >> SCALE_BITS;
+
+    // powers of ten that fit in a long
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private FixedDecimal() {
+    }
+
+    // parses digits with an optional decimal point such as 203.5821 straight from a char array
+    // the scale is the number of digits after the point as written so 1.3400 keeps scale 4
+    // returns the packed value or INVALID for signs exponents empty text or too many digits
+    public static long parse(char[] chars, int start, int end) {
+        return parse(null, chars, start, end);
+    }
+
+    // same as above for text such as a string or the text of an input box
+    public static long parse(CharSequence text, int start, int end) {
+        return parse(text, null, start, end);
+    }
+
+    // the one parse loop reading from whichever of text or chars is not null
+    private static long parse(CharSequence text, char[] chars, int start, int end) {
+        long units = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean seenPoint = false;
+
+        for (int i = start; i < end; i++) {
+            char c = chars != null ? chars[i] : text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (units > (MAX_PACKED_UNITS - 9) / 10) {
+                    return INVALID;
+                }
+                units = units * 10 + (c - '0');
+                digits++;
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0 || scale > MAX_SCALE) {
+            return INVALID;
+        }
+        return pack(units, scale);
+    }
+
+    // parses the whole text
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    // packs non negative units and a scale into one long
+    public static long pack(long units, int scale) {
+        return units << SCALE_BITS | scale;
+    }
+
+    // units of a packed value
+    public static long units(long packed) {
+        return packed >> SCALE_BITS;
+    }
+
+    // scale of a packed value
+    public static int scale(long packed) {
+        return (int) (packed & SCALE_MASK);
+    }
+
+    // ten to the given power
+    // throws ArithmeticException when it does not fit in a long
+    public static long powerOfTen(int exponent) {
+        return powerOrOverflow(exponent);
+    }
+
+    // closest double to the value
+    // the division is by an exact power of ten so it gives the same double as parsing the text
+    public static double toDouble(long units, int scale) {
+        return units / (double) POWERS_OF_TEN[scale];
+    }
+
+    // the value moved to another scale rounding when digits are dropped
+    // throws ArithmeticException when the result does not fit or the scales are too far apart
+    public static long rescale(long units, int scale, int newScale, RoundingMode mode) {
+        if (newScale >= scale) {
+            return Math.multiplyExact(units, powerOrOverflow(newScale - scale));
+        }
+        return divide(units, powerOrOverflow(scale - newScale), mode);
+    }
+
+    // compares two values with any scales
+    public static int compare(long aUnits, int aScale, long bUnits, int bScale) {
+        if (aScale == bScale) {
+            return Long.compare(aUnits, bUnits);
+        }
+        int aSign = Long.signum(aUnits);
+        int bSign = Long.signum(bUnits);
+        if (aSign != bSign) {
+            return Integer.compare(aSign, bSign);
+        }
+        // compare the two widened magnitudes as 128 bit numbers so neither side can overflow
+        int scale = Math.max(aScale, bScale);
+        long aMagnitude = Math.abs(aUnits);
+        long aPower = POWERS_OF_TEN[scale - aScale];
+        long bMagnitude = Math.abs(bUnits);
+        long bPower = POWERS_OF_TEN[scale - bScale];
+        long aHigh = multiplyHigh(aMagnitude, aPower);
+        long bHigh = multiplyHigh(bMagnitude, bPower);
+        int magnitude = aHigh != bHigh
+                ? Long.compareUnsigned(aHigh, bHigh)
+                : Long.compareUnsigned(aMagnitude * aPower, bMagnitude * bPower);
+        return aSign < 0 ? -magnitude : magnitude;
+    }
+
+    // a times b with each value at its own scale and the result at resultScale
+    // one long multiply and one rounding which covers any amount typed against a rate
+    // products too big for a long go the 128 bit way
+    public static long multiply(long a, int aScale, long b, int bScale, int resultScale,
+                                RoundingMode mode) {
+        try {
+            return rescale(Math.multiplyExact(a, b), aScale + bScale, resultScale, mode);
+        } catch (ArithmeticException e) {
+            return multiplyDivide(a, aScale, b, bScale, 1L, 0, resultScale, mode);
+        }
+    }
+
+    // a times b divided by c with each value at its own scale and the result at resultScale
+    // the product is kept at 128 bits so nothing is rounded until the one final division
+    public static long multiplyDivide(long a, int aScale, long b, int bScale,
+                                      long c, int cScale, int resultScale, RoundingMode mode) {
+        if (c == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        // a b 10^(cScale + resultScale) / (c 10^(aScale + bScale))
+        int exponent = cScale + resultScale - aScale - bScale;
+        try {
+            long left = a;
+            long right = b;
+            long divisor = c;
+            if (exponent >= 0) {
+                // the power goes on the smaller factor so the product stays as small as it can
+                long power = powerOrOverflow(exponent);
+                if (Math.abs(b) <= Math.abs(a)) {
+                    right = Math.multiplyExact(b, power);
+                } else {
+                    left = Math.multiplyExact(a, power);
+                }
+            } else {
+                divisor = Math.multiplyExact(c, powerOrOverflow(-exponent));
+            }
+            return multiplyDivide(left, right, divisor, mode);
+        } catch (ArithmeticException e) {
+            // too big even for the 128 bit path which only very large scales reach
+            return slowMultiplyDivide(a, aScale, b, bScale, c, cScale, resultScale, mode);
+        }
+    }
+
+    // a times b divided by c rounded with the mode using a 128 bit product
+    // throws ArithmeticException when the result does not fit in a long
+    public static long multiplyDivide(long a, long b, long c, RoundingMode mode) {
+        if (c == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (a == Long.MIN_VALUE || b == Long.MIN_VALUE || c == Long.MIN_VALUE) {
+            throw new ArithmeticException("Long.MIN_VALUE is not supported");
+        }
+        int sign = Long.signum(a) * Long.signum(b) * Long.signum(c);
+        long divisor = Math.abs(c);
+        long left = Math.abs(a);
+        long right = Math.abs(b);
+        long high = multiplyHigh(left, right);
+        long low = left * right;
+
+        long quotient;
+        long remainder;
+        if (high == 0 && low >= 0) {
+            quotient = low / divisor;
+            remainder = low % divisor;
+        } else {
+            if (Long.compareUnsigned(high, divisor) >= 0) {
+                throw new ArithmeticException("Result does not fit in a long");
+            }
+            // shift the low word in one bit at a time with high as the running remainder
+            // the remainder stays below the divisor which is below 2^63
+            // so after the shift it still fits as an unsigned long
+            remainder = high;
+            quotient = 0;
+            for (int bit = 63; bit >= 0; bit--) {
+                remainder = remainder << 1 | (low >>> bit & 1L);
+                quotient <<= 1;
+                if (Long.compareUnsigned(remainder, divisor) >= 0) {
+                    remainder -= divisor;
+                    quotient |= 1L;
+                }
+            }
+            if (quotient < 0) {
+                throw new ArithmeticException("Result does not fit in a long");
+            }
+        }
+        return round(quotient, remainder, divisor, sign, mode);
+    }
+
+    // a divided by b rounded with the mode
+    public static long divide(long a, long b, RoundingMode mode) {
+        if (b == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        int sign = Long.signum(a) * Long.signum(b);
+        return round(Math.abs(a / b), Math.abs(a % b), Math.abs(b), sign, mode);
+    }
+
+    // plain decimal text of a value with exactly scale digits after the point
+    public static String toPlainString(long units, int scale) {
+        StringBuilder builder = new StringBuilder(24);
+        appendPlain(builder, units, scale);
+        return builder.toString();
+    }
+
+    // adds the plain decimal text of a value to the builder
+    public static void appendPlain(StringBuilder builder, long units, int scale) {
+        if (units < 0) {
+            builder.append('-');
+        }
+        long magnitude = Math.abs(units);
+        long power = POWERS_OF_TEN[scale];
+        builder.append(magnitude / power);
+        if (scale > 0) {
+            builder.append('.');
+            long fraction = magnitude % power;
+            // leading zeros of the fraction
+            for (long p = power / 10; p > fraction && p > 1; p /= 10) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+    }
+
+    // magnitude quotient and remainder rounded to a signed result
+    // the quotient is the magnitude and sign is the sign of the exact result
+    private static long round(long quotient, long remainder, long divisor, int sign,
+                              RoundingMode mode) {
+        if (remainder != 0 && roundsAway(quotient, remainder, divisor, sign, mode)) {
+            quotient++;
+        }
+        return sign < 0 ? -quotient : quotient;
+    }
+
+    // true when a result with a non zero remainder moves one unit away from zero
+    private static boolean roundsAway(long quotient, long remainder, long divisor, int sign,
+                                      RoundingMode mode) {
+        // compare twice the remainder with the divisor without overflowing
+        long rest = divisor - remainder;
+        switch (mode) {
+            case UP:
+                return true;
+            case DOWN:
+                return false;
+            case CEILING:
+                return sign > 0;
+            case FLOOR:
+                return sign < 0;
+            case HALF_UP:
+                return remainder >= rest;
+            case HALF_DOWN:
+                return remainder > rest;
+            case HALF_EVEN:
+                return remainder > rest || (remainder == rest && (quotient & 1L) != 0);
+            default:
+                throw new ArithmeticException("Rounding needed with RoundingMode.UNNECESSARY");
+        }
+    }
+
+    // high word of the 128 bit product of two non negative longs
+    // the low word is the plain wrapping product a * b
+    // Math.multiplyHigh would do this but android only has it from api 31
+    private static long multiplyHigh(long a, long b) {
+        long aHigh = a >>> 32;
+        long aLow = a & 0xFFFFFFFFL;
+        long bHigh = b >>> 32;
+        long bLow = b & 0xFFFFFFFFL;
+
+        long lowLow = aLow * bLow;
+        long highLow = aHigh * bLow;
+        long lowHigh = aLow * bHigh;
+        long middle = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL) + (lowHigh & 0xFFFFFFFFL);
+        return aHigh * bHigh + (highLow >>> 32) + (lowHigh >>> 32) + (middle >>> 32);
+    }
+
+    private static long powerOrOverflow(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale out of range " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    // exact path for values the long path cannot hold
+    private static long slowMultiplyDivide(long a, int aScale, long b, int bScale,
+                                           long c, int cScale, int resultScale,
+                                           RoundingMode mode) {
+        BigDecimal product = BigDecimal.valueOf(a, aScale).multiply(BigDecimal.valueOf(b, bScale));
+        BigInteger result = product.divide(BigDecimal.valueOf(c, cScale), resultScale, mode)
+                .unscaledValue();
+        return result.longValueExact();
+    }
+}
@@ -0,0 +1,211 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// direct quotes from the feeds of several base currencies merged into one matrix
+// there is a row per base and a column per currency any of the feeds quoted
+// every row keeps the snapshot it came from so each base has its own freshness
+// a base whose last fetch failed keeps its older row rather than leaving a hole
+// immutable so a converter can read it while the next merge is built
+public final class MultiBaseRates {
+
+    public static final MultiBaseRates EMPTY = new Builder().build();
+
+    // base iso codes and the snapshot each row was built from
+    private final String[] bases;
+    private final RateSnapshot[] snapshots;
+
+    // currency iso code of each column
+    private final String[] columns;
+
+    private final Map<String, Integer> baseRows;
+    private final Map<String, Integer> columnIndexes;
+
+    // units and scale of each column per one unit of the row base
+    // FixedDecimal.INVALID where the base feed did not quote that currency
+    private final long[][] units;
+    private final byte[][] scales;
+
+    private MultiBaseRates(List<String> baseList, List<RateSnapshot> snapshotList) {
+        int baseCount = baseList.size();
+        bases = baseList.toArray(new String[0]);
+        snapshots = snapshotList.toArray(new RateSnapshot[0]);
+
+        // the bases come first so every base is also a column
+        baseRows = new HashMap<>();
+        columnIndexes = new HashMap<>();
+        List<String> columnList = new ArrayList<>();
+        for (int row = 0; row < baseCount; row++) {
+            baseRows.put(bases[row], row);
+            addColumn(columnList, bases[row]);
+        }
+        for (RateSnapshot snapshot : snapshots) {
+            RateTable table = snapshot.getFeed().getRates();
+            for (int i = 0; i < table.size(); i++) {
+                addColumn(columnList, table.getIsoCode(i));
+            }
+        }
+        columns = columnList.toArray(new String[0]);
+
+        units = new long[baseCount][columns.length];
+        scales = new byte[baseCount][columns.length];
+        for (int row = 0; row < baseCount; row++) {
+            long[] rowUnits = units[row];
+            Arrays.fill(rowUnits, FixedDecimal.INVALID);
+            // one of the base per one of the base
+            rowUnits[row] = 1L;
+
+            RateTable table = snapshots[row].getFeed().getRates();
+            for (int i = 0; i < table.size(); i++) {
+                int column = columnIndexes.get(table.getIsoCode(i));
+                if (column == row) {
+                    continue;
+                }
+                rowUnits[column] = table.getUnits(i);
+                scales[row][column] = (byte) table.getScale(i);
+            }
+        }
+    }
+
+    private void addColumn(List<String> columnList, String isoCode) {
+        if (!columnIndexes.containsKey(isoCode)) {
+            columnIndexes.put(isoCode, columnList.size());
+            columnList.add(isoCode);
+        }
+    }
+
+    // number of base rows
+    public int baseCount() {
+        return bases.length;
+    }
+
+    public String getBase(int row) {
+        return bases[row];
+    }
+
+    // snapshot a base row came from with its rates validators and fetch time
+    public RateSnapshot getSnapshot(int row) {
+        return snapshots[row];
+    }
+
+    // when the download of a base feed finished or the server last confirmed it
+    public long getFetchedAtMs(int row) {
+        return snapshots[row].getFetchedAtMs();
+    }
+
+    // row of a base or -1 when its feed is not in the matrix
+    public int baseRowOf(String isoCode) {
+        Integer row = isoCode != null ? baseRows.get(isoCode.toUpperCase(Locale.ROOT)) : null;
+        return row != null ? row : -1;
+    }
+
+    // number of currency columns
+    public int columnCount() {
+        return columns.length;
+    }
+
+    public String getCurrency(int column) {
+        return columns[column];
+    }
+
+    // column of a currency or -1 when no feed quoted it
+    public int columnOf(String isoCode) {
+        Integer column = isoCode != null
+                ? columnIndexes.get(isoCode.toUpperCase(Locale.ROOT))
+                : null;
+        return column != null ? column : -1;
+    }
+
+    // true when the base feed quoted the currency
+    public boolean hasQuote(int row, int column) {
+        return units[row][column] != FixedDecimal.INVALID;
+    }
+
+    // units of the column currency per one of the row base or FixedDecimal.INVALID
+    public long getUnits(int row, int column) {
+        return units[row][column];
+    }
+
+    public int getScale(int row, int column) {
+        return scales[row][column];
+    }
+
+    // units of the to currency per one of the from currency at resultScale
+    // returns FixedDecimal.INVALID when no feed in the matrix quotes the pair
+    // rounded so converters should use quote and CrossRates.convert instead
+    public long rate(String fromIso, String toIso, int resultScale, RoundingMode mode) {
+        long[] pair = new long[2];
+        if (!quote(fromIso, toIso, pair)) {
+            return FixedDecimal.INVALID;
+        }
+        return FixedDecimal.multiplyDivide(1L, 0, FixedDecimal.units(pair[0]),
+                FixedDecimal.scale(pair[0]), FixedDecimal.units(pair[1]),
+                FixedDecimal.scale(pair[1]), resultScale, mode);
+    }
+
+    // fills pair with the exact rate as two packed values like CrossRates.quote
+    // read straight from a feed as the from base quoting the to currency
+    // or as the inverse of the to base quoting the from one
+    // when both feeds quote the pair the one whose download finished last wins
+    // returns false when no feed in the matrix quotes the pair
+    // so the caller can fall back to a cross rate
+    public boolean quote(String fromIso, String toIso, long[] pair) {
+        int fromRow = baseRowOf(fromIso);
+        int toRow = baseRowOf(toIso);
+        int fromColumn = columnOf(fromIso);
+        int toColumn = columnOf(toIso);
+
+        boolean direct = fromRow >= 0 && toColumn >= 0 && hasQuote(fromRow, toColumn);
+        boolean inverse = toRow >= 0 && fromColumn >= 0 && hasQuote(toRow, fromColumn);
+        if (direct && inverse && getFetchedAtMs(toRow) > getFetchedAtMs(fromRow)) {
+            direct = false;
+        }
+
+        if (direct) {
+            pair[0] = FixedDecimal.pack(units[fromRow][toColumn], scales[fromRow][toColumn]);
+            pair[1] = FixedDecimal.pack(1L, 0);
+            return true;
+        }
+        if (inverse) {
+            // one over the rate of the reverse pair
+            pair[0] = FixedDecimal.pack(1L, 0);
+            pair[1] = FixedDecimal.pack(units[toRow][fromColumn], scales[toRow][fromColumn]);
+            return true;
+        }
+        return false;
+    }
+
+    // collects the latest snapshot of each base and builds the matrix
+    public static final class Builder {
+
+        private final List<String> bases = new ArrayList<>();
+        private final List<RateSnapshot> snapshots = new ArrayList<>();
+
+        // adds or replaces the snapshot of a base
+        // snapshots with no rates are ignored
+        public Builder put(String baseIso, RateSnapshot snapshot) {
+            if (snapshot == null || snapshot.getFeed().isEmpty()) {
+                return this;
+            }
+            String base = baseIso.toUpperCase(Locale.ROOT);
+            int existing = bases.indexOf(base);
+            if (existing >= 0) {
+                snapshots.set(existing, snapshot);
+            } else {
+                bases.add(base);
+                snapshots.add(snapshot);
+            }
+            return this;
+        }
+
+        public MultiBaseRates build() {
+            return new MultiBaseRates(bases, snapshots);
+        }
+    }
+}
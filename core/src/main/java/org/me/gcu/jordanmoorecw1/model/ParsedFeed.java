@@ -0,0 +1,31 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+// immutable result of one parse of the rss feed
+public final class ParsedFeed {
+
+    // rates read from the feed in the order they appeared
+    private final RateTable rates;
+
+    // published date text from the feed or empty when there was none
+    private final String lastUpdated;
+
+    public ParsedFeed(RateTable rates, String lastUpdated) {
+        this.rates = rates != null ? rates : RateTable.EMPTY;
+        this.lastUpdated = lastUpdated != null ? lastUpdated : "";
+    }
+
+    // gets the table of rates
+    public RateTable getRates() {
+        return rates;
+    }
+
+    // gets the published date text from the feed
+    public String getLastUpdated() {
+        return lastUpdated;
+    }
+
+    // true when the feed did not contain any valid rates
+    public boolean isEmpty() {
+        return rates.isEmpty();
+    }
+}
@@ -0,0 +1,249 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+// values a whole portfolio of balances against the latest rate table
+// positions are grouped by currency so a new table only recomputes the groups whose rate moved
+// everything is kept in primitive arrays so revaluing does not box or allocate
+// amounts and values are fixed point like the rates so the same inputs always give the same digits
+// not thread safe so use one instance from one thread
+public final class PortfolioValuation {
+
+    // id used for balances held in gbp which is not a row of the gbp based feed
+    public static final int BASE_ID = -2;
+
+    // digits after the point of the gbp values held for each group and position
+    // each is rounded once here and the totals add them up exactly
+    public static final int VALUE_SCALE = 8;
+
+    // rounding used for the gbp values and for the results
+    public static final RoundingMode VALUE_ROUNDING = RoundingMode.HALF_EVEN;
+
+    // number of positions
+    private final int positionCount;
+
+    // amount of each position in its own currency at amountScale
+    private final long[] amounts;
+    private final int amountScale;
+
+    // group of each position
+    private final int[] groupOfPosition;
+
+    // currency id of each group
+    private final int[] groupIds;
+
+    // sum of the amounts in each group at amountScale
+    private final long[] groupAmounts;
+
+    // positions of each group laid out one group after another
+    // the positions of group g are positionsByGroup[groupStart[g]] up to groupStart[g + 1]
+    private final int[] groupStart;
+    private final int[] positionsByGroup;
+
+    // units per gbp of each group as units and scale
+    // FixedDecimal.INVALID when the table has no rate for it
+    private final long[] groupRateUnits;
+    private final byte[] groupRateScales;
+
+    // value of each group in gbp at VALUE_SCALE
+    private final long[] groupBaseValues;
+
+    // value of each position in gbp at VALUE_SCALE
+    private final long[] positionBaseValues;
+
+    // sum of the group values in gbp at VALUE_SCALE
+    private long baseTotal;
+
+    // positions whose currency has no rate in the current table
+    private int unpricedCount;
+
+    // table the values were last worked out from
+    private RateTable table = RateTable.EMPTY;
+
+    // builds a portfolio from currency ids and amounts at the same index
+    // every amount is units at amountScale so 12.50 at scale 2 is 1250
+    // the arrays are copied so the caller can reuse them
+    public PortfolioValuation(int[] currencyIds, long[] amountUnits, int amountScale) {
+        if (currencyIds.length != amountUnits.length) {
+            throw new IllegalArgumentException("Ids and amounts must be the same length");
+        }
+        if (amountScale < 0 || amountScale > FixedDecimal.MAX_SCALE) {
+            throw new IllegalArgumentException("Bad scale " + amountScale);
+        }
+        positionCount = currencyIds.length;
+        amounts = amountUnits.clone();
+        this.amountScale = amountScale;
+
+        // sort the distinct ids so each one gets a dense group number
+        int[] sortedIds = currencyIds.clone();
+        Arrays.sort(sortedIds);
+        int groups = 0;
+        for (int i = 0; i < sortedIds.length; i++) {
+            if (i == 0 || sortedIds[i] != sortedIds[i - 1]) {
+                sortedIds[groups++] = sortedIds[i];
+            }
+        }
+        groupIds = Arrays.copyOf(sortedIds, groups);
+
+        groupOfPosition = new int[positionCount];
+        groupAmounts = new long[groups];
+        int[] groupSizes = new int[groups];
+        for (int i = 0; i < positionCount; i++) {
+            int group = Arrays.binarySearch(groupIds, currencyIds[i]);
+            groupOfPosition[i] = group;
+            groupAmounts[group] = Math.addExact(groupAmounts[group], amounts[i]);
+            groupSizes[group]++;
+        }
+
+        groupStart = new int[groups + 1];
+        for (int g = 0; g < groups; g++) {
+            groupStart[g + 1] = groupStart[g] + groupSizes[g];
+        }
+        positionsByGroup = new int[positionCount];
+        int[] fill = Arrays.copyOf(groupStart, groups);
+        for (int i = 0; i < positionCount; i++) {
+            positionsByGroup[fill[groupOfPosition[i]]++] = i;
+        }
+
+        groupRateUnits = new long[groups];
+        Arrays.fill(groupRateUnits, FixedDecimal.INVALID);
+        groupRateScales = new byte[groups];
+        groupBaseValues = new long[groups];
+        positionBaseValues = new long[positionCount];
+        unpricedCount = positionCount;
+    }
+
+    // gets the id to use for a three letter code with gbp mapped to BASE_ID
+    // returns CurrencyRegistry.NO_ID for a code the app has never seen
+    public static int idOf(String isoCode) {
+        if (CrossRates.BASE_ISO.equalsIgnoreCase(isoCode)) {
+            return BASE_ID;
+        }
+        return CurrencyRegistry.getInstance().findByIso(isoCode);
+    }
+
+    // revalues the portfolio against a new table
+    // only groups whose rate changed are recomputed and the number of them is returned
+    // throws ArithmeticException when a value does not fit at VALUE_SCALE
+    public int update(RateTable newTable) {
+        table = newTable;
+        int changed = 0;
+
+        for (int g = 0; g < groupIds.length; g++) {
+            int id = groupIds[g];
+            long rateUnits = rateUnitsOf(newTable, id);
+            int rateScale = rateScaleOf(newTable, id);
+            if (rateUnits == groupRateUnits[g] && rateScale == groupRateScales[g]) {
+                continue;
+            }
+
+            boolean wasPriced = groupRateUnits[g] != FixedDecimal.INVALID;
+            boolean isPriced = rateUnits != FixedDecimal.INVALID;
+            groupRateUnits[g] = rateUnits;
+            groupRateScales[g] = (byte) rateScale;
+            groupBaseValues[g] = isPriced ? toBase(groupAmounts[g], rateUnits, rateScale) : 0L;
+
+            for (int i = groupStart[g]; i < groupStart[g + 1]; i++) {
+                int position = positionsByGroup[i];
+                positionBaseValues[position] = isPriced
+                        ? toBase(amounts[position], rateUnits, rateScale)
+                        : 0L;
+            }
+            if (wasPriced != isPriced) {
+                int size = groupStart[g + 1] - groupStart[g];
+                unpricedCount += isPriced ? -size : size;
+            }
+            changed++;
+        }
+
+        // summing per group instead of adding differences keeps the total equal to its parts
+        long sum = 0L;
+        for (long value : groupBaseValues) {
+            sum = Math.addExact(sum, value);
+        }
+        baseTotal = sum;
+        return changed;
+    }
+
+    // total value in the given currency at resultScale
+    // or FixedDecimal.INVALID when the table has no rate for it
+    public long total(int targetId, int resultScale) {
+        return fromBase(baseTotal, table, targetId, resultScale);
+    }
+
+    // totals in several currencies at once written into out
+    public void totals(int[] targetIds, int resultScale, long[] out) {
+        for (int i = 0; i < targetIds.length; i++) {
+            out[i] = fromBase(baseTotal, table, targetIds[i], resultScale);
+        }
+    }
+
+    // value of every position in the given currency at resultScale written into out
+    // unpriced positions come out as zero and everything is INVALID when the target has no rate
+    public void positionValues(int targetId, int resultScale, long[] out) {
+        for (int i = 0; i < positionCount; i++) {
+            out[i] = fromBase(positionBaseValues[i], table, targetId, resultScale);
+        }
+    }
+
+    // number of positions
+    public int size() {
+        return positionCount;
+    }
+
+    // positions left out of the totals because the table has no rate for their currency
+    public int getUnpricedCount() {
+        return unpricedCount;
+    }
+
+    // one off total of a list of balances at amountScale with no state kept between calls
+    // returns FixedDecimal.INVALID when the table has no rate for the target
+    public static long total(RateTable table, int[] currencyIds, long[] amountUnits,
+                             int amountScale, int targetId, int resultScale) {
+        long sum = 0L;
+        for (int i = 0; i < currencyIds.length; i++) {
+            long rateUnits = rateUnitsOf(table, currencyIds[i]);
+            if (rateUnits != FixedDecimal.INVALID) {
+                sum = Math.addExact(sum, FixedDecimal.multiplyDivide(amountUnits[i], amountScale,
+                        1L, 0, rateUnits, rateScaleOf(table, currencyIds[i]),
+                        VALUE_SCALE, VALUE_ROUNDING));
+            }
+        }
+        return fromBase(sum, table, targetId, resultScale);
+    }
+
+    // an amount at amountScale divided by its units per gbp as gbp at VALUE_SCALE
+    private long toBase(long amount, long rateUnits, int rateScale) {
+        return FixedDecimal.multiplyDivide(amount, amountScale, 1L, 0, rateUnits, rateScale,
+                VALUE_SCALE, VALUE_ROUNDING);
+    }
+
+    // a gbp value at VALUE_SCALE in the target currency at resultScale
+    private static long fromBase(long baseValue, RateTable table, int targetId, int resultScale) {
+        long rateUnits = rateUnitsOf(table, targetId);
+        if (rateUnits == FixedDecimal.INVALID) {
+            return FixedDecimal.INVALID;
+        }
+        return FixedDecimal.multiply(baseValue, VALUE_SCALE,
+                rateUnits, rateScaleOf(table, targetId), resultScale, VALUE_ROUNDING);
+    }
+
+    // units per gbp of a currency or FixedDecimal.INVALID when the table does not have it
+    private static long rateUnitsOf(RateTable table, int id) {
+        if (id == BASE_ID) {
+            return 1L;
+        }
+        int row = table.indexOfId(id);
+        return row >= 0 ? table.getUnits(row) : FixedDecimal.INVALID;
+    }
+
+    // scale that goes with rateUnitsOf
+    private static int rateScaleOf(RateTable table, int id) {
+        if (id == BASE_ID) {
+            return 0;
+        }
+        int row = table.indexOfId(id);
+        return row >= 0 ? table.getScale(row) : 0;
+    }
+}
@@ -0,0 +1,69 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+// immutable copy of one good download of the feed
+// holds the parsed rates plus what is needed to revalidate them with the server
+public final class RateSnapshot {
+
+    // parsed rates and feed published date
+    private final ParsedFeed feed;
+
+    // time the rates were downloaded or last confirmed by the server
+    private final long fetchedAtMs;
+
+    // http validators that came with the body or null when the server sent none
+    private final String etag;
+    private final String lastModified;
+
+    // name of the feed source that served the body or null when it is not known
+    // validators only mean something to the host that made them
+    private final String sourceName;
+
+    // snapshot from an unknown source such as the seed so its validators are never sent
+    public RateSnapshot(ParsedFeed feed, long fetchedAtMs, String etag, String lastModified) {
+        this(feed, fetchedAtMs, etag, lastModified, null);
+    }
+
+    public RateSnapshot(ParsedFeed feed, long fetchedAtMs, String etag, String lastModified,
+                        String sourceName) {
+        this.feed = feed;
+        this.fetchedAtMs = fetchedAtMs;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.sourceName = sourceName;
+    }
+
+    // gets the parsed feed
+    public ParsedFeed getFeed() {
+        return feed;
+    }
+
+    // gets the time the rates were downloaded or last confirmed
+    public long getFetchedAtMs() {
+        return fetchedAtMs;
+    }
+
+    // gets the etag validator
+    public String getEtag() {
+        return etag;
+    }
+
+    // gets the last modified validator
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    // gets the name of the source the validators belong to
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    // copy of this snapshot with a new fetch time used when the server confirms it is still current
+    public RateSnapshot withFetchedAtMs(long newFetchedAtMs) {
+        return new RateSnapshot(feed, newFetchedAtMs, etag, lastModified, sourceName);
+    }
+
+    // true when there is at least one validator for a conditional request
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+}
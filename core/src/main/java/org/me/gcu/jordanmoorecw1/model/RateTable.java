@@ -0,0 +1,169 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import java.util.Arrays;
+
+// immutable table of the rates from one feed
+// each row is a currency id from the registry and its rate against gbp kept in parallel arrays
+// rates are fixed point units with the scale the feed wrote them in so nothing is rounded
+// nothing in it can change so it is handed between threads and screens without copying
+public final class RateTable {
+
+    // table with no rows
+    public static final RateTable EMPTY = new RateTable(new int[0], new long[0], new byte[0]);
+
+    // currency id of each row in feed order
+    private final int[] ids;
+
+    // rate of each row as fixed point units
+    private final long[] units;
+
+    // number of digits after the point of each rate
+    private final byte[] scales;
+
+    // row of each currency id or -1 when the id is not in this table
+    private final int[] rowsById;
+
+    // cross rates made the first time they are asked for
+    private volatile CrossRates crossRates;
+
+    private RateTable(int[] ids, long[] units, byte[] scales) {
+        this.ids = ids;
+        this.units = units;
+        this.scales = scales;
+
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        rowsById = new int[maxId + 1];
+        Arrays.fill(rowsById, -1);
+        // the first row wins when a feed lists the same currency twice
+        for (int row = ids.length - 1; row >= 0; row--) {
+            rowsById[ids[row]] = row;
+        }
+    }
+
+    // number of rows
+    public int size() {
+        return ids.length;
+    }
+
+    // true when there are no rows
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    // gets the currency id of a row
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    // gets the rate of a row as fixed point units at getScale of the row
+    public long getUnits(int row) {
+        return units[row];
+    }
+
+    // gets the number of digits after the point of a row
+    public int getScale(int row) {
+        return scales[row];
+    }
+
+    // gets the rate of a row as the closest double
+    // only for charts and estimates since sums of doubles drift
+    public double getRate(int row) {
+        return FixedDecimal.toDouble(units[row], scales[row]);
+    }
+
+    // gets the full code text of a row for example UNITEDSTATESDOLLAR(USD)
+    public String getCode(int row) {
+        return CurrencyRegistry.getInstance().getCode(ids[row]);
+    }
+
+    // gets the feed title of a row
+    public String getTitle(int row) {
+        return CurrencyRegistry.getInstance().getTitle(ids[row]);
+    }
+
+    // gets the three letter iso code of a row
+    public String getIsoCode(int row) {
+        return CurrencyRegistry.getInstance().getIsoCode(ids[row]);
+    }
+
+    // gets the row of a currency id or -1 when it is not in this table
+    public int indexOfId(int id) {
+        return id >= 0 && id < rowsById.length ? rowsById[id] : -1;
+    }
+
+    // gets the row of a three letter iso code or -1 when it is not in this table
+    public int indexOf(String isoCode) {
+        return indexOfId(CurrencyRegistry.getInstance().findByIso(isoCode));
+    }
+
+    // gets the any to any rates for this table
+    // they are made once per table so a new snapshot always gets fresh ones
+    public CrossRates getCrossRates() {
+        CrossRates result = crossRates;
+        if (result == null) {
+            result = new CrossRates(this);
+            crossRates = result;
+        }
+        return result;
+    }
+
+    // true when both tables hold the same currencies with the same rates in the same order
+    public boolean sameRates(RateTable other) {
+        return this == other
+                || Arrays.equals(ids, other.ids) && Arrays.equals(units, other.units)
+                && Arrays.equals(scales, other.scales);
+    }
+
+    // collects rows while a feed is parsed and then builds the table
+    public static final class Builder {
+
+        private int[] ids;
+        private long[] units;
+        private byte[] scales;
+        private int size;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int expectedRows) {
+            ids = new int[Math.max(expectedRows, 1)];
+            units = new long[ids.length];
+            scales = new byte[ids.length];
+        }
+
+        // adds one row with its rate as fixed point units and scale
+        public Builder add(int id, long rateUnits, int scale) {
+            if (scale < 0 || scale > FixedDecimal.MAX_SCALE) {
+                throw new IllegalArgumentException("Bad scale " + scale);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                units = Arrays.copyOf(units, size * 2);
+                scales = Arrays.copyOf(scales, size * 2);
+            }
+            ids[size] = id;
+            units[size] = rateUnits;
+            scales[size] = (byte) scale;
+            size++;
+            return this;
+        }
+
+        // number of rows added so far
+        public int size() {
+            return size;
+        }
+
+        // builds the table with arrays trimmed to the rows that were added
+        public RateTable build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new RateTable(Arrays.copyOf(ids, size), Arrays.copyOf(units, size),
+                    Arrays.copyOf(scales, size));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import org.me.gcu.jordanmoorecw1.trace.Tracer;
+
+// everything the screen needs about the rates it shows in one immutable update
+// the rates feed time source staleness and any error always arrive together
+public final class SnapshotEvent {
+
+    // where the rates in an event came from
+    public enum Source {
+        // nothing has been loaded yet
+        NONE,
+        // the snapshot saved on disk
+        CACHE,
+        // a new download from a feed source
+        NETWORK,
+        // the server answered 304 so the rates held are still current
+        NOT_MODIFIED
+    }
+
+    private final RateTable rates;
+
+    // pubDate of the feed or an empty string when it had none
+    private final String feedTime;
+
+    private final Source source;
+
+    // when the rates were downloaded or 0 when that is not known
+    private final long fetchedAtMs;
+
+    // true when the rates are older than the fresh window
+    private final boolean stale;
+
+    // true while a fetch is running that may replace these rates
+    private final boolean refreshing;
+
+    // message about the last failed refresh or null when it worked
+    private final String error;
+
+    // direct quotes from the feeds of the other base currencies
+    // merged after the gbp rates so they can arrive in a later event
+    private final MultiBaseRates bases;
+
+    // trace id of the refresh that published this event or Tracer.NO_TRACE
+    // taken from the publishing thread so the screen can carry on the same trace
+    private final long traceId = Tracer.getInstance().currentTraceId();
+
+    private SnapshotEvent(RateTable rates, String feedTime, Source source, long fetchedAtMs,
+                          boolean stale, boolean refreshing, String error, MultiBaseRates bases) {
+        this.rates = rates;
+        this.feedTime = feedTime;
+        this.source = source;
+        this.fetchedAtMs = fetchedAtMs;
+        this.stale = stale;
+        this.refreshing = refreshing;
+        this.error = error;
+        this.bases = bases;
+    }
+
+    // event for a snapshot held by the repository
+    public static SnapshotEvent of(RateSnapshot snapshot, Source source,
+                                   boolean stale, boolean refreshing) {
+        return of(snapshot, source, stale, refreshing, MultiBaseRates.EMPTY);
+    }
+
+    // same as above carrying the quotes of the other bases held alongside it
+    public static SnapshotEvent of(RateSnapshot snapshot, Source source,
+                                   boolean stale, boolean refreshing, MultiBaseRates bases) {
+        ParsedFeed feed = snapshot.getFeed();
+        return new SnapshotEvent(feed.getRates(), feed.getLastUpdated(), source,
+                snapshot.getFetchedAtMs(), stale, refreshing, null, bases);
+    }
+
+    // event for when there are no rates at all to show
+    public static SnapshotEvent failed(String error) {
+        return new SnapshotEvent(RateTable.EMPTY, "", Source.NONE, 0L, false, false, error,
+                MultiBaseRates.EMPTY);
+    }
+
+    // same rates marked as being refreshed or not
+    public SnapshotEvent withRefreshing(boolean nowRefreshing) {
+        return new SnapshotEvent(rates, feedTime, source, fetchedAtMs, stale, nowRefreshing, null,
+                bases);
+    }
+
+    // same rates after a refresh that failed
+    public SnapshotEvent withError(String message) {
+        return new SnapshotEvent(rates, feedTime, source, fetchedAtMs, stale, false, message,
+                bases);
+    }
+
+    // same rates with the quotes of the other bases
+    public SnapshotEvent withBases(MultiBaseRates newBases) {
+        return new SnapshotEvent(rates, feedTime, source, fetchedAtMs, stale, refreshing, error,
+                newBases);
+    }
+
+    public RateTable getRates() {
+        return rates;
+    }
+
+    public String getFeedTime() {
+        return feedTime;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public long getFetchedAtMs() {
+        return fetchedAtMs;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public boolean isRefreshing() {
+        return refreshing;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public MultiBaseRates getBases() {
+        return bases;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    // true when the last refresh failed
+    public boolean hasError() {
+        return error != null;
+    }
+}
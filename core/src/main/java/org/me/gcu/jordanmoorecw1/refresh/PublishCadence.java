@@ -0,0 +1,141 @@
+package org.me.gcu.jordanmoorecw1.refresh;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// learns how often the feed is published from the pubDate values seen at each check
+// and works out when the next check should run
+// not thread safe so the scheduler only uses it while holding its own lock
+public final class PublishCadence {
+
+    // interval assumed until two different pubDate values have been seen
+    public static final long DEFAULT_INTERVAL_MS = 60L * 60L * 1000L;
+
+    // wait after the expected publish so the new feed is really there when we ask
+    static final long PUBLISH_GRACE_MS = 2L * 60L * 1000L;
+
+    // first wait after a check that found the same pubDate and it doubles from there
+    static final long BACKOFF_START_MS = 5L * 60L * 1000L;
+
+    // never wait longer than this between checks
+    static final long MAX_DELAY_MS = 6L * 60L * 60L * 1000L;
+
+    // never check sooner than this
+    static final long MIN_DELAY_MS = 60L * 1000L;
+
+    // gaps outside these bounds are treated as outages or clock jumps and not learned from
+    private static final long MIN_LEARNED_INTERVAL_MS = 5L * 60L * 1000L;
+    private static final long MAX_LEARNED_INTERVAL_MS = 24L * 60L * 60L * 1000L;
+
+    // weight of the newest gap in the interval estimate
+    private static final double ALPHA = 0.3;
+
+    // pubDate of the newest feed seen or 0 when none has been seen
+    private long lastPublishedMs;
+
+    // estimated time between publishes or 0 until one gap has been seen
+    private long intervalMs;
+
+    // checks in a row that found the same pubDate
+    private int unchangedChecks;
+
+    public PublishCadence() {
+    }
+
+    // restores a cadence saved with the getters below
+    public PublishCadence(long lastPublishedMs, long intervalMs, int unchangedChecks) {
+        this.lastPublishedMs = lastPublishedMs;
+        this.intervalMs = intervalMs;
+        this.unchangedChecks = unchangedChecks;
+    }
+
+    // records the pubDate found by a check
+    // returns true when it moved on from the last one
+    public boolean record(long publishedMs) {
+        if (publishedMs <= 0) {
+            // no usable pubDate so treat it like a check that found nothing new
+            unchangedChecks++;
+            return false;
+        }
+        if (publishedMs <= lastPublishedMs) {
+            unchangedChecks++;
+            return false;
+        }
+
+        if (lastPublishedMs > 0) {
+            learn(publishedMs - lastPublishedMs);
+        }
+        lastPublishedMs = publishedMs;
+        unchangedChecks = 0;
+        return true;
+    }
+
+    // how long to wait from now until the next check
+    public long nextDelayMs(long nowMs) {
+        long interval = intervalMs > 0 ? intervalMs : DEFAULT_INTERVAL_MS;
+        if (lastPublishedMs <= 0) {
+            return interval;
+        }
+
+        long delay;
+        if (unchangedChecks == 0) {
+            // just after the next publish we expect
+            long expected = lastPublishedMs + interval + PUBLISH_GRACE_MS;
+            delay = expected - nowMs;
+            if (delay < MIN_DELAY_MS) {
+                // the expected publish has already passed so look again soon
+                delay = BACKOFF_START_MS;
+            }
+        } else {
+            // the pubDate did not move so wait twice as long after every miss
+            int shift = Math.min(unchangedChecks - 1, 16);
+            delay = BACKOFF_START_MS << shift;
+        }
+        return Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, delay));
+    }
+
+    public long getLastPublishedMs() {
+        return lastPublishedMs;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public int getUnchangedChecks() {
+        return unchangedChecks;
+    }
+
+    // folds one gap between publishes into the interval estimate
+    private void learn(long gapMs) {
+        if (gapMs < MIN_LEARNED_INTERVAL_MS || gapMs > MAX_LEARNED_INTERVAL_MS) {
+            return;
+        }
+        if (intervalMs > 0) {
+            // a check that missed some publishes sees a whole number of intervals
+            long periods = Math.round((double) gapMs / intervalMs);
+            if (periods >= 2 && Math.abs(gapMs - periods * intervalMs) < intervalMs / 4) {
+                gapMs /= periods;
+            }
+            intervalMs = Math.round((1.0 - ALPHA) * intervalMs + ALPHA * gapMs);
+        } else {
+            intervalMs = gapMs;
+        }
+    }
+
+    // reads a pubDate like Fri, 14 Nov 2025 10:00:04 GMT
+    // returns 0 when it is empty or not in that format
+    public static long parsePubDate(String pubDate) {
+        if (pubDate == null || pubDate.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return ZonedDateTime.parse(pubDate.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.me.gcu.jordanmoorecw1.search;
+
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// runs currency searches on a background thread
+// a query only starts once typing pauses and any query that has been replaced is dropped
+// the index is built once per set of currencies and not on the main thread
+public class CurrencySearch {
+
+    // listener that gets the rows of a finished query
+    // it is called on the search thread so the ui has to post the result to the main thread
+    public interface ResultListener {
+        void onResults(RateTable table, int[] rows, int generation);
+    }
+
+    // how long typing has to pause before a query runs
+    public static final long DEBOUNCE_MS = 150L;
+
+    // single thread that builds the index and runs queries
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    // bumped for every new query and every cancel so older queries know they are stale
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // table the next query should search
+    private volatile RateTable table = RateTable.EMPTY;
+
+    // index of the table only touched on the search thread
+    private SearchIndex index;
+
+    // query waiting for typing to pause
+    private ScheduledFuture<?> pending;
+
+    // hands over a new table and starts building its index in the background
+    public void setTable(RateTable newTable) {
+        table = newTable;
+        executor.execute(() -> indexFor(newTable));
+    }
+
+    // starts a query after the debounce delay and returns its generation
+    // any query that has not finished yet is cancelled
+    public synchronized int search(String query, ResultListener listener) {
+        int queryGeneration = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(() -> run(query, queryGeneration, listener),
+                DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        return queryGeneration;
+    }
+
+    // drops any query that is waiting or running
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    // true when the generation belongs to the latest query
+    public boolean isCurrent(int queryGeneration) {
+        return generation.get() == queryGeneration;
+    }
+
+    // stops the search thread
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void run(String query, int queryGeneration, ResultListener listener) {
+        if (!isCurrent(queryGeneration)) {
+            return;
+        }
+        RateTable searched = table;
+        int[] rows = indexFor(searched).search(query, () -> !isCurrent(queryGeneration));
+        if (rows != null && isCurrent(queryGeneration)) {
+            listener.onResults(searched, rows, queryGeneration);
+        }
+    }
+
+    // gets the index for a table and only rebuilds it when the currencies changed
+    private SearchIndex indexFor(RateTable searched) {
+        if (index == null || !index.covers(searched)) {
+            index = SearchIndex.build(searched);
+        }
+        return index;
+    }
+}
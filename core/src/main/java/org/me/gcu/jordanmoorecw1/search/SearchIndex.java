@@ -0,0 +1,432 @@
+package org.me.gcu.jordanmoorecw1.search;
+
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+// search index over the currencies of one rate table
+// every row is broken into lower case words from its iso code feed title currency name and countries
+// the words are kept sorted for prefix lookups and in a bigram index for finding near misses
+// it only depends on which currencies are in the table so it is reused while the rates change
+public final class SearchIndex {
+
+    // scores used to rank results with bigger first
+    private static final int SCORE_ISO_EXACT = 1000;
+    private static final int SCORE_ISO_PREFIX = 800;
+    private static final int SCORE_WORD_PREFIX = 600;
+    private static final int SCORE_SUBSTRING = 400;
+    private static final int SCORE_TYPO = 300;
+    private static final int TYPO_PENALTY = 20;
+
+    // words shorter than this are only matched by prefix
+    private static final int MIN_TYPO_WORD = 3;
+
+    // letters and digits get 0 to 35 and the start of a word gets 36
+    private static final int ALPHABET = 37;
+    private static final int WORD_START = 36;
+
+    // how often the scoring loop checks whether the query is still wanted
+    private static final int CANCEL_CHECK_MASK = 0xFF;
+
+    // country names by currency code made once for the process
+    private static volatile Map<String, List<String>> countriesByCurrency;
+
+    // currency ids of the rows this index was built for
+    private final int[] rowIds;
+
+    // lower case iso code of each row
+    private final String[] isoCodes;
+
+    // all words of each row joined with spaces for substring checks
+    private final String[] rowTexts;
+
+    // every word with the row it came from sorted by word
+    private final String[] words;
+    private final int[] wordRows;
+
+    // word numbers by bigram
+    private final int[][] postings;
+
+    private SearchIndex(int[] rowIds, String[] isoCodes, String[] rowTexts,
+                        String[] words, int[] wordRows, int[][] postings) {
+        this.rowIds = rowIds;
+        this.isoCodes = isoCodes;
+        this.rowTexts = rowTexts;
+        this.words = words;
+        this.wordRows = wordRows;
+        this.postings = postings;
+    }
+
+    // builds the index for the rows of a table
+    public static SearchIndex build(RateTable table) {
+        Map<String, List<String>> countries = getCountriesByCurrency();
+        CurrencyRegistry registry = CurrencyRegistry.getInstance();
+        int rows = table.size();
+        int[] rowIds = new int[rows];
+        String[] isoCodes = new String[rows];
+        String[] rowTexts = new String[rows];
+        List<String> wordList = new ArrayList<>();
+        List<Integer> rowList = new ArrayList<>();
+
+        for (int row = 0; row < rows; row++) {
+            rowIds[row] = table.getId(row);
+            String iso = table.getIsoCode(row);
+            isoCodes[row] = normalize(iso);
+
+            // the words of a row with duplicates removed
+            Set<String> rowWords = new LinkedHashSet<>();
+            addWords(rowWords, iso);
+            addWords(rowWords, quoteName(table.getTitle(row)));
+            addWords(rowWords, table.getCode(row));
+            addWords(rowWords, displayNameOf(registry, rowIds[row], iso));
+            List<String> countryNames = countries.get(iso);
+            if (countryNames != null) {
+                for (String country : countryNames) {
+                    addWords(rowWords, country);
+                }
+            }
+
+            rowTexts[row] = String.join(" ", rowWords);
+            for (String word : rowWords) {
+                wordList.add(word);
+                rowList.add(row);
+            }
+        }
+
+        // sort word numbers by word so a prefix is one range
+        Integer[] order = new Integer[wordList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> wordList.get(a).compareTo(wordList.get(b)));
+        String[] words = new String[order.length];
+        int[] wordRows = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            words[i] = wordList.get(order[i]);
+            wordRows[i] = rowList.get(order[i]);
+        }
+
+        // bigram postings with the start of the word counted as a letter
+        int[] counts = new int[ALPHABET * ALPHABET];
+        for (String word : words) {
+            int previous = WORD_START;
+            for (int i = 0; i < word.length(); i++) {
+                int current = letterIndex(word.charAt(i));
+                counts[previous * ALPHABET + current]++;
+                previous = current;
+            }
+        }
+        int[][] postings = new int[counts.length][];
+        for (int key = 0; key < counts.length; key++) {
+            postings[key] = new int[counts[key]];
+        }
+        int[] fill = new int[counts.length];
+        for (int w = 0; w < words.length; w++) {
+            String word = words[w];
+            int previous = WORD_START;
+            for (int i = 0; i < word.length(); i++) {
+                int current = letterIndex(word.charAt(i));
+                int key = previous * ALPHABET + current;
+                // a word that repeats a bigram is only listed once for it
+                if (fill[key] == 0 || postings[key][fill[key] - 1] != w) {
+                    postings[key][fill[key]++] = w;
+                }
+                previous = current;
+            }
+        }
+        for (int key = 0; key < postings.length; key++) {
+            if (fill[key] != postings[key].length) {
+                postings[key] = Arrays.copyOf(postings[key], fill[key]);
+            }
+        }
+
+        return new SearchIndex(rowIds, isoCodes, rowTexts, words, wordRows, postings);
+    }
+
+    // the name shipped in the currency metadata or the one java knows for the iso code
+    // returns null when neither has a name
+    private static String displayNameOf(CurrencyRegistry registry, int id, String iso) {
+        String name = registry.getDisplayName(id);
+        if (name != null) {
+            return name;
+        }
+        try {
+            return Currency.getInstance(iso).getDisplayName(Locale.ENGLISH);
+        } catch (IllegalArgumentException e) {
+            // not an iso 4217 code so there is no display name
+            return null;
+        }
+    }
+
+    // true when the table has the same currencies in the same rows as this index
+    public boolean covers(RateTable table) {
+        if (table.size() != rowIds.length) {
+            return false;
+        }
+        for (int row = 0; row < rowIds.length; row++) {
+            if (table.getId(row) != rowIds[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns the matching rows with the best first
+    // exact iso code matches come first then iso prefixes then word prefixes then substrings and near misses
+    // returns null when cancelled says the result is no longer wanted
+    public int[] search(String query, BooleanSupplier cancelled) {
+        String text = normalize(query);
+        if (text.isEmpty()) {
+            return new int[0];
+        }
+        String[] queryWords = text.split(" ");
+        int rows = rowIds.length;
+
+        // per row totals over the query words
+        int[] typoCost = new int[rows];
+        int[] matchedWords = new int[rows];
+        boolean[] touched = new boolean[rows];
+
+        // per word scratch
+        int[] wordCost = new int[rows];
+        int[] wordHits = new int[words.length];
+        int[] hitWords = new int[words.length];
+        int[] scratch = new int[64];
+
+        for (String queryWord : queryWords) {
+            Arrays.fill(wordCost, Integer.MAX_VALUE);
+
+            // every word that starts with the query word costs nothing
+            int first = lowerBound(queryWord);
+            for (int w = first; w < words.length && words[w].startsWith(queryWord); w++) {
+                wordCost[wordRows[w]] = 0;
+            }
+
+            // near misses are found through shared bigrams and then checked properly
+            if (queryWord.length() >= MIN_TYPO_WORD) {
+                int maxTypos = queryWord.length() <= 5 ? 1 : 2;
+                int hitCount = 0;
+                int previous = WORD_START;
+                for (int i = 0; i < queryWord.length(); i++) {
+                    int current = letterIndex(queryWord.charAt(i));
+                    for (int w : postings[previous * ALPHABET + current]) {
+                        if (wordHits[w]++ == 0) {
+                            hitWords[hitCount++] = w;
+                        }
+                    }
+                    previous = current;
+                }
+
+                // each edit can break at most two bigrams of the query
+                int needed = Math.max(1, queryWord.length() - 2 * maxTypos);
+                for (int i = 0; i < hitCount; i++) {
+                    int w = hitWords[i];
+                    int row = wordRows[w];
+                    if (wordHits[w] >= needed && wordCost[row] > 0) {
+                        if (scratch.length < (queryWord.length() + 1) * 2) {
+                            scratch = new int[(queryWord.length() + 1) * 2];
+                        }
+                        int distance = prefixDistance(queryWord, words[w], maxTypos, scratch);
+                        if (distance <= maxTypos && distance < wordCost[row]) {
+                            wordCost[row] = distance;
+                        }
+                    }
+                    wordHits[w] = 0;
+                    if ((i & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) {
+                        return null;
+                    }
+                }
+            }
+
+            for (int row = 0; row < rows; row++) {
+                if (wordCost[row] != Integer.MAX_VALUE) {
+                    matchedWords[row]++;
+                    typoCost[row] += wordCost[row];
+                    touched[row] = true;
+                }
+            }
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+        }
+
+        // score and pack as one sortable long per match
+        long[] ranked = new long[rows];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (!touched[row]) {
+                continue;
+            }
+            int score;
+            if (queryWords.length == 1 && isoCodes[row].equals(text)) {
+                score = SCORE_ISO_EXACT;
+            } else if (queryWords.length == 1 && isoCodes[row].startsWith(text)) {
+                score = SCORE_ISO_PREFIX;
+            } else if (matchedWords[row] == queryWords.length && typoCost[row] == 0) {
+                score = SCORE_WORD_PREFIX;
+            } else if (rowTexts[row].contains(text)) {
+                score = SCORE_SUBSTRING;
+            } else if (matchedWords[row] == queryWords.length) {
+                score = SCORE_TYPO - TYPO_PENALTY * typoCost[row];
+            } else {
+                continue;
+            }
+            // higher scores first then feed order
+            ranked[count++] = ((long) (SCORE_ISO_EXACT - score) << 32) | row;
+        }
+
+        Arrays.sort(ranked, 0, count);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) ranked[i];
+        }
+        return result;
+    }
+
+    // smallest edit distance between the query word and any start of the word
+    // stops early and returns more than max once every path is over it
+    static int prefixDistance(String query, String word, int max, int[] scratch) {
+        int queryLength = query.length();
+        int[] previous = scratch;
+        int offset = queryLength + 1;
+        for (int j = 0; j <= queryLength; j++) {
+            previous[j] = j;
+        }
+        int best = previous[queryLength];
+
+        int limit = Math.min(word.length(), queryLength + max);
+        for (int i = 1; i <= limit; i++) {
+            char c = word.charAt(i - 1);
+            int rowMin = i;
+            int diagonal = previous[0];
+            scratch[offset] = i;
+            for (int j = 1; j <= queryLength; j++) {
+                int above = previous[j];
+                int cost = query.charAt(j - 1) == c ? diagonal : diagonal + 1;
+                int value = Math.min(cost, Math.min(above + 1, scratch[offset + j - 1] + 1));
+                scratch[offset + j] = value;
+                diagonal = above;
+                rowMin = Math.min(rowMin, value);
+            }
+            best = Math.min(best, scratch[offset + queryLength]);
+            // copy the new row back to the front for the next letter
+            System.arraycopy(scratch, offset, previous, 0, queryLength + 1);
+            if (rowMin > max) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    // first word that is not smaller than the prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = words.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (words[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // lower case ascii letters digits and single spaces with accents removed
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                out.append(c);
+                space = false;
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // accents left over from decomposing
+            } else if (!space) {
+                out.append(' ');
+                space = true;
+            }
+        }
+        int end = out.length();
+        if (end > 0 && out.charAt(end - 1) == ' ') {
+            out.setLength(end - 1);
+        }
+        return out.toString();
+    }
+
+    private static void addWords(Set<String> target, String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        for (String word : normalized.split(" ")) {
+            target.add(word);
+        }
+    }
+
+    // the currency name on the right of the slash in a feed title without its code in brackets
+    private static String quoteName(String title) {
+        if (title == null) {
+            return "";
+        }
+        int slash = title.lastIndexOf('/');
+        String quote = slash >= 0 ? title.substring(slash + 1) : title;
+        int open = quote.indexOf('(');
+        return open >= 0 ? quote.substring(0, open) : quote;
+    }
+
+    private static int letterIndex(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+
+    // works out the countries that use each currency from the locales the platform knows
+    private static Map<String, List<String>> getCountriesByCurrency() {
+        Map<String, List<String>> result = countriesByCurrency;
+        if (result != null) {
+            return result;
+        }
+
+        Map<String, Set<String>> names = new HashMap<>();
+        for (Locale locale : Locale.getAvailableLocales()) {
+            if (locale.getCountry().length() != 2) {
+                continue;
+            }
+            try {
+                Currency currency = Currency.getInstance(locale);
+                if (currency != null) {
+                    names.computeIfAbsent(currency.getCurrencyCode(), k -> new LinkedHashSet<>())
+                            .add(locale.getDisplayCountry(Locale.ENGLISH));
+                }
+            } catch (IllegalArgumentException e) {
+                // the locale has no currency
+            }
+        }
+
+        result = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : names.entrySet()) {
+            result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        countriesByCurrency = result;
+        return result;
+    }
+}
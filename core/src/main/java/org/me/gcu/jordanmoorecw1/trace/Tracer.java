@@ -0,0 +1,276 @@
+package org.me.gcu.jordanmoorecw1.trace;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// records timed spans of the refresh pipeline into a fixed ring buffer
+// each refresh gets a trace id that the thread doing the work holds while it runs
+// and that is handed on by hand whenever the work moves to another thread
+// recording claims a slot with one atomic add and fills plain arrays so it never locks or allocates
+// the newest spans overwrite the oldest and can be exported as chrome trace event json
+public final class Tracer {
+
+    // trace id of work that is not part of any refresh
+    public static final long NO_TRACE = 0L;
+
+    // spans kept which must be a power of two
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // platform sections the spans are mirrored to such as android.os.Trace
+    // begin and end are always called in pairs on one thread
+    public interface SectionSink {
+        void beginSection(String name);
+
+        void endSection();
+    }
+
+    private static final Tracer INSTANCE = new Tracer(DEFAULT_CAPACITY);
+
+    // chrome phases for a span with a duration and for a single moment
+    private static final char PHASE_COMPLETE = 'X';
+    private static final char PHASE_INSTANT = 'i';
+
+    private final int mask;
+
+    // one span per slot
+    private final String[] names;
+    private final long[] traceIds;
+    private final long[] startNanos;
+    private final long[] durationNanos;
+    private final long[] threadIds;
+    private final String[] threadNames;
+    private final char[] phases;
+
+    // ticket of the span in each slot or -1 while it is being written
+    // a reader checks it before and after copying a slot so a span overwritten meanwhile is skipped
+    private final AtomicLongArray tickets;
+
+    // next ticket to hand out
+    private final AtomicLong nextTicket = new AtomicLong();
+
+    private final AtomicLong lastTraceId = new AtomicLong();
+
+    // trace id held by each thread
+    private final ThreadLocal<long[]> current = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private volatile SectionSink sink;
+
+    Tracer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        mask = capacity - 1;
+        names = new String[capacity];
+        traceIds = new long[capacity];
+        startNanos = new long[capacity];
+        durationNanos = new long[capacity];
+        threadIds = new long[capacity];
+        threadNames = new String[capacity];
+        phases = new char[capacity];
+        tickets = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            tickets.set(slot, -1L);
+        }
+    }
+
+    public static Tracer getInstance() {
+        return INSTANCE;
+    }
+
+    // mirrors every span to the sink from now on or stops when it is null
+    public void setSectionSink(SectionSink sink) {
+        this.sink = sink;
+    }
+
+    // makes a new trace id without attaching it
+    public long newTraceId() {
+        return lastTraceId.incrementAndGet();
+    }
+
+    // trace id held by this thread or NO_TRACE
+    public long currentTraceId() {
+        return current.get()[0];
+    }
+
+    // makes this thread work for a trace and returns the id it held before
+    // put the old id back with attach when the work is done
+    public long attach(long traceId) {
+        long[] holder = current.get();
+        long previous = holder[0];
+        holder[0] = traceId;
+        return previous;
+    }
+
+    // starts a span on this thread and returns its start time for end
+    public long begin(String name) {
+        SectionSink target = sink;
+        if (target != null) {
+            target.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    // ends a span started with begin on this thread under the trace this thread holds
+    public void end(String name, long startNanos) {
+        end(name, startNanos, currentTraceId());
+    }
+
+    // ends a span started with begin on this thread under the given trace
+    public void end(String name, long startNanos, long traceId) {
+        long endNanos = System.nanoTime();
+        SectionSink target = sink;
+        if (target != null) {
+            target.endSection();
+        }
+        record(PHASE_COMPLETE, name, traceId, startNanos, endNanos - startNanos);
+    }
+
+    // records a single moment such as a hand over to another thread
+    public void mark(String name) {
+        record(PHASE_INSTANT, name, currentTraceId(), System.nanoTime(), 0L);
+    }
+
+    // drops every span recorded so far
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            tickets.set(slot, -1L);
+        }
+    }
+
+    private void record(char phase, String name, long traceId, long start, long duration) {
+        long ticket = nextTicket.getAndIncrement();
+        int slot = (int) (ticket & mask);
+        Thread thread = Thread.currentThread();
+
+        // swapped rather than set so the marker is visible before any field changes
+        tickets.getAndSet(slot, -1L);
+        phases[slot] = phase;
+        names[slot] = name;
+        traceIds[slot] = traceId;
+        startNanos[slot] = start;
+        durationNanos[slot] = duration;
+        threadIds[slot] = thread.getId();
+        threadNames[slot] = thread.getName();
+        tickets.set(slot, ticket);
+    }
+
+    // writes every span still in the buffer as chrome trace event json
+    // open the file in chrome://tracing or ui.perfetto.dev
+    // the trace id of each span is in its args so one refresh can be picked out across threads
+    public void writeChromeJson(Appendable out) throws IOException {
+        long end = nextTicket.get();
+        long first = Math.max(0L, end - (mask + 1));
+        int count = (int) (end - first);
+
+        // copy the spans first so the time base and thread names come from what was read
+        char[] copyPhases = new char[count];
+        String[] copyNames = new String[count];
+        long[] copyTraces = new long[count];
+        long[] copyStarts = new long[count];
+        long[] copyDurations = new long[count];
+        long[] copyThreads = new long[count];
+        Map<Long, String> threads = new LinkedHashMap<>();
+        long base = Long.MAX_VALUE;
+        int kept = 0;
+        for (long ticket = first; ticket < end; ticket++) {
+            int slot = (int) (ticket & mask);
+            if (tickets.get(slot) != ticket) {
+                continue;
+            }
+            copyPhases[kept] = phases[slot];
+            copyNames[kept] = names[slot];
+            copyTraces[kept] = traceIds[slot];
+            copyStarts[kept] = startNanos[slot];
+            copyDurations[kept] = durationNanos[slot];
+            copyThreads[kept] = threadIds[slot];
+            String threadName = threadNames[slot];
+            if (tickets.get(slot) != ticket) {
+                // overwritten while it was copied
+                continue;
+            }
+            threads.put(copyThreads[kept], threadName);
+            base = Math.min(base, copyStarts[kept]);
+            kept++;
+        }
+
+        out.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean firstEvent = true;
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            if (!firstEvent) {
+                out.append(',');
+            }
+            firstEvent = false;
+            out.append("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":")
+                    .append(Long.toString(thread.getKey()))
+                    .append(",\"args\":{\"name\":");
+            appendString(out, thread.getValue());
+            out.append("}}");
+        }
+        for (int i = 0; i < kept; i++) {
+            if (!firstEvent) {
+                out.append(',');
+            }
+            firstEvent = false;
+            out.append("{\"ph\":\"").append(copyPhases[i]).append("\",\"name\":");
+            appendString(out, copyNames[i]);
+            out.append(",\"cat\":\"refresh\",\"pid\":1,\"tid\":")
+                    .append(Long.toString(copyThreads[i]))
+                    .append(",\"ts\":").append(micros(copyStarts[i] - base));
+            if (copyPhases[i] == PHASE_COMPLETE) {
+                out.append(",\"dur\":").append(micros(copyDurations[i]));
+            } else {
+                // instant events are drawn across their own thread only
+                out.append(",\"s\":\"t\"");
+            }
+            out.append(",\"args\":{\"trace\":").append(Long.toString(copyTraces[i])).append("}}");
+        }
+        out.append("]}");
+    }
+
+    // the json as one string for tests and small dumps
+    public String toChromeJson() {
+        StringBuilder json = new StringBuilder(16 * 1024);
+        try {
+            writeChromeJson(json);
+        } catch (IOException e) {
+            // a string builder does not throw
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+
+    // nanos as micros with three decimals which is what the ts and dur fields hold
+    private static String micros(long nanos) {
+        long whole = nanos / 1_000L;
+        long fraction = nanos % 1_000L;
+        if (fraction == 0) {
+            return Long.toString(whole);
+        }
+        String digits = Long.toString(1_000L + fraction).substring(1);
+        return whole + "." + digits;
+    }
+
+    // adds a quoted json string
+    private static void appendString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(' ');
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,78 @@
+package org.me.gcu.jordanmoorecw1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+// checks the fast scanner reads the same rates as the pull parser path
+// their speed and allocation are measured by RssParserBenchmark with -PjmhProfilers=gc
+public class RssParserBenchmarkTest {
+
+    // roughly the number of items in the real gbp feed
+    private static final int FEED_ITEMS = 180;
+
+    @Test
+    public void fastPathMatchesPullParser() throws IOException {
+        String fixture = loadFixture();
+        assertSameFeed(fixture);
+        // a feed about the size of the live one so repeated items are checked too
+        assertSameFeed(buildFeed(fixture, FEED_ITEMS));
+    }
+
+    // parses the xml both ways and checks every row agrees
+    private static void assertSameFeed(String xml) throws IOException {
+        RssParser parser = new RssParser();
+        ParsedFeed fast = parser.parse(xml);
+        ParsedFeed slow = parser.parseWithPullParser(new StringReader(xml), null);
+
+        assertEquals(slow.getLastUpdated(), fast.getLastUpdated());
+        RateTable expected = slow.getRates();
+        RateTable actual = fast.getRates();
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getId(row), actual.getId(row));
+            assertEquals(expected.getTitle(row), actual.getTitle(row));
+            assertEquals(expected.getCode(row), actual.getCode(row));
+            assertEquals(expected.getUnits(row), actual.getUnits(row));
+            assertEquals(expected.getScale(row), actual.getScale(row));
+        }
+        assertTrue(expected.sameRates(actual));
+    }
+
+    // repeats the fixture items until the feed holds the requested number of items
+    private static String buildFeed(String fixture, int itemCount) {
+        int firstItem = fixture.indexOf("<item>");
+        int afterLastItem = fixture.lastIndexOf("</item>") + "</item>".length();
+        String items = fixture.substring(firstItem, afterLastItem);
+        int itemsPerCopy = items.split("<item>", -1).length - 1;
+
+        StringBuilder builder = new StringBuilder(fixture.substring(0, firstItem));
+        for (int i = 0; i < itemCount; i += itemsPerCopy) {
+            builder.append(items).append('\n');
+        }
+        builder.append(fixture.substring(afterLastItem));
+        return builder.toString();
+    }
+
+    static String loadFixture() throws IOException {
+        try (InputStream in = RssParserBenchmarkTest.class.getClassLoader()
+                .getResourceAsStream("gbp_rss.xml")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.me.gcu.jordanmoorecw1;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.metrics.Counter;
+import org.me.gcu.jordanmoorecw1.metrics.MetricsRegistry;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// feeds the fast scanner gives up on part way through
+// the rates it already handed out must not be sent again when the pull parser replays the feed
+public class RssParserTest {
+
+    private static final Counter PULL_FALLBACKS =
+            MetricsRegistry.getInstance().counter("parse.pull_fallbacks");
+
+    @Test
+    public void cdataAfterValidItemsSendsEachRateOnce() throws IOException {
+        checkReplay(item("British Pound Sterling(GBP)/Swiss Franc(CHF)",
+                "<![CDATA[1 British Pound Sterling = 1.0712 Swiss Franc]]>"));
+    }
+
+    @Test
+    public void entityAfterValidItemsSendsEachRateOnce() throws IOException {
+        checkReplay(item("British Pound Sterling(GBP)/Trinidad &amp; Tobago Dollar(TTD)",
+                "1 British Pound Sterling = 9.1012 Trinidad &amp; Tobago Dollar"));
+    }
+
+    @Test
+    public void unexpectedShapeAfterValidItemsSendsEachRateOnce() throws IOException {
+        // a second description in one item is not the layout the scanner knows
+        checkReplay("<item>\n"
+                + "<title>British Pound Sterling(GBP)/Swedish Krona(SEK)</title>\n"
+                + "<description>1 British Pound Sterling = 12.6001 Swedish Krona</description>\n"
+                + "<description>1 British Pound Sterling = 12.6002 Swedish Krona</description>\n"
+                + "</item>\n");
+    }
+
+    // valid items then the odd one then more valid items
+    private static void checkReplay(String oddItem) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<rss version=\"2.0\"><channel>\n"
+                + "<pubDate>Fri, 17 Oct 2025 10:00:04 GMT</pubDate>\n"
+                + item("British Pound Sterling(GBP)/United States Dollar(USD)",
+                        "1 British Pound Sterling = 1.3412 United States Dollar")
+                + item("British Pound Sterling(GBP)/Euro(EUR)",
+                        "1 British Pound Sterling = 1.1523 Euro")
+                + item("British Pound Sterling(GBP)/Japanese Yen(JPY)",
+                        "1 British Pound Sterling = 203.5821 Japanese Yen")
+                + oddItem
+                + item("British Pound Sterling(GBP)/Australian Dollar(AUD)",
+                        "1 British Pound Sterling = 2.0581 Australian Dollar")
+                + item("British Pound Sterling(GBP)/Canadian Dollar(CAD)",
+                        "1 British Pound Sterling = 1.8804 Canadian Dollar")
+                + "</channel></rss>\n";
+
+        List<long[]> heard = new ArrayList<>();
+        long fallbacksBefore = PULL_FALLBACKS.get();
+        ParsedFeed feed = new RssParser().parse(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8,
+                (id, units, scale) -> heard.add(new long[]{id, units, scale}));
+
+        // the scanner really did hand over to the pull parser
+        assertEquals(fallbacksBefore + 1, PULL_FALLBACKS.get());
+
+        RateTable expected = new RssParser()
+                .parseWithPullParser(new StringReader(xml), null).getRates();
+        RateTable rates = feed.getRates();
+        assertEquals(6, expected.size());
+        assertEquals(expected.size(), rates.size());
+        assertEquals("Fri, 17 Oct 2025 10:00:04 GMT", feed.getLastUpdated());
+
+        // every row reached the listener exactly once and in feed order
+        assertEquals(rates.size(), heard.size());
+        for (int row = 0; row < rates.size(); row++) {
+            assertEquals(expected.getId(row), rates.getId(row));
+            assertEquals(expected.getUnits(row), rates.getUnits(row));
+            assertEquals(expected.getScale(row), rates.getScale(row));
+            assertEquals(rates.getId(row), heard.get(row)[0]);
+            assertEquals(rates.getUnits(row), heard.get(row)[1]);
+            assertEquals(rates.getScale(row), heard.get(row)[2]);
+        }
+    }
+
+    private static String item(String title, String description) {
+        return "<item>\n<title>" + title + "</title>\n<description>" + description
+                + "</description>\n</item>\n";
+    }
+}
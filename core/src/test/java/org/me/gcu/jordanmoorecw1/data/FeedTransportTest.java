@@ -0,0 +1,217 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// tests for the feed transport against a local http server standing in for the feed host
+public class FeedTransportTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private byte[] feedBytes;
+
+    // client ports seen by the server so connection reuse can be checked
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+
+    // encoding the server uses for the next responses
+    private volatile String encoding = "gzip";
+
+    // delay before the server answers
+    private volatile long delayMs = 0;
+
+    @Before
+    public void setUp() throws IOException {
+        feedBytes = readFixture();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gbp/rss.xml", this::handleFeed);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void gzipBodyIsDecodedAndSmallerOnTheWire() throws IOException {
+        FeedFetcher fetcher = new FeedFetcher(feedUrl(), new FeedTransport());
+
+        ParsedFeed feed = fetchAndParse(fetcher);
+
+        assertEquals(14, feed.getRates().size());
+        FeedTransport.Stats stats = fetcher.getTransport().getLastStats();
+        assertEquals(feedBytes.length, stats.bodyBytes);
+        assertTrue(stats.wireBytes < stats.bodyBytes);
+    }
+
+    @Test
+    public void deflateBodyIsDecoded() throws IOException {
+        encoding = "deflate";
+        FeedFetcher fetcher = new FeedFetcher(feedUrl(), new FeedTransport());
+
+        ParsedFeed feed = fetchAndParse(fetcher);
+
+        assertEquals(14, feed.getRates().size());
+        assertEquals(feedBytes.length, fetcher.getTransport().getLastStats().bodyBytes);
+    }
+
+    @Test
+    public void connectionIsReusedAcrossRefreshes() throws IOException {
+        FeedFetcher fetcher = new FeedFetcher(feedUrl(), new FeedTransport());
+
+        for (int i = 0; i < 3; i++) {
+            fetchAndParse(fetcher);
+        }
+
+        Set<Integer> distinctPorts = new HashSet<>(clientPorts);
+        assertEquals(3, clientPorts.size());
+        assertEquals(1, distinctPorts.size());
+        assertEquals(3, fetcher.getTransport().getTotalRequests());
+    }
+
+    @Test
+    public void notModifiedSkipsTheBody() throws IOException {
+        FeedFetcher fetcher = new FeedFetcher(feedUrl(), new FeedTransport());
+
+        FeedResponse first = fetcher.openFeed(true);
+        new RssParser().parse(first.getBody(), first.getCharset());
+        first.close();
+        fetcher.rememberValidators(first.getEtag(), first.getLastModified());
+
+        FeedResponse second = fetcher.openFeed(true);
+        assertTrue(second.isNotModified());
+        second.close();
+        assertEquals(0, second.getStats().bodyBytes);
+    }
+
+    @Test
+    public void notModifiedWithAnEncodingHasAnEmptyBody() throws IOException {
+        FeedTransport transport = new FeedTransport();
+        FeedTransport.Exchange exchange = transport.get(feedUrl(),
+                Collections.singletonMap("If-None-Match", ETAG));
+        assertEquals(304, exchange.getResponseCode());
+        assertEquals("gzip", exchange.getHeader("Content-Encoding"));
+        // no gzip header is read off the empty body so this is a clean end and not an error
+        assertEquals(-1, exchange.getBody().read());
+        exchange.close();
+        assertEquals(0, exchange.getStats().bodyBytes);
+    }
+
+    @Test
+    public void emptyCompressedBodiesDecodeToNothing() throws IOException {
+        for (String encoding : new String[]{"gzip", "x-gzip", "deflate"}) {
+            InputStream decoded = FeedTransport.decode(
+                    new ByteArrayInputStream(new byte[0]), encoding);
+            assertEquals(encoding, -1, decoded.read());
+        }
+    }
+
+    @Test
+    public void readDeadlineIsApplied() {
+        delayMs = 2_000;
+        FeedFetcher fetcher = new FeedFetcher(feedUrl(), new FeedTransport(1_000, 200));
+
+        long start = System.nanoTime();
+        FeedResponse response = fetcher.openFeed(false);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertNull(response);
+        assertTrue(elapsedMs < delayMs);
+    }
+
+    private ParsedFeed fetchAndParse(FeedFetcher fetcher) throws IOException {
+        FeedResponse response = fetcher.openFeed(false);
+        assertNotNull(response);
+        try {
+            return new RssParser().parse(response.getBody(), response.getCharset());
+        } finally {
+            response.close();
+        }
+    }
+
+    private String feedUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/gbp/rss.xml";
+    }
+
+    private void handleFeed(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            // some servers repeat the encoding of the cached body on a 304
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = feedBytes;
+        if (accepted != null && accepted.contains(encoding)) {
+            body = compress(feedBytes, encoding);
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] compress(byte[] data, String encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressor = encoding.equals("gzip")
+                ? new GZIPOutputStream(out)
+                : new DeflaterOutputStream(out)) {
+            compressor.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readFixture() throws IOException {
+        try (InputStream in = FeedTransportTest.class.getClassLoader()
+                .getResourceAsStream("gbp_rss.xml")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
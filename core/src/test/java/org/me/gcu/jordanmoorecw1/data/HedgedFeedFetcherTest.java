@@ -0,0 +1,293 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.RssParser;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// tests for hedged requests against two local http servers standing in for the feed hosts
+public class HedgedFeedFetcherTest {
+
+    private static byte[] feedBytes;
+
+    // rates of a held snapshot which these tests never look at
+    private static final ParsedFeed NO_RATES = new ParsedFeed(RateTable.EMPTY, "");
+
+    private FakeHost main;
+    private FakeHost mirror;
+    private HedgedFeedFetcher fetcher;
+
+    @Before
+    public void setUp() throws IOException {
+        feedBytes = readFixture("gbp_rss.xml");
+        main = new FakeHost();
+        mirror = new FakeHost();
+        FeedTransport transport = new FeedTransport(1_000, 3_000);
+        fetcher = new HedgedFeedFetcher(Arrays.asList(
+                new RssFeedSource("main", main.url(), transport),
+                new RssFeedSource("mirror", mirror.url(), transport)), 200);
+    }
+
+    @After
+    public void tearDown() {
+        fetcher.shutdown();
+        main.stop();
+        mirror.stop();
+    }
+
+    @Test
+    public void fastPrimaryIsNotHedged() throws Exception {
+        FeedResult result = fetcher.fetch(null);
+
+        assertNotNull(result);
+        assertEquals("main", result.getSourceName());
+        assertEquals(14, result.getFeed().getRates().size());
+        assertEquals(0, mirror.requests.get());
+    }
+
+    @Test
+    public void slowPrimaryIsHedgedAndTheFirstAnswerWins() throws Exception {
+        main.delayMs = 2_000;
+
+        long start = System.nanoTime();
+        FeedResult result = fetcher.fetch(null);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        assertNotNull(result);
+        assertEquals("mirror", result.getSourceName());
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < main.delayMs);
+        assertEquals(1, mirror.requests.get());
+    }
+
+    @Test
+    public void failingPrimaryHandsOverWithoutWaitingForTheHedge() throws Exception {
+        main.status = 500;
+        FeedTransport transport = new FeedTransport(1_000, 3_000);
+        HedgedFeedFetcher patient = new HedgedFeedFetcher(Arrays.asList(
+                new RssFeedSource("main", main.url(), transport),
+                new RssFeedSource("mirror", mirror.url(), transport)), 5_000);
+        try {
+            long start = System.nanoTime();
+            FeedResult result = patient.fetch(null);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+            assertNotNull(result);
+            assertEquals("mirror", result.getSourceName());
+            assertTrue("took " + elapsedMs + " ms", elapsedMs < 2_000);
+            assertEquals(1, patient.getHealth(0).getFailures());
+        } finally {
+            patient.shutdown();
+        }
+    }
+
+    @Test
+    public void slowPrimaryIsDemoted() throws Exception {
+        main.delayMs = 1_000;
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(fetcher.fetch(null));
+        }
+
+        // the main host only ever lost so the mirror is asked first now
+        assertEquals("mirror", fetcher.getPrimary().getName());
+        int mainRequests = main.requests.get();
+        FeedResult result = fetcher.fetch(null);
+        assertEquals("mirror", result.getSourceName());
+        assertEquals(mainRequests, main.requests.get());
+    }
+
+    @Test
+    public void feedWithoutRatesCountsAsAFailure() throws Exception {
+        main.body = "<rss><channel></channel></rss>".getBytes("UTF-8");
+
+        FeedResult result = fetcher.fetch(null);
+
+        assertNotNull(result);
+        assertEquals("mirror", result.getSourceName());
+        assertTrue(fetcher.getHealth(0).getErrorRate() > 0);
+    }
+
+    @Test
+    public void everySourceFailingGivesNull() throws Exception {
+        main.status = 500;
+        mirror.status = 503;
+
+        assertNull(fetcher.fetch(null));
+        assertFalse(fetcher.getHealth(1).getErrorRate() == 0);
+    }
+
+    @Test
+    public void notModifiedIsAUsableAnswer() throws Exception {
+        FeedResult result = fetcher.fetch(heldFrom("main"));
+
+        assertNotNull(result);
+        assertTrue(result.isNotModified());
+        assertEquals("main", result.getSourceName());
+        assertEquals(FakeHost.ETAG, main.lastIfNoneMatch);
+    }
+
+    @Test
+    public void validatorsAreOnlySentToTheSourceThatMadeThem() throws Exception {
+        // both hosts happen to use the same etag so a mirror that was sent it would answer 304
+        main.delayMs = 2_000;
+        FeedResult result = fetcher.fetch(heldFrom("main"));
+
+        assertNotNull(result);
+        assertEquals("mirror", result.getSourceName());
+        assertFalse(result.isNotModified());
+        assertEquals(14, result.getFeed().getRates().size());
+        assertNull(mirror.lastIfNoneMatch);
+        assertEquals(FakeHost.ETAG, main.lastIfNoneMatch);
+    }
+
+    @Test
+    public void ratesHeldFromTheMirrorGetAPlainRequestAtTheMainHost() throws Exception {
+        FeedResult result = fetcher.fetch(heldFrom("mirror"));
+
+        assertEquals("main", result.getSourceName());
+        assertFalse(result.isNotModified());
+        assertNull(main.lastIfNoneMatch);
+        assertEquals(0, mirror.requests.get());
+    }
+
+    @Test
+    public void heldRatesWithNoSourceAreNotRevalidated() throws Exception {
+        // a snapshot from an older file does not say where its validators came from
+        RateSnapshot unknown = new RateSnapshot(NO_RATES, 0L, FakeHost.ETAG, null);
+        FeedResult result = fetcher.fetch(unknown);
+
+        assertFalse(result.isNotModified());
+        assertNull(main.lastIfNoneMatch);
+    }
+
+    @Test
+    public void mirrorFeedGivesTheSameRatesAsTheMainFeed() throws Exception {
+        // the mirror wraps descriptions in cdata and links to its own pages
+        main.status = 500;
+        mirror.body = readFixture("gbp_rss_mirror.xml");
+
+        FeedResult result = fetcher.fetch(null);
+
+        assertNotNull(result);
+        assertEquals("mirror", result.getSourceName());
+        ParsedFeed expected = new RssParser().parse(new ByteArrayInputStream(feedBytes),
+                StandardCharsets.UTF_8);
+        assertEquals(expected.getLastUpdated(), result.getFeed().getLastUpdated());
+        assertTrue(expected.getRates().sameRates(result.getFeed().getRates()));
+    }
+
+    @Test
+    public void mirrorServingAnotherBaseCountsAsAFailure() throws Exception {
+        main.status = 500;
+        mirror.body = new String(feedBytes, StandardCharsets.UTF_8)
+                .replace("British Pound Sterling(GBP)/", "United States Dollar(USD)/")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // parsed fine but quoted against usd so it must not replace the gbp rates
+        assertNull(fetcher.fetch(null));
+        assertEquals(1, fetcher.getHealth(1).getFailures());
+    }
+
+    // snapshot held from the named source with the etag both fake hosts use
+    private static RateSnapshot heldFrom(String sourceName) {
+        return new RateSnapshot(NO_RATES, 0L, FakeHost.ETAG, null, sourceName);
+    }
+
+    // local http server with an injected delay and status
+    private static final class FakeHost {
+        static final String ETAG = "\"v1\"";
+
+        final HttpServer server;
+        final AtomicInteger requests = new AtomicInteger();
+        volatile long delayMs;
+        volatile int status = 200;
+        volatile byte[] body = feedBytes;
+        // if none match header of the last request or null when it had none
+        volatile String lastIfNoneMatch;
+
+        FakeHost() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/gbp/rss.xml", this::handle);
+            // several threads so a slow request does not hold up the next one
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/gbp/rss.xml";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            try {
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] payload = body;
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            } catch (IOException ignored) {
+                // the client dropped a hedge it no longer wanted
+            }
+        }
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = HedgedFeedFetcherTest.class.getClassLoader()
+                .getResourceAsStream(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.CrossRates;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.FixedDecimal;
+import org.me.gcu.jordanmoorecw1.model.MultiBaseRates;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// tests for loading several base feeds at once with fake sources that sleep or fail
+public class MultiBaseFetcherTest {
+
+    private static final String[] BASES =
+            {"USD", "EUR", "JPY", "CHF", "CAD", "AUD", "NZD", "SEK", "NOK", "DKK"};
+
+    @Test
+    public void tenFeedsTakeAboutAsLongAsTheSlowest() throws Exception {
+        List<String> bases = Arrays.asList(BASES);
+        List<FeedSource> sources = new ArrayList<>();
+        for (String base : bases) {
+            sources.add(new FakeSource(base, 300, false));
+        }
+        MultiBaseFetcher fetcher = new MultiBaseFetcher(bases, sources, 10, 5_000);
+        try {
+            long startedMs = System.currentTimeMillis();
+            long start = System.nanoTime();
+            MultiBaseFetcher.Outcome[] outcomes = fetcher.fetchAll(null);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+            long finishedMs = System.currentTimeMillis();
+            assertEquals(10, outcomes.length);
+            for (int i = 0; i < outcomes.length; i++) {
+                assertEquals(BASES[i], outcomes[i].getBase());
+                assertEquals(MultiBaseFetcher.Status.OK, outcomes[i].getStatus());
+                // stamped when the answer arrived not when the batch was read
+                assertTrue(outcomes[i].getFetchedAtMs() <= finishedMs);
+                assertTrue(outcomes[i].getFetchedAtMs() >= startedMs);
+            }
+            // one after another would be 3 seconds
+            assertTrue("took " + elapsedMs + " ms", elapsedMs < 1_500);
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void slowAndBrokenFeedsDoNotHoldBackTheOthers() throws Exception {
+        List<String> bases = Arrays.asList("USD", "EUR", "JPY");
+        List<FeedSource> sources = Arrays.<FeedSource>asList(
+                new FakeSource("USD", 50, false),
+                new FakeSource("EUR", 10_000, false),
+                new FakeSource("JPY", 50, true));
+        MultiBaseFetcher fetcher = new MultiBaseFetcher(bases, sources, 2, 500);
+        try {
+            long start = System.nanoTime();
+            MultiBaseFetcher.Outcome[] outcomes = fetcher.fetchAll(null);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+            assertEquals(MultiBaseFetcher.Status.OK, outcomes[0].getStatus());
+            assertEquals(MultiBaseFetcher.Status.TIMED_OUT, outcomes[1].getStatus());
+            assertNull(outcomes[1].getResult());
+            assertEquals(MultiBaseFetcher.Status.FAILED, outcomes[2].getStatus());
+            assertTrue("took " + elapsedMs + " ms", elapsedMs < 2_000);
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void whenDoneRunsOnTheDownloadThreadWithoutTheCallerWaiting() throws Exception {
+        List<String> bases = Arrays.asList("USD", "EUR", "JPY", "CHF", "CAD", "AUD");
+        List<FeedSource> sources = new ArrayList<>();
+        for (String base : bases) {
+            sources.add(new FakeSource(base, 200, false));
+        }
+        // six feeds on two threads take three rounds
+        MultiBaseFetcher fetcher = new MultiBaseFetcher(bases, sources, 2, 5_000);
+        try {
+            AtomicReference<MultiBaseFetcher.Outcome[]> seen = new AtomicReference<>();
+            AtomicReference<Thread> ranOn = new AtomicReference<>();
+            AtomicInteger calls = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(1);
+
+            long start = System.nanoTime();
+            MultiBaseFetcher.Batch batch = fetcher.start(null);
+            batch.whenDone(outcomes -> {
+                calls.incrementAndGet();
+                ranOn.set(Thread.currentThread());
+                seen.set(outcomes);
+                done.countDown();
+            });
+            long handedBackMs = (System.nanoTime() - start) / 1_000_000L;
+
+            assertTrue("held the caller " + handedBackMs + " ms", handedBackMs < 100);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertTrue(ranOn.get() != Thread.currentThread());
+            for (int i = 0; i < bases.size(); i++) {
+                assertEquals(bases.get(i), seen.get()[i].getBase());
+                assertEquals(MultiBaseFetcher.Status.OK, seen.get()[i].getStatus());
+            }
+
+            // a finished batch hands its outcomes over straight away
+            AtomicReference<Thread> lateRanOn = new AtomicReference<>();
+            batch.whenDone(outcomes -> lateRanOn.set(Thread.currentThread()));
+            assertEquals(Thread.currentThread(), lateRanOn.get());
+            assertEquals(1, calls.get());
+        } finally {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void matrixUsesTheLaterDownloadOfTheDirectAndInverseQuotes() {
+        // usd feed says 1 USD = 0.9 EUR and the newer eur feed says 1 EUR = 1.2 USD
+        RateSnapshot usd = snapshot(1_000L, "EUR", 9, 1);
+        RateSnapshot eur = snapshot(2_000L, "USD", 12, 1);
+        MultiBaseRates rates = new MultiBaseRates.Builder()
+                .put("USD", usd)
+                .put("EUR", eur)
+                .build();
+
+        assertEquals(2, rates.baseCount());
+        assertEquals(1_000L, rates.getFetchedAtMs(rates.baseRowOf("usd")));
+
+        // USD to EUR goes through the newer eur row as 1 / 1.2
+        assertEquals(8333L, rates.rate("USD", "EUR", 4, RoundingMode.HALF_EVEN));
+        // EUR to USD is direct from the eur row
+        assertEquals(12000L, rates.rate("EUR", "USD", 4, RoundingMode.HALF_EVEN));
+        // no base feed quotes this pair
+        assertEquals(FixedDecimal.INVALID, rates.rate("JPY", "CHF", 4, RoundingMode.HALF_EVEN));
+
+        // once the usd feed is downloaded again its direct quote wins
+        rates = new MultiBaseRates.Builder()
+                .put("USD", usd.withFetchedAtMs(3_000L))
+                .put("EUR", eur)
+                .build();
+        assertEquals(9000L, rates.rate("USD", "EUR", 4, RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    public void quotesConvertLargeAmountsWithOneRounding() {
+        // the newer jpy feed says 1 JPY = 0.006543 CHF
+        MultiBaseRates rates = new MultiBaseRates.Builder()
+                .put("CHF", snapshot(1_000L, "JPY", 152834L, 3))
+                .put("JPY", snapshot(2_000L, "CHF", 6543L, 6))
+                .build();
+        long[] pair = new long[2];
+        assertTrue(rates.quote("CHF", "JPY", pair));
+
+        // 1,000,000,000 CHF / 0.006543 = 152835090936.8791... JPY
+        // a rate rounded to ten places first would give 152835090936.900
+        assertEquals(152835090936879L,
+                CrossRates.convert(1_000_000_000_00L, 2, pair, 3, RoundingMode.HALF_EVEN));
+        assertEquals(FixedDecimal.INVALID, rates.rate("GBP", "NZD", 4, RoundingMode.HALF_EVEN));
+    }
+
+    // snapshot with a single quote of the given currency
+    private static RateSnapshot snapshot(long fetchedAtMs, String isoCode, long units, int scale) {
+        int id = CurrencyRegistry.getInstance().intern(isoCode, isoCode);
+        RateTable table = new RateTable.Builder().add(id, units, scale).build();
+        return new RateSnapshot(new ParsedFeed(table, "today"), fetchedAtMs, null, null);
+    }
+
+    // source that answers after a delay or fails
+    // the wait is cut short once the call is cancelled like a dropped connection
+    private static final class FakeSource implements FeedSource {
+
+        private final String base;
+        private final long delayMs;
+        private final boolean fail;
+
+        FakeSource(String base, long delayMs, boolean fail) {
+            this.base = base;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public String getName() {
+            return base;
+        }
+
+        @Override
+        public FeedResult fetch(String ifNoneMatch, String ifModifiedSince, FeedCall call)
+                throws IOException {
+            long end = System.currentTimeMillis() + delayMs;
+            while (System.currentTimeMillis() < end) {
+                if (call.isCancelled()) {
+                    throw new IOException("cancelled");
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (fail) {
+                throw new IOException("feed unavailable");
+            }
+            RateSnapshot quote = snapshot(0L, "GBP", 8, 1);
+            return FeedResult.of(base, quote.getFeed(), "etag-" + base, null);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.zip.Deflater;
+
+// round trips the history log through range and at
+// and checks compaction and the recovery of a half written or damaged block
+public class RateHistoryStoreTest {
+
+    private static final long HOUR_MS = 60L * 60L * 1000L;
+    private static final long DAY_MS = 24L * HOUR_MS;
+
+    private static final String USD = "UNITEDSTATESDOLLAR(USD)";
+    // a code outside ascii checks the dictionary is read back as utf-8
+    private static final String XOF = "FRANCCFA(XOF)\u00c9";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rate-history").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void valuesComeBackAcrossKeyframesAndAfterReopening() throws IOException {
+        long start = System.currentTimeMillis() - 100 * HOUR_MS;
+        RateHistoryStore store = new RateHistoryStore(directory);
+        // 60 blocks is two keyframes and part of a third
+        for (int i = 0; i < 60; i++) {
+            store.append(start + i * HOUR_MS, table(usdUnits(i), 6_1234L + i));
+        }
+
+        checkSeries(store, start, 60);
+        // a window that starts after the second keyframe
+        RateHistoryStore.RateSeries part = store.range(USD, start + 30 * HOUR_MS,
+                start + 40 * HOUR_MS);
+        assertEquals(11, part.size);
+        assertEquals(start + 30 * HOUR_MS, part.timesMs[0]);
+        assertEquals(usdUnits(30) / 10_000d, part.rates[0], 0.0);
+
+        Map<String, Double> at = store.at(start + 47 * HOUR_MS + 10);
+        assertEquals(usdUnits(47) / 10_000d, at.get(USD), 0.0);
+        assertEquals((6_1234L + 47) / 10_000d, at.get(XOF), 0.0);
+        assertTrue(store.at(start - 1).isEmpty());
+
+        // a second instance reads the index and dictionary from disk
+        // and carries on the deltas from where the first one stopped
+        RateHistoryStore reopened = new RateHistoryStore(directory);
+        checkSeries(reopened, start, 60);
+        reopened.append(start + 60 * HOUR_MS, table(usdUnits(60), 6_1234L + 60));
+        checkSeries(new RateHistoryStore(directory), start, 61);
+    }
+
+    @Test
+    public void compactionDropsOldBlocksAndThinsTheMiddleToOnePerDay() throws IOException {
+        long now = System.currentTimeMillis();
+        long start = now - 200 * DAY_MS;
+        RateHistoryStore store = new RateHistoryStore(directory);
+        int appended = 0;
+        for (long time = start; time <= now; time += 6 * HOUR_MS) {
+            store.append(time, table(usdUnits(appended), 6_1234L));
+            appended++;
+        }
+        long before = store.getLogBytes();
+
+        store.compact(now);
+
+        assertTrue(store.getLogBytes() < before);
+        RateHistoryStore.RateSeries series = store.range(USD, 0, now);
+        long previousDay = Long.MIN_VALUE;
+        int recent = 0;
+        for (int i = 0; i < series.size; i++) {
+            long time = series.timesMs[i];
+            assertTrue("kept a block past retention", time >= now - RateHistoryStore.RETENTION_MS);
+            if (time < now - RateHistoryStore.FULL_RESOLUTION_MS) {
+                long day = Math.floorDiv(time, DAY_MS);
+                assertTrue("two blocks on one old day", day != previousDay);
+                previousDay = day;
+            } else {
+                recent++;
+            }
+            // values survive the deltas being laid out again
+            int index = (int) ((time - start) / (6 * HOUR_MS));
+            assertEquals(usdUnits(index) / 10_000d, series.rates[i], 0.0);
+        }
+        // every block of the last 30 days is kept at full resolution
+        assertEquals(30 * 4, recent, 1);
+    }
+
+    @Test
+    public void aHalfWrittenBlockIsCutOffOnOpen() throws IOException {
+        long start = System.currentTimeMillis() - 10 * HOUR_MS;
+        RateHistoryStore store = new RateHistoryStore(directory);
+        for (int i = 0; i < 5; i++) {
+            store.append(start + i * HOUR_MS, table(usdUnits(i), 6_1234L));
+        }
+
+        // lose the last few bytes as if the app died while writing
+        File log = new File(directory, "rates.log");
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        RateHistoryStore recovered = new RateHistoryStore(directory);
+        checkSeries(recovered, start, 4);
+
+        // the next block goes where the torn one was and continues the deltas
+        recovered.append(start + 4 * HOUR_MS, table(usdUnits(4), 6_1234L));
+        checkSeries(new RateHistoryStore(directory), start, 5);
+    }
+
+    @Test(timeout = 10_000)
+    public void aBlockWithACutDeflateStreamIsDroppedInsteadOfHanging() throws IOException {
+        long start = System.currentTimeMillis() - 10 * HOUR_MS;
+        fillFiveBlocks(start);
+
+        // the block still says how long it is but its stream stops halfway
+        // so the inflater keeps asking for input the block does not have
+        replaceLastBlock(compressed -> Arrays.copyOf(compressed, compressed.length / 2), -1);
+
+        RateHistoryStore recovered = new RateHistoryStore(directory);
+        checkSeries(recovered, start, 4);
+        recovered.append(start + 4 * HOUR_MS, table(usdUnits(4), 6_1234L));
+        checkSeries(new RateHistoryStore(directory), start, 5);
+    }
+
+    @Test(timeout = 10_000)
+    public void aBlockWithABadCountIsDroppedOnOpen() throws IOException {
+        long start = System.currentTimeMillis() - 10 * HOUR_MS;
+        fillFiveBlocks(start);
+
+        // a payload that inflates cleanly but promises more entries than it holds
+        byte[] payload = {(byte) 0xFF, (byte) 0xFF, 0x03, 0x00};
+        Deflater deflater = new Deflater();
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] compressed = new byte[64];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        replaceLastBlock(ignored -> Arrays.copyOf(compressed, length), payload.length);
+
+        checkSeries(new RateHistoryStore(directory), start, 4);
+    }
+
+    private void fillFiveBlocks(long start) throws IOException {
+        RateHistoryStore store = new RateHistoryStore(directory);
+        for (int i = 0; i < 5; i++) {
+            store.append(start + i * HOUR_MS, table(usdUnits(i), 6_1234L));
+        }
+    }
+
+    // rewrites the last block of the log with new compressed bytes and a matching length
+    // rawLength of -1 keeps the length of the payload the block already had
+    private void replaceLastBlock(UnaryOperator<byte[]> change, int rawLength)
+            throws IOException {
+        File log = new File(directory, "rates.log");
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            // blocks are an int length then kind timestamp raw length and the compressed bytes
+            long last = 0;
+            long offset = 0;
+            while (offset < file.length()) {
+                last = offset;
+                file.seek(offset);
+                offset += 4 + file.readInt();
+            }
+            file.seek(last);
+            int blockLength = file.readInt();
+            byte kind = file.readByte();
+            long timestamp = file.readLong();
+            int oldRawLength = file.readInt();
+            byte[] compressed = new byte[blockLength - 13];
+            file.readFully(compressed);
+
+            byte[] replaced = change.apply(compressed);
+            file.seek(last);
+            file.writeInt(13 + replaced.length);
+            file.writeByte(kind);
+            file.writeLong(timestamp);
+            file.writeInt(rawLength >= 0 ? rawLength : oldRawLength);
+            file.write(replaced);
+            file.setLength(file.getFilePointer());
+        }
+    }
+
+    // the usd rate of block i which moves both ways so deltas go negative too
+    private static long usdUnits(int i) {
+        return 1_3412L + (i % 7) * 13L - (i % 3) * 29L;
+    }
+
+    private static void checkSeries(RateHistoryStore store, long start, int blocks)
+            throws IOException {
+        RateHistoryStore.RateSeries series = store.range(USD, start, start + blocks * HOUR_MS);
+        assertEquals(blocks, series.size);
+        for (int i = 0; i < blocks; i++) {
+            assertEquals(start + i * HOUR_MS, series.timesMs[i]);
+            assertEquals(usdUnits(i) / 10_000d, series.rates[i], 0.0);
+        }
+    }
+
+    private static RateTable table(long usdUnits, long xofUnits) {
+        CurrencyRegistry registry = CurrencyRegistry.getInstance();
+        return new RateTable.Builder()
+                .add(registry.intern(USD, "British Pound Sterling(GBP)/United States Dollar(USD)"),
+                        usdUnits, 4)
+                .add(registry.intern(XOF, "British Pound Sterling(GBP)/CFA Franc(XOF)"),
+                        xofUnits, 4)
+                .build();
+    }
+}
@@ -0,0 +1,240 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.ParsedFeed;
+import org.me.gcu.jordanmoorecw1.model.RateSnapshot;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// round trips the snapshot file and checks every damaged file reads as no file
+public class SnapshotStoreTest {
+
+    private static final String USD_CODE = "UNITEDSTATESDOLLAR(USD)";
+    private static final String USD_TITLE = "British Pound Sterling(GBP)/United States Dollar(USD)";
+    private static final String JPY_CODE = "JAPANESEYEN(JPY)";
+    private static final String JPY_TITLE = "British Pound Sterling(GBP)/Japanese Yen(JPY)";
+
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-store").toFile();
+        file = new File(directory, "snapshot.bin");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File left : files) {
+                left.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void writtenSnapshotReadsBackTheSame() throws IOException {
+        RateSnapshot written = snapshot();
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(written);
+
+        RateSnapshot read = new SnapshotStore(file).read();
+        assertNotNull(read);
+        assertEquals(written.getFetchedAtMs(), read.getFetchedAtMs());
+        assertEquals("W/\"abc\"", read.getEtag());
+        assertEquals("Fri, 17 Oct 2025 10:00:04 GMT", read.getLastModified());
+        assertEquals("fx-exchange", read.getSourceName());
+        assertEquals("Fri, 17 Oct 2025 10:00:04 GMT", read.getFeed().getLastUpdated());
+        assertSameRows(written.getFeed().getRates(), read.getFeed().getRates());
+        // the temp file was renamed over the real one
+        assertEquals(1, directory.listFiles().length);
+
+        // the stream reader used for the seed gives the same snapshot
+        RateSnapshot streamed = SnapshotStore.read(
+                new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+        assertNotNull(streamed);
+        assertSameRows(written.getFeed().getRates(), streamed.getFeed().getRates());
+    }
+
+    @Test
+    public void missingValidatorsComeBackAsNull() throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(new RateSnapshot(snapshot().getFeed(), 0L, null, null));
+
+        RateSnapshot read = store.read();
+        assertNull(read.getEtag());
+        assertNull(read.getLastModified());
+        assertNull(read.getSourceName());
+        assertEquals(0L, read.getFetchedAtMs());
+    }
+
+    @Test
+    public void noFileReadsAsNull() {
+        assertNull(new SnapshotStore(file).read());
+    }
+
+    @Test
+    public void checksumMismatchReadsAsNull() throws IOException {
+        byte[] bytes = SnapshotStore.encode(snapshot());
+        // flip a bit in the last rate byte so the payload still decodes without the check
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file.toPath(), bytes);
+
+        assertNull(new SnapshotStore(file).read());
+    }
+
+    @Test
+    public void badMagicReadsAsNull() throws IOException {
+        byte[] bytes = SnapshotStore.encode(snapshot());
+        bytes[0] ^= 0x7F;
+        assertNull(SnapshotStore.decode(bytes, bytes.length));
+    }
+
+    @Test
+    public void unknownVersionReadsAsNull() throws IOException {
+        byte[] bytes = SnapshotStore.encode(snapshot());
+        ByteBuffer.wrap(bytes).putShort(4, (short) (SnapshotStore.VERSION + 1));
+        assertNull(SnapshotStore.decode(bytes, bytes.length));
+    }
+
+    @Test
+    public void truncatedFileReadsAsNull() throws IOException {
+        byte[] bytes = SnapshotStore.encode(snapshot());
+        // cut inside the payload and inside the header
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+        assertNull(new SnapshotStore(file).read());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, 10));
+        assertNull(new SnapshotStore(file).read());
+        Files.write(file.toPath(), new byte[0]);
+        assertNull(new SnapshotStore(file).read());
+    }
+
+    @Test
+    public void versionOneDoubleRatesAreUpgradedToTheFeedDecimals() throws IOException {
+        byte[] bytes = versionOneFile(1_000L, "Fri, 17 Oct 2025 10:00:04 GMT",
+                new String[]{USD_CODE, JPY_CODE}, new String[]{USD_TITLE, JPY_TITLE},
+                new double[]{1.3412, 203.5});
+        Files.write(file.toPath(), bytes);
+
+        RateSnapshot read = new SnapshotStore(file).read();
+        assertNotNull(read);
+        assertEquals(1_000L, read.getFetchedAtMs());
+        RateTable rates = read.getFeed().getRates();
+        assertEquals(2, rates.size());
+        assertEquals(USD_CODE, rates.getCode(0));
+        // the double is turned back into the shortest decimal it came from
+        assertEquals(13412L, rates.getUnits(0));
+        assertEquals(4, rates.getScale(0));
+        assertEquals(2035L, rates.getUnits(1));
+        assertEquals(1, rates.getScale(1));
+
+        // writing it again moves the file onto the current version
+        new SnapshotStore(file).write(read);
+        assertEquals(SnapshotStore.VERSION,
+                ByteBuffer.wrap(Files.readAllBytes(file.toPath())).getShort(4));
+        assertSameRows(rates, new SnapshotStore(file).read().getFeed().getRates());
+    }
+
+    @Test
+    public void versionTwoFilesHaveNoSourceForTheirValidators() throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(1_000L);
+        writeString(out, "Fri, 17 Oct 2025 10:00:04 GMT");
+        writeString(out, "W/\"abc\"");
+        writeString(out, "");
+        out.writeInt(1);
+        writeString(out, USD_CODE);
+        writeString(out, USD_TITLE);
+        out.writeLong(13412L);
+        out.writeByte(4);
+        Files.write(file.toPath(), withHeader(2, payload.toByteArray()));
+
+        RateSnapshot read = new SnapshotStore(file).read();
+        assertNotNull(read);
+        assertEquals("W/\"abc\"", read.getEtag());
+        // the etag may have come from either host so it is kept but never sent
+        assertNull(read.getSourceName());
+        assertEquals(13412L, read.getFeed().getRates().getUnits(0));
+    }
+
+    private static RateSnapshot snapshot() {
+        CurrencyRegistry registry = CurrencyRegistry.getInstance();
+        RateTable table = new RateTable.Builder()
+                .add(registry.intern(USD_CODE, USD_TITLE), 13412L, 4)
+                .add(registry.intern(JPY_CODE, JPY_TITLE), 2035821L, 4)
+                .build();
+        return new RateSnapshot(new ParsedFeed(table, "Fri, 17 Oct 2025 10:00:04 GMT"),
+                1_760_695_204_000L, "W/\"abc\"", "Fri, 17 Oct 2025 10:00:04 GMT", "fx-exchange");
+    }
+
+    private static void assertSameRows(RateTable expected, RateTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getId(row), actual.getId(row));
+            assertEquals(expected.getCode(row), actual.getCode(row));
+            assertEquals(expected.getTitle(row), actual.getTitle(row));
+            assertEquals(expected.getUnits(row), actual.getUnits(row));
+            assertEquals(expected.getScale(row), actual.getScale(row));
+        }
+    }
+
+    // a file in the version 1 layout which held each rate as a double
+    private static byte[] versionOneFile(long fetchedAtMs, String published,
+                                         String[] codes, String[] titles, double[] rates)
+            throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(fetchedAtMs);
+        writeString(out, published);
+        writeString(out, "");
+        writeString(out, "");
+        out.writeInt(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            writeString(out, codes[i]);
+            writeString(out, titles[i]);
+            out.writeDouble(rates[i]);
+        }
+        return withHeader(1, payload.toByteArray());
+    }
+
+    // header of the given version and checksum in front of a hand built payload
+    private static byte[] withHeader(int version, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(16 + body.length);
+        buffer.putInt(SnapshotStore.MAGIC);
+        buffer.putShort((short) version);
+        buffer.putShort((short) 0);
+        buffer.putInt(body.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(body);
+        return buffer.array();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+}
@@ -0,0 +1,168 @@
+package org.me.gcu.jordanmoorecw1.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.SnapshotEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// conflation and replay of the snapshot stream
+// events are told apart by their error text which is the order they were published in
+public class SnapshotStreamTest {
+
+    @Test
+    public void eventsPublishedBeforeADrainAreConflatedToTheNewest() {
+        SnapshotStream stream = new SnapshotStream();
+        QueuedExecutor executor = new QueuedExecutor();
+        List<String> heard = new ArrayList<>();
+        stream.subscribe(executor, event -> heard.add(event.getError()));
+
+        stream.publish(event(1));
+        stream.publish(event(2));
+        stream.publish(event(3));
+        // one hand over was scheduled however many events arrived
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(List.of("3"), heard);
+
+        // once drained the next event schedules again
+        stream.publish(event(4));
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(List.of("3", "4"), heard);
+    }
+
+    @Test
+    public void aNewSubscriberGetsTheLatestEventFirst() {
+        SnapshotStream stream = new SnapshotStream();
+        assertNull(stream.getLatest());
+        QueuedExecutor executor = new QueuedExecutor();
+        List<String> early = new ArrayList<>();
+        stream.subscribe(executor, event -> early.add(event.getError()));
+
+        SnapshotEvent first = event(1);
+        stream.publish(first);
+        executor.runAll();
+        assertSame(first, stream.getLatest());
+
+        // a late subscriber is handed the latest event without waiting for the next publish
+        List<String> late = new ArrayList<>();
+        stream.subscribe(executor, event -> late.add(event.getError()));
+        executor.runAll();
+        assertEquals(List.of("1"), late);
+
+        // a publish before the replay ran replaces it so nothing older arrives after it
+        List<String> racing = new ArrayList<>();
+        stream.subscribe(executor, event -> racing.add(event.getError()));
+        stream.publish(event(2));
+        executor.runAll();
+        assertEquals(List.of("2"), racing);
+        assertEquals(List.of("1", "2"), late);
+        assertEquals(List.of("1", "2"), early);
+    }
+
+    @Test
+    public void closingDropsTheWaitingEventAndLaterOnes() {
+        SnapshotStream stream = new SnapshotStream();
+        QueuedExecutor executor = new QueuedExecutor();
+        List<String> heard = new ArrayList<>();
+        SnapshotStream.Subscription subscription =
+                stream.subscribe(executor, event -> heard.add(event.getError()));
+
+        stream.publish(event(1));
+        subscription.close();
+        executor.runAll();
+        stream.publish(event(2));
+        executor.runAll();
+        assertTrue(heard.isEmpty());
+    }
+
+    @Test
+    public void subscribersJoiningDuringPublishesNeverSeeAnOlderEventAfterANewerOne()
+            throws Exception {
+        SnapshotStream stream = new SnapshotStream();
+        int events = 2_000;
+        int subscribers = 8;
+        ExecutorService[] executors = new ExecutorService[subscribers];
+        List<List<Integer>> heard = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(subscribers);
+
+        Thread publisher = new Thread(() -> {
+            for (int i = 1; i <= events; i++) {
+                stream.publish(event(i));
+            }
+        });
+        publisher.start();
+        try {
+            for (int s = 0; s < subscribers; s++) {
+                executors[s] = Executors.newSingleThreadExecutor();
+                List<Integer> seen = new ArrayList<>();
+                heard.add(seen);
+                stream.subscribe(executors[s], event -> {
+                    int number = Integer.parseInt(event.getError());
+                    seen.add(number);
+                    if (number == events) {
+                        finished.countDown();
+                    }
+                });
+                Thread.sleep(1);
+            }
+            publisher.join();
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+            for (List<Integer> seen : heard) {
+                for (int i = 1; i < seen.size(); i++) {
+                    if (seen.get(i) <= seen.get(i - 1)) {
+                        fail("went back from " + seen.get(i - 1) + " to " + seen.get(i));
+                    }
+                }
+                // every subscriber ends on the last event
+                assertEquals(events, (int) seen.get(seen.size() - 1));
+            }
+        } finally {
+            for (ExecutorService executor : executors) {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+            }
+        }
+    }
+
+    private static SnapshotEvent event(int number) {
+        return SnapshotEvent.failed(Integer.toString(number));
+    }
+
+    // runs tasks only when asked so the test decides when hand overs happen
+    private static final class QueuedExecutor implements Executor {
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
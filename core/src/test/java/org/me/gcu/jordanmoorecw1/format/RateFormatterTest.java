@@ -0,0 +1,69 @@
+package org.me.gcu.jordanmoorecw1.format;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Random;
+
+// checks the formatter writes the same text as String.format
+// what each allocates is measured by RateFormatterBenchmark with -PjmhProfilers=gc
+public class RateFormatterTest {
+
+    @Test
+    public void matchesStringFormatInEachLocale() {
+        Locale[] locales = {Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.UK};
+        Random random = new Random(11L);
+        for (Locale locale : locales) {
+            RateFormatter grouped = new RateFormatter(locale, true);
+            RateFormatter plain = new RateFormatter(locale, false);
+            for (int i = 0; i < 5_000; i++) {
+                long units = random.nextLong() % 10_000_000_000_000L;
+                int scale = random.nextInt(9);
+                int digits = random.nextInt(7);
+                BigDecimal value = BigDecimal.valueOf(units, scale);
+
+                // String.format rounds a BigDecimal half up
+                grouped.format(units, scale, digits, RoundingMode.HALF_UP);
+                assertEquals(String.format(locale, "%,." + digits + "f", value), grouped.toString());
+                plain.format(units, scale, digits, RoundingMode.HALF_UP);
+                assertEquals(String.format(locale, "%." + digits + "f", value), plain.toString());
+            }
+        }
+    }
+
+    @Test
+    public void digitsAreKeptPerCurrency() {
+        RateFormatter formatter = new RateFormatter(Locale.US, true);
+        formatter.setDigits(3, 0);
+        formatter.setDigits(40, 2);
+
+        assertEquals(RateFormatter.DEFAULT_DIGITS, formatter.getDigits(-1));
+        assertEquals(RateFormatter.DEFAULT_DIGITS, formatter.getDigits(7));
+        assertEquals(0, formatter.getDigits(3));
+        assertEquals(2, formatter.getDigits(40));
+
+        // half even so the tie goes to the even digit
+        formatter.formatFor(3, 1_234_565, 3);
+        assertEquals("1,235", formatter.toString());
+        formatter.formatFor(40, 1_234_565, 3);
+        assertEquals("1,234.56", formatter.toString());
+        formatter.formatFor(7, 1_234_565, 3);
+        assertEquals("1,234.5650", formatter.toString());
+    }
+
+    @Test
+    public void resultsCanBeCopiedSideBySide() {
+        RateFormatter formatter = new RateFormatter(Locale.US, false);
+        char[] target = new char[32];
+        int used = formatter.copyTo(target, 0);
+        formatter.format(15, 1, 2, RoundingMode.HALF_EVEN);
+        used += formatter.copyTo(target, used);
+        formatter.format(-2, 0, 1, RoundingMode.HALF_EVEN);
+        used += formatter.copyTo(target, used);
+        assertEquals("1.50-2.0", new String(target, 0, used));
+    }
+}
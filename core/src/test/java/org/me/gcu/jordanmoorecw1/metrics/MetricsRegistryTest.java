@@ -0,0 +1,86 @@
+package org.me.gcu.jordanmoorecw1.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// checks the histogram buckets and that concurrent recording loses nothing
+public class MetricsRegistryTest {
+
+    @Test
+    public void valuesLandInPowerOfTwoBuckets() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(1, Histogram.bucketOf(1));
+        assertEquals(2, Histogram.bucketOf(2));
+        assertEquals(2, Histogram.bucketOf(3));
+        assertEquals(3, Histogram.bucketOf(4));
+        assertEquals(10, Histogram.bucketOf(1023));
+        assertEquals(11, Histogram.bucketOf(1024));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        for (int bucket = 0; bucket < Histogram.BUCKETS - 1; bucket++) {
+            assertEquals(bucket, Histogram.bucketOf(Histogram.upperBound(bucket)));
+        }
+    }
+
+    @Test
+    public void percentilesComeFromTheBuckets() {
+        Histogram histogram = MetricsRegistry.getInstance().histogram("test.percentiles",
+                Histogram.MICROS);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        // 50 falls in the bucket of 32 to 63
+        assertEquals(63, histogram.getPercentile(0.5));
+        // the top bucket is capped at the largest value seen
+        assertEquals(100, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        Counter counter = registry.counter("test.concurrent");
+        Histogram histogram = registry.histogram("test.concurrent", Histogram.BYTES);
+        assertSame(counter, registry.counter("test.concurrent"));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    counter.increment();
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(200_000, counter.get());
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(4L * (49_999L * 50_000L / 2), histogram.getSum());
+        assertEquals(49_999, histogram.getMax());
+    }
+
+    @Test
+    public void jsonHoldsEveryMetric() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.counter("test.json").add(3);
+        registry.histogram("test.json_time", Histogram.MICROS).record(5);
+
+        String json = registry.toJson();
+        assertTrue(json, json.startsWith("{\"capturedAtMs\":"));
+        assertTrue(json, json.contains("\"test.json\":3"));
+        assertTrue(json, json.contains("\"test.json_time\":{\"unit\":\"us\",\"count\":1,\"sum\":5,"
+                + "\"max\":5,\"p50\":5,\"p90\":5,\"p99\":5,\"buckets\":[[7,1]]}"));
+    }
+}
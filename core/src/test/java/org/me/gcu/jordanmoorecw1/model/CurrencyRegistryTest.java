@@ -0,0 +1,64 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// interning and reading the shared registry from other threads
+// the registry lives for the whole test run so every code here is one no other test uses
+public class CurrencyRegistryTest {
+
+    private static final CurrencyRegistry REGISTRY = CurrencyRegistry.getInstance();
+
+    @Test
+    public void bothInternMethodsGiveTheSameIdAndKeepTheNewestTitle() {
+        int id = REGISTRY.intern("REGISTRYTESTCURRENCY(RGQ)", "Registry Test(RGQ)");
+        char[] code = "REGISTRYTESTCURRENCY(RGQ)".toCharArray();
+        char[] title = "..Registry Test Renamed(RGQ)..".toCharArray();
+
+        assertEquals(id, REGISTRY.intern(code, code.length, title, 2, title.length - 2));
+        assertEquals("Registry Test Renamed(RGQ)", REGISTRY.getTitle(id));
+        assertEquals(id, REGISTRY.intern("REGISTRYTESTCURRENCY(RGQ)", "Registry Test(RGQ)"));
+        assertEquals("Registry Test(RGQ)", REGISTRY.getTitle(id));
+        assertEquals("RGQ", REGISTRY.getIsoCode(id));
+        assertEquals(id, REGISTRY.findByCode("REGISTRYTESTCURRENCY(RGQ)"));
+        // a currency that was never seeded has no display name
+        assertNull(REGISTRY.getDisplayName(id));
+    }
+
+    @Test
+    public void readersWithoutTheLockSeeEveryIdBelowSize() throws Exception {
+        int count = 5_000;
+        AtomicReference<String> broken = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                REGISTRY.intern("REGISTRYREADER" + i + "(R" + i + ")", "Reader " + i);
+                // titles are replaced as well as added
+                REGISTRY.intern("REGISTRYREADER" + i / 2 + "(R" + i / 2 + ")", "Renamed " + i);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (writer.isAlive() && broken.get() == null) {
+                int id = REGISTRY.size() - 1;
+                // seeded ids can have no code yet but the app seeds and the core tests do not
+                if (REGISTRY.getCode(id) == null || REGISTRY.getTitle(id) == null
+                        || REGISTRY.getIsoCode(id) == null) {
+                    broken.set("id " + id + " was missing a string");
+                }
+            }
+        });
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join();
+
+        assertNull(broken.get());
+        int last = REGISTRY.findByCode("REGISTRYREADER" + (count - 1) + "(R" + (count - 1) + ")");
+        assertTrue(last >= 0);
+        assertEquals("Reader " + (count - 1), REGISTRY.getTitle(last));
+    }
+}
@@ -0,0 +1,233 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+// checks the fixed point parser and arithmetic against BigDecimal
+public class FixedDecimalTest {
+
+    @Test
+    public void parseKeepsTheDigitsAndScaleAsWritten() {
+        long packed = FixedDecimal.parse("203.5821");
+        assertEquals(2035821L, FixedDecimal.units(packed));
+        assertEquals(4, FixedDecimal.scale(packed));
+
+        packed = FixedDecimal.parse("1.3400");
+        assertEquals(13400L, FixedDecimal.units(packed));
+        assertEquals(4, FixedDecimal.scale(packed));
+
+        packed = FixedDecimal.parse("15");
+        assertEquals(15L, FixedDecimal.units(packed));
+        assertEquals(0, FixedDecimal.scale(packed));
+
+        packed = FixedDecimal.parse(".5".toCharArray(), 0, 2);
+        assertEquals(5L, FixedDecimal.units(packed));
+        assertEquals(1, FixedDecimal.scale(packed));
+    }
+
+    @Test
+    public void parseRejectsAnythingButAPlainDecimal() {
+        String[] bad = {"", ".", "-1.5", "1e5", "1.2.3", "1,234", " 1", "0.1234567890123456789",
+                "999999999999999999999"};
+        for (String text : bad) {
+            assertEquals(text, FixedDecimal.INVALID, FixedDecimal.parse(text));
+        }
+    }
+
+    @Test
+    public void roundingModesMatchBigDecimal() {
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING,
+                RoundingMode.FLOOR, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN,
+                RoundingMode.HALF_EVEN};
+        long[] values = {25, 35, -25, -35, 26, -24, 20, -20, 0};
+        for (RoundingMode mode : modes) {
+            for (long value : values) {
+                long expected = BigDecimal.valueOf(value, 1).setScale(0, mode).longValueExact();
+                assertEquals(mode + " " + value, expected, FixedDecimal.rescale(value, 1, 0, mode));
+            }
+        }
+    }
+
+    @Test
+    public void multiplyDivideMatchesBigDecimal() {
+        Random random = new Random(7L);
+        for (int i = 0; i < 20_000; i++) {
+            long a = random.nextLong() % 1_000_000_000_000L;
+            long b = 1 + Math.abs(random.nextLong() % 10_000_000_000L);
+            long c = 1 + Math.abs(random.nextLong() % 1_000_000_000L);
+            int aScale = random.nextInt(5);
+            int bScale = random.nextInt(9);
+            int cScale = random.nextInt(9);
+            int resultScale = random.nextInt(11);
+
+            BigDecimal expected = BigDecimal.valueOf(a, aScale)
+                    .multiply(BigDecimal.valueOf(b, bScale))
+                    .divide(BigDecimal.valueOf(c, cScale), resultScale, RoundingMode.HALF_EVEN);
+            if (expected.unscaledValue().bitLength() > 63) {
+                // results too big for a long have to throw instead of wrapping
+                try {
+                    FixedDecimal.multiplyDivide(a, aScale, b, bScale, c, cScale,
+                            resultScale, RoundingMode.HALF_EVEN);
+                    fail("Expected an overflow for " + expected);
+                } catch (ArithmeticException e) {
+                    continue;
+                }
+            }
+            long actual = FixedDecimal.multiplyDivide(a, aScale, b, bScale, c, cScale,
+                    resultScale, RoundingMode.HALF_EVEN);
+            assertEquals(expected.unscaledValue().longValueExact(), actual);
+        }
+    }
+
+    @Test
+    public void multiplyMatchesBigDecimal() {
+        Random random = new Random(11L);
+        for (int i = 0; i < 20_000; i++) {
+            long a = random.nextLong() % 1_000_000_000_000L;
+            long b = random.nextLong() % 100_000_000_000L;
+            int aScale = random.nextInt(9);
+            int bScale = random.nextInt(11);
+            int resultScale = random.nextInt(5);
+
+            BigDecimal expected = BigDecimal.valueOf(a, aScale)
+                    .multiply(BigDecimal.valueOf(b, bScale))
+                    .setScale(resultScale, RoundingMode.HALF_EVEN);
+            if (expected.unscaledValue().bitLength() > 63) {
+                try {
+                    FixedDecimal.multiply(a, aScale, b, bScale, resultScale, RoundingMode.HALF_EVEN);
+                    fail("Expected an overflow for " + expected);
+                } catch (ArithmeticException e) {
+                    continue;
+                }
+            }
+            assertEquals(expected.unscaledValue().longValueExact(),
+                    FixedDecimal.multiply(a, aScale, b, bScale, resultScale, RoundingMode.HALF_EVEN));
+        }
+    }
+
+    @Test
+    public void wideProductsStayExact() {
+        // the product needs more than 64 bits but the result fits
+        long a = 9_000_000_000_000_000L;
+        long b = 7_000_000_000L;
+        long c = 3_000_000_000L;
+        BigDecimal expected = BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(b))
+                .divide(BigDecimal.valueOf(c), 0, RoundingMode.HALF_EVEN);
+        assertEquals(expected.longValueExact(),
+                FixedDecimal.multiplyDivide(a, b, c, RoundingMode.HALF_EVEN));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void resultsThatDoNotFitThrow() {
+        FixedDecimal.multiplyDivide(Long.MAX_VALUE / 2, 4, 1, RoundingMode.HALF_EVEN);
+    }
+
+    @Test
+    public void charAndTextParsersAgree() {
+        String[] texts = {"203.5821", "1.3400", "15", ".5", "", "1.2.3", "-1", "0.1234567890123456789"};
+        for (String text : texts) {
+            char[] padded = ("x" + text + "x").toCharArray();
+            assertEquals(text, FixedDecimal.parse(text),
+                    FixedDecimal.parse(padded, 1, padded.length - 1));
+        }
+    }
+
+    @Test
+    public void rescaleBeyondTheLongPowersThrowsArithmetic() {
+        try {
+            FixedDecimal.rescale(1, 0, 19, RoundingMode.HALF_EVEN);
+            fail("Expected an overflow");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        try {
+            FixedDecimal.rescale(1, 28, 4, RoundingMode.HALF_EVEN);
+            fail("Expected an overflow");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void compareWorksAcrossScales() {
+        assertEquals(0, FixedDecimal.compare(15, 1, 1500, 3));
+        assertTrue(FixedDecimal.compare(14999, 4, 15, 1) < 0);
+        assertTrue(FixedDecimal.compare(-1, 0, 5, 1) < 0);
+        assertTrue(FixedDecimal.compare(Long.MAX_VALUE, 0, 1, 18) > 0);
+    }
+
+    @Test
+    public void plainTextPadsTheFraction() {
+        assertEquals("1.0005", FixedDecimal.toPlainString(10005, 4));
+        assertEquals("0.0000", FixedDecimal.toPlainString(0, 4));
+        assertEquals("-2.5000", FixedDecimal.toPlainString(-25000, 4));
+        assertEquals("42", FixedDecimal.toPlainString(42, 0));
+    }
+
+    @Test
+    public void crossRatesConvertFromThePairRate() {
+        int usd = CurrencyRegistry.getInstance().intern("UNITEDSTATESDOLLAR(USD)",
+                "British Pound Sterling(GBP)/United States Dollar(USD)");
+        int eur = CurrencyRegistry.getInstance().intern("EURO(EUR)",
+                "British Pound Sterling(GBP)/Euro(EUR)");
+        RateTable table = new RateTable.Builder()
+                .add(usd, 13412, 4)
+                .add(eur, 11523, 4)
+                .build();
+        CrossRates rates = table.getCrossRates();
+        int from = rates.slotOf("USD");
+        int to = rates.slotOf("EUR");
+
+        // 100 USD in EUR is 100 x 0.8591559797 = 85.91559...
+        assertEquals(859156L, rates.convert(10000, 2, from, to, 4, RoundingMode.HALF_EVEN));
+        assertEquals(859155L, rates.convert(10000, 2, from, to, 4, RoundingMode.DOWN));
+        // gbp to usd is the feed rate itself
+        assertEquals(13412L, rates.convert(1, 0, rates.baseSlot(), from, 4, RoundingMode.UNNECESSARY));
+        // the pair rate is kept at RATE_SCALE
+        assertEquals(BigDecimal.valueOf(11523, 4)
+                        .divide(BigDecimal.valueOf(13412, 4), CrossRates.RATE_SCALE, RoundingMode.HALF_EVEN)
+                        .unscaledValue().longValueExact(),
+                rates.rate(from, to));
+    }
+
+    @Test
+    public void largeAmountsBetweenTwoFeedCurrenciesAreRoundedOnce() {
+        int idr = CurrencyRegistry.getInstance().intern("INDONESIANRUPIAH(IDR)",
+                "British Pound Sterling(GBP)/Indonesian Rupiah(IDR)");
+        int kwd = CurrencyRegistry.getInstance().intern("KUWAITIDINAR(KWD)",
+                "British Pound Sterling(GBP)/Kuwaiti Dinar(KWD)");
+        RateTable table = new RateTable.Builder()
+                .add(idr, 219876543L, 4)
+                .add(kwd, 4123L, 4)
+                .build();
+        CrossRates rates = table.getCrossRates();
+        int from = rates.slotOf("IDR");
+        int to = rates.slotOf("KWD");
+        long amount = 1_000_000_000_00L;
+
+        // 1,000,000,000 IDR x 0.4123 / 21987.6543 = 18751.43179... KWD
+        BigDecimal exact = BigDecimal.valueOf(amount, 2)
+                .multiply(BigDecimal.valueOf(4123L, 4))
+                .divide(BigDecimal.valueOf(219876543L, 4), 3, RoundingMode.HALF_EVEN);
+        assertEquals(18751432L, exact.unscaledValue().longValueExact());
+        assertEquals(18751432L, rates.convert(amount, 2, from, to, 3, RoundingMode.HALF_EVEN));
+
+        // the quote a converter caches gives the same digits
+        long[] pair = new long[2];
+        rates.quote(from, to, pair);
+        assertEquals(18751432L, CrossRates.convert(amount, 2, pair, 3, RoundingMode.HALF_EVEN));
+
+        // the matrix pair rate keeps only six significant digits here
+        // so going through it would be 0.032 KWD out
+        assertEquals(187514L, rates.rate(from, to));
+        assertEquals(18751400L, FixedDecimal.multiply(amount, 2, rates.rate(from, to),
+                CrossRates.RATE_SCALE, 3, RoundingMode.HALF_EVEN));
+    }
+}
@@ -0,0 +1,123 @@
+package org.me.gcu.jordanmoorecw1.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+// revaluing a portfolio as tables arrive with rates that move appear and disappear
+public class PortfolioValuationTest {
+
+    private static final CurrencyRegistry REGISTRY = CurrencyRegistry.getInstance();
+    private static final int USD = REGISTRY.intern("UNITEDSTATESDOLLAR(USD)",
+            "British Pound Sterling(GBP)/United States Dollar(USD)");
+    private static final int EUR = REGISTRY.intern("EURO(EUR)",
+            "British Pound Sterling(GBP)/Euro(EUR)");
+    private static final int JPY = REGISTRY.intern("JAPANESEYEN(JPY)",
+            "British Pound Sterling(GBP)/Japanese Yen(JPY)");
+
+    // two usd balances one eur one gbp and one jpy all at scale 2
+    private static final int[] IDS = {USD, EUR, USD, PortfolioValuation.BASE_ID, JPY};
+    private static final long[] AMOUNTS = {100_00L, 200_00L, 50_00L, 10_00L, 1_000_00L};
+
+    @Test
+    public void onlyGroupsWhoseRateMovedAreRecomputed() {
+        PortfolioValuation portfolio = new PortfolioValuation(IDS, AMOUNTS, 2);
+        assertEquals(5, portfolio.size());
+        assertEquals(5, portfolio.getUnpricedCount());
+
+        // gbp usd and eur get a rate and jpy stays unpriced
+        assertEquals(3, portfolio.update(table(125L, 16L, 0L)));
+        assertEquals(1, portfolio.getUnpricedCount());
+        // 150 / 1.25 + 200 / 1.6 + 10
+        assertEquals(255_00L, portfolio.total(PortfolioValuation.BASE_ID, 2));
+
+        // the same rates again change nothing
+        assertEquals(0, portfolio.update(table(125L, 16L, 0L)));
+
+        // only usd moves
+        assertEquals(1, portfolio.update(table(150L, 16L, 0L)));
+        assertEquals(235_00L, portfolio.total(PortfolioValuation.BASE_ID, 2));
+
+        // jpy arrives so nothing is unpriced
+        assertEquals(1, portfolio.update(table(150L, 16L, 200L)));
+        assertEquals(0, portfolio.getUnpricedCount());
+        assertEquals(240_00L, portfolio.total(PortfolioValuation.BASE_ID, 2));
+
+        // eur drops out of the feed and its one balance is left out
+        assertEquals(1, portfolio.update(table(150L, 0L, 200L)));
+        assertEquals(1, portfolio.getUnpricedCount());
+        assertEquals(115_00L, portfolio.total(PortfolioValuation.BASE_ID, 2));
+    }
+
+    @Test
+    public void totalsConvertIntoOtherCurrenciesAndMatchTheirPositions() {
+        PortfolioValuation portfolio = new PortfolioValuation(IDS, AMOUNTS, 2);
+        RateTable table = table(150L, 16L, 200L);
+        portfolio.update(table);
+
+        long[] totals = new long[3];
+        portfolio.totals(new int[]{PortfolioValuation.BASE_ID, USD, EUR}, 2, totals);
+        assertEquals(240_00L, totals[0]);
+        assertEquals(360_00L, totals[1]);
+        assertEquals(384_00L, totals[2]);
+        assertEquals(totals[1], portfolio.total(USD, 2));
+
+        // the positions add up to the total at the scale the values are held in
+        // even though the two usd balances are each rounded on their own
+        long[] positions = new long[IDS.length];
+        portfolio.positionValues(PortfolioValuation.BASE_ID, PortfolioValuation.VALUE_SCALE,
+                positions);
+        long sum = 0L;
+        for (long value : positions) {
+            sum += value;
+        }
+        assertEquals(portfolio.total(PortfolioValuation.BASE_ID, PortfolioValuation.VALUE_SCALE),
+                sum);
+        assertEquals(66_66666667L, positions[0]);
+        assertEquals(33_33333333L, positions[2]);
+
+        // the one off total agrees with the kept one
+        assertEquals(totals[2], PortfolioValuation.total(table, IDS, AMOUNTS, 2, EUR, 2));
+    }
+
+    @Test
+    public void unpricedPositionsAndTargetsWithoutARate() {
+        PortfolioValuation portfolio = new PortfolioValuation(IDS, AMOUNTS, 2);
+        portfolio.update(table(150L, 0L, 0L));
+        assertEquals(2, portfolio.getUnpricedCount());
+
+        long[] positions = new long[IDS.length];
+        portfolio.positionValues(PortfolioValuation.BASE_ID, 2, positions);
+        // the eur and jpy balances have no value
+        assertEquals(0L, positions[1]);
+        assertEquals(0L, positions[4]);
+        assertEquals(10_00L, positions[3]);
+
+        // nothing can be shown in a currency the table does not have
+        assertEquals(FixedDecimal.INVALID, portfolio.total(EUR, 2));
+        portfolio.positionValues(JPY, 2, positions);
+        assertEquals(FixedDecimal.INVALID, positions[0]);
+    }
+
+    @Test
+    public void gbpMapsToTheBaseId() {
+        assertEquals(PortfolioValuation.BASE_ID, PortfolioValuation.idOf("gbp"));
+        // a code no other test registers so its iso code can only find this id
+        int id = REGISTRY.intern("PORTFOLIOTESTCURRENCY(PTQ)", "Portfolio Test Currency(PTQ)");
+        assertEquals(id, PortfolioValuation.idOf("ptq"));
+        assertEquals(CurrencyRegistry.NO_ID, PortfolioValuation.idOf("QQQ"));
+    }
+
+    // usd in hundredths eur in tenths and jpy in whole units where 0 leaves the currency out
+    private static RateTable table(long usdUnits, long eurTenths, long jpyUnits) {
+        RateTable.Builder builder = new RateTable.Builder();
+        builder.add(USD, usdUnits, 2);
+        if (eurTenths > 0) {
+            builder.add(EUR, eurTenths, 1);
+        }
+        if (jpyUnits > 0) {
+            builder.add(JPY, jpyUnits, 0);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,115 @@
+package org.me.gcu.jordanmoorecw1.refresh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// learning the publish interval and spacing out checks that find nothing new
+public class PublishCadenceTest {
+
+    private static final long MINUTE_MS = 60L * 1000L;
+    private static final long HOUR_MS = 60L * MINUTE_MS;
+
+    // Fri, 17 Oct 2025 10:00:04 GMT
+    private static final long T0 = 1_760_695_204_000L;
+
+    @Test
+    public void firstGapBecomesTheInterval() {
+        PublishCadence cadence = new PublishCadence();
+        assertTrue(cadence.record(T0));
+        assertEquals(0L, cadence.getIntervalMs());
+        assertTrue(cadence.record(T0 + HOUR_MS));
+        assertEquals(HOUR_MS, cadence.getIntervalMs());
+        assertEquals(T0 + HOUR_MS, cadence.getLastPublishedMs());
+    }
+
+    @Test
+    public void aGapOfSeveralPublishesIsFoldedBackToOne() {
+        PublishCadence cadence = learned(HOUR_MS);
+
+        // three publishes went by between two checks
+        cadence.record(cadence.getLastPublishedMs() + 3 * HOUR_MS);
+        assertEquals(HOUR_MS, cadence.getIntervalMs());
+
+        // close enough to two periods counts as two
+        cadence.record(cadence.getLastPublishedMs() + 2 * HOUR_MS + 10 * MINUTE_MS);
+        assertEquals(HOUR_MS + Math.round(0.3 * 5 * MINUTE_MS), cadence.getIntervalMs());
+    }
+
+    @Test
+    public void aGapBetweenWholePeriodsMovesTheEstimate() {
+        PublishCadence cadence = learned(HOUR_MS);
+        // an hour and a half is not a whole number of hours so it is learned as it is
+        cadence.record(cadence.getLastPublishedMs() + 90 * MINUTE_MS);
+        assertEquals(69 * MINUTE_MS, cadence.getIntervalMs());
+    }
+
+    @Test
+    public void outagesAndTinyGapsAreNotLearned() {
+        PublishCadence cadence = learned(HOUR_MS);
+        cadence.record(cadence.getLastPublishedMs() + 2 * MINUTE_MS);
+        assertEquals(HOUR_MS, cadence.getIntervalMs());
+        cadence.record(cadence.getLastPublishedMs() + 30 * HOUR_MS);
+        assertEquals(HOUR_MS, cadence.getIntervalMs());
+    }
+
+    @Test
+    public void nextCheckIsJustAfterTheExpectedPublish() {
+        PublishCadence cadence = learned(HOUR_MS);
+        long last = cadence.getLastPublishedMs();
+
+        assertEquals(HOUR_MS + PublishCadence.PUBLISH_GRACE_MS - 10 * MINUTE_MS,
+                cadence.nextDelayMs(last + 10 * MINUTE_MS));
+        // the expected publish has gone by so look again soon
+        assertEquals(PublishCadence.BACKOFF_START_MS, cadence.nextDelayMs(last + 2 * HOUR_MS));
+        // nothing seen yet so the default interval is used
+        assertEquals(PublishCadence.DEFAULT_INTERVAL_MS, new PublishCadence().nextDelayMs(T0));
+    }
+
+    @Test
+    public void unchangedChecksDoubleTheWaitUpToTheCap() {
+        PublishCadence cadence = learned(HOUR_MS);
+        long last = cadence.getLastPublishedMs();
+        long now = last + 2 * HOUR_MS;
+
+        long expected = PublishCadence.BACKOFF_START_MS;
+        for (int miss = 1; miss <= 8; miss++) {
+            assertFalse(cadence.record(last));
+            assertEquals(miss, cadence.getUnchangedChecks());
+            assertEquals(Math.min(expected, PublishCadence.MAX_DELAY_MS),
+                    cadence.nextDelayMs(now));
+            expected *= 2;
+        }
+        // 5 minutes doubled 7 times is past 6 hours so the eighth miss sat at the cap
+        assertEquals(PublishCadence.MAX_DELAY_MS, cadence.nextDelayMs(now));
+
+        // a long run of misses does not overflow the shift
+        for (int miss = 0; miss < 100; miss++) {
+            cadence.record(0L);
+        }
+        assertEquals(PublishCadence.MAX_DELAY_MS, cadence.nextDelayMs(now));
+
+        // a new publish resets the backoff
+        assertTrue(cadence.record(last + HOUR_MS));
+        assertEquals(0, cadence.getUnchangedChecks());
+    }
+
+    @Test
+    public void pubDatesAreReadAsRfc1123() {
+        assertEquals(T0, PublishCadence.parsePubDate("Fri, 17 Oct 2025 10:00:04 GMT"));
+        assertEquals(T0, PublishCadence.parsePubDate(" Fri, 17 Oct 2025 10:00:04 GMT "));
+        assertEquals(0L, PublishCadence.parsePubDate("yesterday"));
+        assertEquals(0L, PublishCadence.parsePubDate(""));
+        assertEquals(0L, PublishCadence.parsePubDate(null));
+    }
+
+    // cadence that has seen two publishes the given interval apart
+    private static PublishCadence learned(long intervalMs) {
+        PublishCadence cadence = new PublishCadence();
+        cadence.record(T0);
+        cadence.record(T0 + intervalMs);
+        return cadence;
+    }
+}
@@ -0,0 +1,101 @@
+package org.me.gcu.jordanmoorecw1.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.me.gcu.jordanmoorecw1.model.CurrencyRegistry;
+import org.me.gcu.jordanmoorecw1.model.RateTable;
+
+// ranking and typo tolerance of the currency search
+public class SearchIndexTest {
+
+    // rows in feed order
+    private static final int AUD = 0;
+    private static final int UDM = 1;
+    private static final int JPY = 2;
+    private static final int EUR = 3;
+    private static final int USD = 4;
+
+    private static final RateTable TABLE = new RateTable.Builder()
+            .add(id("AUSTRALIANDOLLAR(AUD)", "Australian Dollar(AUD)"), 20581L, 4)
+            // made up currency whose name starts with the letters of another iso code
+            .add(id("USDANIMARK(UDM)", "Usdani Mark(UDM)"), 31000L, 4)
+            .add(id("JAPANESEYEN(JPY)", "Japanese Yen(JPY)"), 2035821L, 4)
+            .add(id("EURO(EUR)", "Euro(EUR)"), 11523L, 4)
+            .add(id("UNITEDSTATESDOLLAR(USD)", "United States Dollar(USD)"), 13412L, 4)
+            .build();
+
+    private static final SearchIndex INDEX = SearchIndex.build(TABLE);
+
+    @Test
+    public void exactIsoCodeComesFirst() {
+        // the usdani mark matches by word prefix and comes earlier in the feed
+        // but the row whose code is exactly the query still leads
+        int[] rows = search("usd");
+        assertEquals(USD, rows[0]);
+        assertEquals(UDM, rows[1]);
+        assertEquals(2, rows.length);
+
+        // case and spacing do not matter
+        assertEquals(USD, search("  USD ")[0]);
+        assertEquals(EUR, search("eur")[0]);
+    }
+
+    @Test
+    public void isoPrefixComesBeforeNamePrefix() {
+        // us starts the usd code and the name of the usdani mark which is earlier in the feed
+        assertArrayEquals(new int[]{USD, UDM}, search("us"));
+        // every dollar row matches on its name and stays in feed order
+        assertArrayEquals(new int[]{AUD, USD}, search("dollar"));
+    }
+
+    @Test
+    public void nearMissesStillFindTheCurrency() {
+        // a dropped letter in a short word
+        assertArrayEquals(new int[]{AUD, USD}, search("dolar"));
+        // two slips in a longer word
+        assertEquals(JPY, search("japanse")[0]);
+        assertEquals(JPY, search("japenes")[0]);
+        // a swapped pair in a word of four letters is two edits which is more than one allowed
+        assertEquals(0, search("eruo").length);
+    }
+
+    @Test
+    public void everyWordHasToMatch() {
+        assertArrayEquals(new int[]{USD}, search("united dolar"));
+        assertEquals(0, search("japanese dollar").length);
+        assertEquals(0, search("").length);
+        assertEquals(0, search("zzzz").length);
+    }
+
+    @Test
+    public void cancelledSearchReturnsNull() {
+        assertNull(INDEX.search("dollar", () -> true));
+    }
+
+    @Test
+    public void coversOnlyTablesWithTheSameRows() {
+        assertTrue(INDEX.covers(TABLE));
+        // the same currencies with new rates are still covered
+        RateTable.Builder moved = new RateTable.Builder();
+        for (int row = 0; row < TABLE.size(); row++) {
+            moved.add(TABLE.getId(row), TABLE.getUnits(row) + 1, TABLE.getScale(row));
+        }
+        assertTrue(INDEX.covers(moved.build()));
+        assertFalse(INDEX.covers(new RateTable.Builder()
+                .add(TABLE.getId(USD), 13412L, 4)
+                .build()));
+    }
+
+    private static int[] search(String query) {
+        return INDEX.search(query, () -> false);
+    }
+
+    private static int id(String code, String quote) {
+        return CurrencyRegistry.getInstance().intern(code, "British Pound Sterling(GBP)/" + quote);
+    }
+}
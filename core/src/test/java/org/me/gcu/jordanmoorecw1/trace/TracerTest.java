@@ -0,0 +1,115 @@
+package org.me.gcu.jordanmoorecw1.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// checks the ring buffer the trace ids and the chrome json
+public class TracerTest {
+
+    @Test
+    public void spansCarryTheTraceOfTheirThread() throws InterruptedException {
+        Tracer tracer = new Tracer(16);
+        long traceId = tracer.newTraceId();
+        long previous = tracer.attach(traceId);
+        assertEquals(Tracer.NO_TRACE, previous);
+
+        long start = tracer.begin("outer");
+        // work handed to another thread carries the id by hand
+        Thread worker = new Thread(() -> {
+            long before = tracer.attach(traceId);
+            tracer.end("worker", tracer.begin("worker"));
+            tracer.attach(before);
+        }, "trace-worker");
+        worker.start();
+        worker.join();
+        tracer.mark("handover");
+        tracer.end("outer", start);
+        tracer.attach(previous);
+        tracer.end("untraced", tracer.begin("untraced"));
+
+        String json = tracer.toChromeJson();
+        assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json, json.contains("\"name\":\"thread_name\""));
+        assertTrue(json, json.contains("\"args\":{\"name\":\"trace-worker\"}"));
+        assertTrue(json, json.contains("{\"ph\":\"X\",\"name\":\"worker\",\"cat\":\"refresh\""));
+        assertTrue(json, json.contains("{\"ph\":\"i\",\"name\":\"handover\""));
+        assertEquals(3, count(json, "\"trace\":" + traceId + "}"));
+        assertEquals(1, count(json, "\"trace\":0}"));
+    }
+
+    @Test
+    public void theNewestSpansOverwriteTheOldest() {
+        Tracer tracer = new Tracer(4);
+        for (int i = 0; i < 10; i++) {
+            tracer.end("span" + i, tracer.begin("span" + i));
+        }
+        String json = tracer.toChromeJson();
+        assertFalse(json, json.contains("\"span5\""));
+        for (int i = 6; i < 10; i++) {
+            assertTrue(json, json.contains("\"span" + i + "\""));
+        }
+
+        tracer.clear();
+        assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[]}", tracer.toChromeJson());
+    }
+
+    @Test
+    public void sectionsArePairedOnTheSink() {
+        Tracer tracer = new Tracer(8);
+        List<String> calls = new ArrayList<>();
+        tracer.setSectionSink(new Tracer.SectionSink() {
+            @Override
+            public void beginSection(String name) {
+                calls.add("begin " + name);
+            }
+
+            @Override
+            public void endSection() {
+                calls.add("end");
+            }
+        });
+        long outer = tracer.begin("outer");
+        tracer.end("inner", tracer.begin("inner"));
+        tracer.end("outer", outer);
+
+        List<String> expected = new ArrayList<>();
+        expected.add("begin outer");
+        expected.add("begin inner");
+        expected.add("end");
+        expected.add("end");
+        assertEquals(expected, calls);
+    }
+
+    @Test
+    public void concurrentSpansAreAllKeptWhenTheyFit() throws InterruptedException {
+        Tracer tracer = new Tracer(1024);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    tracer.end("span", tracer.begin("span"));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800, count(tracer.toChromeJson(), "\"ph\":\"X\""));
+    }
+
+    private static int count(String text, String part) {
+        int found = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            found++;
+        }
+        return found;
+    }
+}